@@ -0,0 +1,96 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.utils;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * a version number for the code a class was loaded from: a hash of its jar, or
+ * of every .class file in its class directory. Any rebuild that changes the
+ * code changes the version, so caches keyed on it can't outlive the code that
+ * filled them
+ *
+ * @author bobt
+ *
+ */
+public class CodeVersion {
+  private static final Logger logger = LoggerFactory.getLogger(CodeVersion.class);
+
+  private static final Map<String, Integer> versionMap = new ConcurrentHashMap<>();
+
+  /**
+   * @param type
+   * @return the version of the code type was loaded from; if that can't be
+   *         determined, a different value for every run, so nothing is reused
+   */
+  public static int of(Class<?> type) {
+    var codeSource = type.getProtectionDomain().getCodeSource();
+    var location = (codeSource == null) ? null : codeSource.getLocation();
+    if (location == null) {
+      logger.warn("no code source for: " + type.getName() + ", using a one-off version");
+      return oneOff();
+    }
+    return versionMap.computeIfAbsent(location.toString(), k -> compute(location));
+  }
+
+  private static int compute(URL location) {
+    try {
+      var path = Path.of(location.toURI());
+      var digest = MessageDigest.getInstance("SHA-256");
+      if (Files.isDirectory(path)) {
+        try (var stream = Files.walk(path)) {
+          for (var file : stream.filter(p -> p.toString().endsWith(".class")).sorted().toList()) {
+            digest.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file));
+          }
+        }
+      } else {
+        digest.update(Files.readAllBytes(path));
+      }
+      return ByteBuffer.wrap(digest.digest()).getInt();
+    } catch (Exception e) {
+      logger.warn("Exception hashing code at: " + location + ", " + e.getLocalizedMessage()
+          + ", using a one-off version");
+      return oneOff();
+    }
+  }
+
+  private static int oneOff() {
+    return Long.hashCode(System.nanoTime());
+  }
+}
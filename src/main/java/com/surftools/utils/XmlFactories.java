@@ -0,0 +1,107 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.surftools.utils;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+
+/**
+ * the XML factories, looked up and hardened once, with a DocumentBuilder and an
+ * XMLInputFactory per thread
+ *
+ * DocumentBuilderFactory.newInstance() and XMLInputFactory.newInstance() do a
+ * service-provider lookup on every call, which adds up when done per message.
+ * Neither DocumentBuilderFactory nor DocumentBuilder is thread-safe, hence the
+ * per-thread builders; each is reset() before being handed out
+ *
+ * @author bobt
+ *
+ */
+public class XmlFactories {
+  private static final DocumentBuilderFactory documentBuilderFactory = makeDocumentBuilderFactory();
+
+  private static final ThreadLocal<DocumentBuilder> documentBuilderHolder = ThreadLocal
+      .withInitial(XmlFactories::makeDocumentBuilder);
+
+  private static final ThreadLocal<XMLInputFactory> inputFactoryHolder = ThreadLocal
+      .withInitial(XmlFactories::makeXMLInputFactory);
+
+  private XmlFactories() {
+  }
+
+  /**
+   * @return this thread's DocumentBuilder, ready for the next parse
+   */
+  public static DocumentBuilder getDocumentBuilder() {
+    var db = documentBuilderHolder.get();
+    db.reset();
+    return db;
+  }
+
+  /**
+   * @return this thread's XMLInputFactory
+   */
+  public static XMLInputFactory getXMLInputFactory() {
+    return inputFactoryHolder.get();
+  }
+
+  private static DocumentBuilderFactory makeDocumentBuilderFactory() {
+    try {
+      var dbf = DocumentBuilderFactory.newInstance();
+      dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
+      dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+      dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+      dbf.setXIncludeAware(false);
+      return dbf;
+    } catch (ParserConfigurationException e) {
+      throw new RuntimeException("can't configure DocumentBuilderFactory: " + e.getLocalizedMessage());
+    }
+  }
+
+  private static DocumentBuilder makeDocumentBuilder() {
+    try {
+      synchronized (documentBuilderFactory) {
+        return documentBuilderFactory.newDocumentBuilder();
+      }
+    } catch (ParserConfigurationException e) {
+      throw new RuntimeException("can't create DocumentBuilder: " + e.getLocalizedMessage());
+    }
+  }
+
+  private static XMLInputFactory makeXMLInputFactory() {
+    var factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
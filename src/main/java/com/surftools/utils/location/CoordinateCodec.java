@@ -0,0 +1,181 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.utils.location;
+
+/**
+ * allocation-free parsing of coordinate text
+ *
+ * Understands plain decimal degrees ("40.1875", "-92.5417") and 6-character
+ * Maidenhead grids ("EM29qe"). The parse methods work on a range of a
+ * CharSequence, so callers can parse straight out of a larger line without
+ * splitting or trimming.
+ *
+ * NOTE WELL: this is only a fast path. parseDecimal() returns Double.NaN for
+ * anything that isn't a plain decimal, and the caller decides what else to
+ * accept, usually by falling back to Double.parseDouble
+ *
+ * @author bobt
+ *
+ */
+public class CoordinateCodec {
+
+  private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+      1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  // mantissas below 2^53 are exact doubles, so a single division is correctly
+  // rounded and agrees bit-for-bit with Double.parseDouble
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private CoordinateCodec() {
+  }
+
+  /**
+   * parse a plain decimal number: optional sign, digits, optional '.' and
+   * fraction, surrounded by optional whitespace
+   *
+   * @return the value, identical to Double.parseDouble, or NaN if the range is
+   *         not a plain decimal
+   */
+  public static double parseDecimal(CharSequence s, int start, int end) {
+    if (s == null) {
+      return Double.NaN;
+    }
+
+    start = skipWhitespace(s, start, end);
+    end = trimWhitespace(s, start, end);
+    if (start >= end) {
+      return Double.NaN;
+    }
+
+    var i = start;
+    var isNegative = false;
+    var c = s.charAt(i);
+    if (c == '-' || c == '+') {
+      isNegative = c == '-';
+      ++i;
+    }
+
+    var mantissa = 0L;
+    var digitCount = 0;
+    var fractionCount = 0;
+    var isFraction = false;
+    for (; i < end; ++i) {
+      c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (digitCount == 18) {
+          return slowParse(s, start, end);
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        ++digitCount;
+        if (isFraction) {
+          ++fractionCount;
+        }
+      } else if (c == '.' && !isFraction) {
+        isFraction = true;
+      } else {
+        return Double.NaN;
+      }
+    }
+
+    if (digitCount == 0) {
+      return Double.NaN;
+    }
+
+    if (mantissa >= MAX_EXACT_MANTISSA || fractionCount >= POW10.length) {
+      return slowParse(s, start, end);
+    }
+
+    var value = fractionCount == 0 ? (double) mantissa : mantissa / POW10[fractionCount];
+    return isNegative ? -value : value;
+  }
+
+  /**
+   * exactly six characters: field (A-R), square (0-9), subsquare (A-X)
+   */
+  public static boolean isValidMaidenhead(CharSequence s, int start, int end) {
+    if (s == null || end - start != 6) {
+      return false;
+    }
+
+    return isLetter(s.charAt(start), 'R') && isLetter(s.charAt(start + 1), 'R') //
+        && isDigit(s.charAt(start + 2)) && isDigit(s.charAt(start + 3)) //
+        && isLetter(s.charAt(start + 4), 'X') && isLetter(s.charAt(start + 5), 'X');
+  }
+
+  /**
+   * latitude of the center of the subsquare starting at start; no validation
+   */
+  public static double maidenheadLatitude(CharSequence s, int start) {
+    return -90 + 10 * (upper(s.charAt(start + 1)) - 'A') + (s.charAt(start + 3) - '0')
+        + 2.5 / 60 * (upper(s.charAt(start + 5)) - 'A') + 2.5 / 60 / 2;
+  }
+
+  /**
+   * longitude of the center of the subsquare starting at start; no validation
+   */
+  public static double maidenheadLongitude(CharSequence s, int start) {
+    return -180 + 20 * (upper(s.charAt(start)) - 'A') + 2 * (s.charAt(start + 2) - '0')
+        + 5.0 / 60 * (upper(s.charAt(start + 4)) - 'A') + 5.0 / 60 / 2;
+  }
+
+  // only reached for absurdly long digit strings, never for real coordinates
+  private static double slowParse(CharSequence s, int start, int end) {
+    try {
+      return Double.parseDouble(s.subSequence(start, end).toString());
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  private static int skipWhitespace(CharSequence s, int start, int end) {
+    while (start < end && s.charAt(start) <= ' ') {
+      ++start;
+    }
+    return start;
+  }
+
+  private static int trimWhitespace(CharSequence s, int start, int end) {
+    while (end > start && s.charAt(end - 1) <= ' ') {
+      --end;
+    }
+    return end;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLetter(char c, char last) {
+    var u = upper(c);
+    return u >= 'A' && u <= last;
+  }
+
+  private static char upper(char c) {
+    return (c >= 'a' && c <= 'z') ? (char) (c - ('a' - 'A')) : c;
+  }
+}
@@ -60,6 +60,11 @@ public class LatLongPair {
   private double dLatitude;
   private double dLongitude;
 
+  // parse once: 0 until isValid() has run, then STATE_VALID or STATE_INVALID
+  private static final int STATE_VALID = 1;
+  private static final int STATE_INVALID = 2;
+  private volatile int validity;
+
   private static int precision = 4;
 
   public LatLongPair(String latitude, String longitude) {
@@ -171,6 +176,15 @@ public class LatLongPair {
   }
 
   public boolean isValid() {
+    var state = validity;
+    if (state == 0) {
+      state = parse() ? STATE_VALID : STATE_INVALID;
+      validity = state;
+    }
+    return state == STATE_VALID;
+  }
+
+  private boolean parse() {
     if (latitude == null || longitude == null) {
       return false;
     }
@@ -180,7 +194,7 @@ public class LatLongPair {
     }
 
     try {
-      dLatitude = Double.parseDouble(latitude);
+      dLatitude = parseDouble(latitude);
       if (Math.abs(dLatitude) > 90d) {
         return false;
       }
@@ -190,7 +204,7 @@ public class LatLongPair {
     }
 
     try {
-      dLongitude = Double.parseDouble(longitude);
+      dLongitude = parseDouble(longitude);
       if (Math.abs(dLongitude) > 180d) {
         return false;
       }
@@ -202,6 +216,13 @@ public class LatLongPair {
     return true;
   }
 
+  // plain decimals take the allocation-free path; anything else gets the full
+  // Double.parseDouble grammar, as before
+  private static double parseDouble(String s) {
+    var value = CoordinateCodec.parseDecimal(s, 0, s.length());
+    return Double.isNaN(value) ? Double.parseDouble(s) : value;
+  }
+
   public double computeDistanceMeters(LatLongPair other) {
     return LocationUtils.computeDistanceMeters(this, other);
   }
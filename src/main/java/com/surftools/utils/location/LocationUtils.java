@@ -175,8 +175,7 @@ public class LocationUtils {
       return false;
     }
 
-    final var pattern = "[a-rA-R]{2}[0-9]{2}[a-xA-X]{2}";
-    return grid.matches(pattern);
+    return CoordinateCodec.isValidMaidenhead(grid, 0, grid.length());
   }
 
   public static double getLatitudeFromMaidenhead(String grid) {
@@ -184,17 +183,11 @@ public class LocationUtils {
       throw new IllegalArgumentException("grid: " + grid + " is not a valid Maidenhead grid string");
     }
 
-    grid = grid.toUpperCase();
-    double latitude = -90 + 10 * (grid.charAt(1) - 'A') + (grid.charAt(3) - '0') + 2.5 / 60 * (grid.charAt(5) - 'A')
-        + 2.5 / 60 / 2;
-    return latitude;
+    return CoordinateCodec.maidenheadLatitude(grid, 0);
   }
 
   public static double getLongitudeFromMaidenhead(String grid) {
-    grid = grid.toUpperCase();
-    double longitude = -180 + 20 * (grid.charAt(0) - 'A') + 2 * (grid.charAt(2) - '0')
-        + 5.0 / 60 * (grid.charAt(4) - 'A') + 5.0 / 60 / 2;
-    return longitude;
+    return CoordinateCodec.maidenheadLongitude(grid, 0);
   }
 
 }
@@ -89,6 +89,7 @@ public enum Key implements IConfigurationKey {
   PIPELINE_STDIN("pipeline.stdin"), // list of input processors
   PIPELINE_STDOUT("pipeline.stdout"), // list of output processors
   PIPELINE_MAIN("pipeline.main"), // list of main processors
+  PIPELINE_MESSAGE_MANAGER("pipeline.messageManager"), // default, concurrent (thread-safe) or columnar (compact)
 
   ALL_FEEDBACK_TEXT_EDITOR("all_feedback.textEditor"), // class name of text editor for AllFeedback
   BODY_TEXT_EDITOR("body.textEditor"), // class name of text editor for outbound message body
@@ -117,6 +118,16 @@ public enum Key implements IConfigurationKey {
   CHART_CONFIG("chartConfig"), // as a JSON blob
 
   READ_FILTER_ENABLED("read.filterEnabled"), // to filter in/out messages by sender/from in BaseReadProcessor
+  READ_METHOD("read.method"), // "stream", "mapped" or "dom", default "stream"
+  READ_PARALLELISM("read.parallelism"), // max # of input files read concurrently, default 1 (sequential)
+  READ_CACHE_ENABLED("read.cacheEnabled"), // to only parse new or changed input files on re-runs
+  READ_KEEP_LINES("read.keepLines"), // to keep raw lines of each message; forces "dom" read method
+  READ_DEDUPLICATION_ENABLED("read.deduplicationEnabled"), // to drop byte-identical duplicates before classifying
+
+  CLASSIFIER_PARALLELISM("classifier.parallelism"), // # of threads classifying and parsing, default 1 (sequential)
+  CLASSIFIER_CACHE_ENABLED("classifier.cacheEnabled"), // to only parse new or changed messages on re-runs
+
+  SPILL_MEMORY_BUDGET_MB("spill.memoryBudgetMB"), // page message payloads to disk beyond this heap estimate, 0 to disable
 
   ;
 
@@ -0,0 +1,121 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * project-wide pool of call signs and Winlink addresses, so that the thousands
+ * of references to each (senders, recipients, acknowledgements, users, counter
+ * keys) share one String instance, and equals() usually succeeds on identity
+ *
+ * nothing is canonicalized: a pooled string is always equal to the one given,
+ * so callers compare exactly what they would have without the pool. Callers
+ * that want upper-cased calls upper-case them first
+ *
+ * the pool only grows, so clear() it between runs in the same JVM
+ *
+ * @author bobt
+ *
+ */
+public final class CallSignPool {
+  // value seen -> shared instance
+  private static final Map<String, String> callMap = new ConcurrentHashMap<>();
+  private static final Map<String, String> addressListMap = new ConcurrentHashMap<>();
+
+  private static final LongAdder lookupCount = new LongAdder();
+  private static final LongAdder sharedCount = new LongAdder();
+  private static final LongAdder sharedBytes = new LongAdder();
+
+  private CallSignPool() {
+  }
+
+  /**
+   * @param call
+   *          call sign or single address, kept as is
+   * @return the shared instance, or null if call is null
+   */
+  public static String intern(String call) {
+    if (call == null) {
+      return null;
+    }
+
+    var existing = callMap.putIfAbsent(call, call);
+    var pooled = (existing == null) ? call : existing;
+    count(call, pooled);
+    return pooled;
+  }
+
+  /**
+   * @param addressList
+   *          comma-delimited addresses, kept as is
+   * @return the shared instance, or null if addressList is null
+   */
+  public static String internAddresses(String addressList) {
+    if (addressList == null) {
+      return null;
+    }
+
+    var existing = addressListMap.putIfAbsent(addressList, addressList);
+    var pooled = (existing == null) ? addressList : existing;
+    count(addressList, pooled);
+    return pooled;
+  }
+
+  private static void count(String s, String pooled) {
+    lookupCount.increment();
+    if (s != pooled) {
+      // the duplicate can be collected: String object, plus byte[] header and bytes (latin-1)
+      sharedCount.increment();
+      sharedBytes.add(24 + ((16 + s.length() + 7) & ~7));
+    }
+  }
+
+  /**
+   * forget everything pooled and counted, so a re-run in the same JVM starts
+   * empty
+   */
+  public static void clear() {
+    callMap.clear();
+    addressListMap.clear();
+    lookupCount.reset();
+    sharedCount.reset();
+    sharedBytes.reset();
+  }
+
+  /**
+   * @return # of distinct entries, lookups and duplicate instances replaced
+   */
+  public static String getReport() {
+    return "call sign pool: " + callMap.size() + " calls, " + addressListMap.size() + " address lists, "
+        + lookupCount.sum() + " lookups, " + sharedCount.sum() + " duplicates shared, ~" + sharedBytes.sum() / 1024
+        + " KB";
+  }
+}
@@ -0,0 +1,374 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.MessageColumns;
+import com.surftools.wimp.message.PayloadSpillStore;
+
+/**
+ * IMessageManager for very large runs, that holds messages as rows of a
+ * MessageColumns, and indexes them by sender and by type as arrays of row ids,
+ * rather than as lists of objects
+ *
+ * lists returned are immutable views, whose messages are built again on every
+ * read, so neither their identity nor changes to their fields survive, unless
+ * they are put back in a list of the caller's own. Messages put back are added
+ * as new rows, unless the list is such a view;
+ * rows no longer referenced are dropped, by copying the live ones to a new
+ * MessageColumns, once they outnumber the live ones
+ *
+ * @author bobt
+ *
+ */
+public class ColumnarMessageManager implements IMessageManager {
+  private static final int COMPACT_MIN_ROWS = 10_000;
+
+  private final Map<String, Object> contextMap = new HashMap<>();
+
+  private MessageColumns columns = new MessageColumns();
+  private int[] originalRows = new int[0];
+
+  // source of truth; the row arrays are never changed once stored
+  private final Map<String, Map<MessageType, int[]>> senderMap = new HashMap<>();
+
+  // sorted, as for MessageManager, once dirtyTypes have been brought up to date
+  private final Map<MessageType, int[]> typeMap = new HashMap<>();
+  private final Set<MessageType> dirtyTypes = new HashSet<>();
+
+  private int lastLiveRowCount;
+
+  private PayloadSpillStore spillStore;
+
+  @Override
+  public void clear() {
+    contextMap.clear();
+    columns = new MessageColumns();
+    originalRows = new int[0];
+    senderMap.clear();
+    typeMap.clear();
+    dirtyTypes.clear();
+    lastLiveRowCount = 0;
+  }
+
+  @Override
+  public Object getContextObject(String key) {
+    return contextMap.get(key);
+  }
+
+  @Override
+  public void putContextObject(String key, Object value) {
+    contextMap.put(key, value);
+  }
+
+  @Override
+  public void setPayloadSpillStore(PayloadSpillStore store) {
+    spillStore = store;
+  }
+
+  private void spill(List<ExportedMessage> messages) {
+    if (spillStore != null) {
+      for (var message : messages) {
+        spillStore.add(message);
+      }
+    }
+  }
+
+  @Override
+  public void load(List<ExportedMessage> messages) {
+    spill(messages);
+
+    var rows = toRows(messages);
+    if (originalRows.length == 0) {
+      originalRows = rows;
+    }
+
+    var tmpSenderMap = new LinkedHashMap<String, Map<MessageType, List<Integer>>>();
+    for (var row : rows) {
+      tmpSenderMap.computeIfAbsent(columns.getFrom(row), k -> new HashMap<>())
+          .computeIfAbsent(columns.getMessageType(row), k -> new ArrayList<>())
+          .add(row);
+    }
+    replaceAll(tmpSenderMap);
+  }
+
+  @Override
+  public void load(Map<MessageType, List<ExportedMessage>> messages) {
+    var tmpSenderMap = new LinkedHashMap<String, Map<MessageType, List<Integer>>>();
+    for (var entry : messages.entrySet()) {
+      var typeList = entry.getValue();
+      spill(typeList);
+      for (var row : toRows(typeList)) {
+        tmpSenderMap.computeIfAbsent(columns.getFrom(row), k -> new HashMap<>())
+            .computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+            .add(row);
+      }
+    }
+    replaceAll(tmpSenderMap);
+  }
+
+  private void replaceAll(Map<String, Map<MessageType, List<Integer>>> tmpSenderMap) {
+    senderMap.clear();
+    typeMap.clear();
+    for (var senderEntry : tmpSenderMap.entrySet()) {
+      var map = new HashMap<MessageType, int[]>();
+      for (var entry : senderEntry.getValue().entrySet()) {
+        map.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        dirtyTypes.add(entry.getKey());
+      }
+      senderMap.put(senderEntry.getKey(), map);
+    }
+    updateTypeMap();
+  }
+
+  @Override
+  public List<ExportedMessage> getOriginalMessages() {
+    return new RowList(columns, originalRows);
+  }
+
+  @Override
+  public Map<MessageType, List<ExportedMessage>> getMessagesForSender(String sender) {
+    var map = senderMap.get(sender);
+    return (map == null) ? null : toListMap(map);
+  }
+
+  @Override
+  public List<ExportedMessage> getAllMessagesForSender(String sender) {
+    var list = new ArrayList<ExportedMessage>();
+    var map = senderMap.get(sender);
+    if (map != null) {
+      for (var rows : map.values()) {
+        list.addAll(new RowList(columns, rows));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void putMessagesForSender(String sender, Map<MessageType, List<ExportedMessage>> messages) {
+    var map = new HashMap<MessageType, int[]>();
+    for (var entry : messages.entrySet()) {
+      map.put(entry.getKey(), toRows(entry.getValue()));
+    }
+    markDirty(senderMap.put(sender, map));
+    markDirty(map);
+  }
+
+  @Override
+  public void removeMessagesForSender(String sender) {
+    markDirty(senderMap.remove(sender));
+  }
+
+  @Override
+  public void removeMesseagesForSenders(ArrayList<String> removeList) {
+    for (var sender : removeList) {
+      removeMessagesForSender(sender);
+    }
+  }
+
+  @Override
+  public List<ExportedMessage> getMessagesForType(MessageType type) {
+    updateTypeMap();
+    var rows = typeMap.get(type);
+    return (rows == null) ? null : new RowList(columns, rows);
+  }
+
+  @Override
+  public Iterator<MessageType> getMessageTypeIteror() {
+    updateTypeMap();
+    return typeMap.keySet().iterator();
+  }
+
+  @Override
+  public Iterator<String> getSenderIterator() {
+    return senderMap.keySet().iterator();
+  }
+
+  /**
+   * cheap, since views are only made over row arrays that are never changed,
+   * of a MessageColumns that is only ever appended to
+   */
+  @Override
+  public MessageSnapshot snapshot() {
+    updateTypeMap();
+    var snapshotSenderMap = new HashMap<String, Map<MessageType, List<ExportedMessage>>>();
+    for (var entry : senderMap.entrySet()) {
+      snapshotSenderMap.put(entry.getKey(), Collections.unmodifiableMap(toListMap(entry.getValue())));
+    }
+    return new MessageSnapshot(Collections.unmodifiableMap(snapshotSenderMap),
+        Collections.unmodifiableMap(toListMap(typeMap)));
+  }
+
+  /**
+   * @return the # of rows and of distinct strings held
+   */
+  public String getReport() {
+    return "columnar message store: " + columns.size() + " rows, " + columns.getDictionarySize() + " strings";
+  }
+
+  private void markDirty(Map<MessageType, int[]> map) {
+    if (map != null) {
+      dirtyTypes.addAll(map.keySet());
+    }
+  }
+
+  /**
+   * rebuild the sorted rows of each type changed since; as for MessageManager,
+   * the type is present if any sender has it, even with no messages
+   */
+  private void updateTypeMap() {
+    if (dirtyTypes.isEmpty()) {
+      return;
+    }
+
+    var typeRowsMap = new HashMap<MessageType, List<int[]>>();
+    for (var map : senderMap.values()) {
+      for (var entry : map.entrySet()) {
+        if (dirtyTypes.contains(entry.getKey())) {
+          typeRowsMap.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue());
+        }
+      }
+    }
+
+    for (var messageType : dirtyTypes) {
+      var rowsList = typeRowsMap.get(messageType);
+      if (rowsList == null) {
+        typeMap.remove(messageType);
+        continue;
+      }
+
+      var boxedRows = rowsList.stream().flatMapToInt(Arrays::stream).boxed().toArray(Integer[]::new);
+      Arrays.sort(boxedRows, columns::compare); // stable, like Collections.sort()
+      typeMap.put(messageType, Arrays.stream(boxedRows).mapToInt(Integer::intValue).toArray());
+    }
+    dirtyTypes.clear();
+
+    compactIfNeeded();
+  }
+
+  /**
+   * copy the live rows to new columns, once the dead ones outnumber them
+   */
+  private void compactIfNeeded() {
+    if (columns.size() < COMPACT_MIN_ROWS || columns.size() <= 2 * lastLiveRowCount) {
+      return;
+    }
+
+    var liveRows = new BitSet(columns.size());
+    Arrays.stream(originalRows).forEach(liveRows::set);
+    for (var map : senderMap.values()) {
+      for (var rows : map.values()) {
+        Arrays.stream(rows).forEach(liveRows::set);
+      }
+    }
+    lastLiveRowCount = liveRows.cardinality();
+    if (columns.size() <= 2 * lastLiveRowCount) {
+      return;
+    }
+
+    // live rows are copied in order, so sorted row arrays stay sorted
+    var newColumns = new MessageColumns();
+    var rowMap = new int[columns.size()];
+    for (var row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+      rowMap[row] = newColumns.add(columns.get(row));
+    }
+
+    originalRows = remap(originalRows, rowMap);
+    for (var map : senderMap.values()) {
+      map.replaceAll((k, rows) -> remap(rows, rowMap));
+    }
+    typeMap.replaceAll((k, rows) -> remap(rows, rowMap));
+    columns = newColumns;
+  }
+
+  private static int[] remap(int[] rows, int[] rowMap) {
+    var newRows = new int[rows.length];
+    for (var i = 0; i < rows.length; ++i) {
+      newRows[i] = rowMap[rows[i]];
+    }
+    return newRows;
+  }
+
+  private int[] toRows(List<ExportedMessage> messages) {
+    if (messages instanceof RowList rowList && rowList.columns == columns) {
+      return rowList.rows;
+    }
+
+    var rows = new int[messages.size()];
+    var i = 0;
+    for (var message : messages) {
+      rows[i++] = columns.add(message);
+    }
+    return rows;
+  }
+
+  private Map<MessageType, List<ExportedMessage>> toListMap(Map<MessageType, int[]> map) {
+    var listMap = new HashMap<MessageType, List<ExportedMessage>>();
+    for (var entry : map.entrySet()) {
+      listMap.put(entry.getKey(), new RowList(columns, entry.getValue()));
+    }
+    return listMap;
+  }
+
+  /**
+   * immutable view of rows, building each message when read
+   */
+  private static class RowList extends AbstractList<ExportedMessage> implements RandomAccess {
+    private final MessageColumns columns;
+    private final int[] rows;
+
+    private RowList(MessageColumns columns, int[] rows) {
+      this.columns = columns;
+      this.rows = rows;
+    }
+
+    @Override
+    public ExportedMessage get(int index) {
+      return columns.get(rows[index]);
+    }
+
+    @Override
+    public int size() {
+      return rows.length;
+    }
+  }
+}
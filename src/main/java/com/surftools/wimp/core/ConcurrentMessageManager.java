@@ -0,0 +1,268 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.PayloadSpillStore;
+
+/**
+ * thread-safe IMessageManager, so that processors or per-sender work can run
+ * concurrently
+ *
+ * each sender's messages are stored as an immutable map of immutable lists in a
+ * ConcurrentHashMap, so puts and removes for different senders never contend.
+ * Readers work from a MessageSnapshot, which is only rebuilt, incrementally and
+ * under a lock, for the senders changed since the last one; otherwise taking a
+ * snapshot is a volatile read
+ *
+ * getMessagesForSender() returns a mutable copy of the map (the lists are not),
+ * so, as with MessageManager, callers change it and then putMessagesForSender()
+ *
+ * @author bobt
+ *
+ */
+public class ConcurrentMessageManager implements IMessageManager {
+
+  private final Map<String, Object> contextMap = new ConcurrentHashMap<>();
+
+  private volatile List<ExportedMessage> originalMessageList = List.of();
+
+  // source of truth
+  private final Map<String, Map<MessageType, List<ExportedMessage>>> senderMap = new ConcurrentHashMap<>();
+
+  // senders put or removed since the last snapshot was built
+  private final Set<String> pendingSenders = ConcurrentHashMap.newKeySet();
+
+  // last snapshot built, and the # of senders holding each of its types; guarded by this
+  private volatile MessageSnapshot lastSnapshot = MessageSnapshot.EMPTY;
+  private final Map<MessageType, Integer> typeSenderCountMap = new HashMap<>();
+
+  private volatile PayloadSpillStore spillStore;
+
+  @Override
+  public synchronized void clear() {
+    contextMap.clear();
+    originalMessageList = List.of();
+    senderMap.clear();
+    pendingSenders.clear();
+    typeSenderCountMap.clear();
+    lastSnapshot = MessageSnapshot.EMPTY;
+  }
+
+  @Override
+  public Object getContextObject(String key) {
+    return contextMap.get(key);
+  }
+
+  @Override
+  public void putContextObject(String key, Object value) {
+    if (value == null) {
+      contextMap.remove(key);
+    } else {
+      contextMap.put(key, value);
+    }
+  }
+
+  @Override
+  public void setPayloadSpillStore(PayloadSpillStore store) {
+    spillStore = store;
+  }
+
+  private void spill(List<ExportedMessage> messages) {
+    var store = spillStore;
+    if (store != null) {
+      for (var message : messages) {
+        store.add(message);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void load(List<ExportedMessage> messages) {
+    spill(messages);
+
+    if (originalMessageList.size() == 0) {
+      originalMessageList = List.copyOf(messages);
+    }
+
+    var tmpSenderMap = new HashMap<String, Map<MessageType, List<ExportedMessage>>>();
+    for (var message : messages) {
+      tmpSenderMap.computeIfAbsent(message.from, k -> new HashMap<>())
+          .computeIfAbsent(message.getMessageType(), k -> new ArrayList<>())
+          .add(message);
+    }
+    replaceAll(tmpSenderMap);
+  }
+
+  @Override
+  public synchronized void load(Map<MessageType, List<ExportedMessage>> messages) {
+    var tmpSenderMap = new HashMap<String, Map<MessageType, List<ExportedMessage>>>();
+    for (var entry : messages.entrySet()) {
+      var typeList = entry.getValue();
+      spill(typeList);
+      for (var message : typeList) {
+        tmpSenderMap.computeIfAbsent(message.from, k -> new HashMap<>())
+            .computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+            .add(message);
+      }
+    }
+    replaceAll(tmpSenderMap);
+  }
+
+  private void replaceAll(Map<String, Map<MessageType, List<ExportedMessage>>> tmpSenderMap) {
+    senderMap.clear();
+    for (var entry : tmpSenderMap.entrySet()) {
+      senderMap.put(entry.getKey(), freeze(entry.getValue()));
+    }
+    pendingSenders.clear();
+    typeSenderCountMap.clear();
+    lastSnapshot = MessageSnapshot.EMPTY;
+    pendingSenders.addAll(senderMap.keySet());
+    snapshot();
+  }
+
+  @Override
+  public List<ExportedMessage> getOriginalMessages() {
+    return originalMessageList;
+  }
+
+  @Override
+  public Map<MessageType, List<ExportedMessage>> getMessagesForSender(String sender) {
+    var map = senderMap.get(sender);
+    return (map == null) ? null : new HashMap<>(map);
+  }
+
+  @Override
+  public List<ExportedMessage> getAllMessagesForSender(String sender) {
+    var list = new ArrayList<ExportedMessage>();
+    var map = senderMap.get(sender);
+    if (map != null) {
+      for (var sublist : map.values()) {
+        list.addAll(sublist);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * the sender is marked pending only after the put, so that a snapshot being
+   * built concurrently either sees the new messages or leaves the sender pending
+   */
+  @Override
+  public void putMessagesForSender(String sender, Map<MessageType, List<ExportedMessage>> messages) {
+    senderMap.put(sender, freeze(messages));
+    pendingSenders.add(sender);
+  }
+
+  @Override
+  public void removeMessagesForSender(String sender) {
+    senderMap.remove(sender);
+    pendingSenders.add(sender);
+  }
+
+  @Override
+  public void removeMesseagesForSenders(ArrayList<String> removeList) {
+    for (var sender : removeList) {
+      removeMessagesForSender(sender);
+    }
+  }
+
+  @Override
+  public List<ExportedMessage> getMessagesForType(MessageType type) {
+    return snapshot().getMessagesForType(type);
+  }
+
+  @Override
+  public Iterator<MessageType> getMessageTypeIteror() {
+    return snapshot().getMessageTypes().iterator();
+  }
+
+  /**
+   * weakly consistent: safe to use while senders are put or removed
+   */
+  @Override
+  public Iterator<String> getSenderIterator() {
+    return senderMap.keySet().iterator();
+  }
+
+  @Override
+  public MessageSnapshot snapshot() {
+    if (pendingSenders.isEmpty()) {
+      return lastSnapshot;
+    }
+    synchronized (this) {
+      if (!pendingSenders.isEmpty()) {
+        lastSnapshot = makeSnapshot(lastSnapshot);
+      }
+      return lastSnapshot;
+    }
+  }
+
+  /**
+   * apply the pending senders to the previous snapshot, whose sender map says
+   * exactly what its type lists hold for each sender; same merge as
+   * MessageManager, see MessageMapMerger
+   */
+  private MessageSnapshot makeSnapshot(MessageSnapshot previous) {
+    var newSenderMap = new HashMap<String, Map<MessageType, List<ExportedMessage>>>(previous.senderMap());
+    var newTypeMap = new HashMap<MessageType, List<ExportedMessage>>(previous.typeMap());
+
+    // drained before reading senderMap (see putMessagesForSender); the iterator
+    // is weakly consistent, so it can return a sender re-added meanwhile twice
+    var senders = new LinkedHashSet<String>();
+    var it = pendingSenders.iterator();
+    while (it.hasNext()) {
+      senders.add(it.next());
+      it.remove();
+    }
+
+    // our sender maps are immutable, so they can be indexed as is
+    MessageMapMerger.merge(senders, senderMap, newSenderMap, typeSenderCountMap, newTypeMap, //
+        map -> map, Collections::unmodifiableList);
+
+    return new MessageSnapshot(Collections.unmodifiableMap(newSenderMap), Collections.unmodifiableMap(newTypeMap));
+  }
+
+  private static Map<MessageType, List<ExportedMessage>> freeze(Map<MessageType, List<ExportedMessage>> messages) {
+    var map = new HashMap<MessageType, List<ExportedMessage>>();
+    for (var entry : messages.entrySet()) {
+      map.put(entry.getKey(), List.copyOf(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(map);
+  }
+}
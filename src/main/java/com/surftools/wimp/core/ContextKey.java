@@ -0,0 +1,55 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+/**
+ * a typed key for inter-process data held by the IMessageManager
+ *
+ * the type is checked (as far as erasure allows) when the value is read, so a
+ * mismatch fails where the value is used, not somewhere downstream
+ *
+ * @author bobt
+ *
+ */
+public record ContextKey<T>(String name, Class<?> type) {
+
+  @SuppressWarnings("unchecked")
+  public T cast(Object value) {
+    try {
+      return (T) type.cast(value);
+    } catch (ClassCastException e) {
+      throw new RuntimeException("context object: " + name + " is " + value.getClass().getName() + ", not "
+          + type.getName());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
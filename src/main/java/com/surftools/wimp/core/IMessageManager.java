@@ -33,11 +33,27 @@ import java.util.List;
 import java.util.Map;
 
 import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.ExportedMessage.ExportedKey;
+import com.surftools.wimp.message.PayloadSpillStore;
 
+/**
+ * holds the messages of a run, by sender and by type, for processors to read,
+ * replace and remove
+ *
+ * an implementation may build the messages it returns on each read (see
+ * ColumnarMessageManager), so callers shouldn't compare them by identity, or
+ * expect changes made to a returned message to be seen by a later read, unless
+ * they put it back, in a list of their own, with putMessagesForSender()
+ *
+ * @author bobt
+ *
+ */
 public interface IMessageManager {
 
-  public final String LAST_WORD = "LAST_WORD";
-  public final String FIRST_TIME_CALLS = "FIRST_TIME_CALLS";
+  public final ContextKey<String> LAST_WORD = new ContextKey<>("LAST_WORD", String.class);
+  public final ContextKey<List<String>> FIRST_TIME_CALLS = new ContextKey<>("FIRST_TIME_CALLS", List.class);
+  public final ContextKey<Map<ExportedKey, List<ExportedMessage>>> READ_DUPLICATES = new ContextKey<>(
+      "READ_DUPLICATES", Map.class);
 
   /**
    * retrieve arbitrary inter-process data
@@ -55,6 +71,34 @@ public interface IMessageManager {
    */
   public void putContextObject(String key, Object value);
 
+  /**
+   * retrieve typed inter-process data
+   *
+   * @param key
+   * @return
+   */
+  public default <T> T getContext(ContextKey<T> key) {
+    return key.cast(getContextObject(key.name()));
+  }
+
+  /**
+   * store typed inter-process data
+   *
+   * @param key
+   * @param value
+   */
+  public default <T> void putContext(ContextKey<T> key, T value) {
+    putContextObject(key.name(), value);
+  }
+
+  /**
+   * page the payloads of all subsequently loaded messages through the given
+   * store, to bound heap usage
+   *
+   * @param store
+   */
+  public void setPayloadSpillStore(PayloadSpillStore store);
+
   /**
    * load all messages after reading from exported message files
    *
@@ -137,6 +181,14 @@ public interface IMessageManager {
    */
   public Iterator<String> getSenderIterator();
 
+  /**
+   * get an immutable view of all messages, by sender and by type, that is not
+   * affected by subsequent changes
+   *
+   * @return
+   */
+  public MessageSnapshot snapshot();
+
   /**
    * clear all messages
    */
@@ -27,6 +27,7 @@ SOFTWARE.
 
 package com.surftools.wimp.core;
 
+import com.surftools.utils.CodeVersion;
 import com.surftools.wimp.message.ExportedMessage;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
@@ -48,4 +49,18 @@ public interface IParser {
 
   public void initialize(IConfigurationManager cm, IMessageManager mm);
 
+  /**
+   * changes whenever what parse() returns for the same input might change, so
+   * that previously cached results are discarded
+   *
+   * by default, the version of the code the parser was loaded from, so any
+   * change to a parser, or to anything else built with it, invalidates; there's
+   * nothing to bump by hand
+   *
+   * @return
+   */
+  public default int getVersion() {
+    return CodeVersion.of(getClass());
+  }
+
 }
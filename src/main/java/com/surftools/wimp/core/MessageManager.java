@@ -28,13 +28,17 @@ SOFTWARE.
 package com.surftools.wimp.core;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.PayloadSpillStore;
 
 public class MessageManager implements IMessageManager {
 
@@ -46,9 +50,18 @@ public class MessageManager implements IMessageManager {
   // source of truth
   private final Map<String, Map<MessageType, List<ExportedMessage>>> senderMap = new HashMap<>();
 
-  // convenience object, once senderMap is not dirty
+  // convenience object, once pendingSenders have been applied
   private final Map<MessageType, List<ExportedMessage>> messageMap = new HashMap<>();
-  private boolean isSenderMapDirty = false;
+
+  // what messageMap holds for each sender, because callers change the maps from
+  // getMessagesForSender() in place, and the # of senders holding each type
+  private final Map<String, Map<MessageType, List<ExportedMessage>>> indexedSenderMap = new HashMap<>();
+  private final Map<MessageType, Integer> typeSenderCountMap = new HashMap<>();
+
+  // senders put or removed since messageMap was last brought up to date
+  private final Set<String> pendingSenders = new LinkedHashSet<>();
+
+  private PayloadSpillStore spillStore;
 
   public MessageManager() {
     clear();
@@ -60,7 +73,9 @@ public class MessageManager implements IMessageManager {
     messageList.clear();
     senderMap.clear();
     messageMap.clear();
-    isSenderMapDirty = false;
+    indexedSenderMap.clear();
+    typeSenderCountMap.clear();
+    pendingSenders.clear();
   }
 
   @Override
@@ -73,8 +88,23 @@ public class MessageManager implements IMessageManager {
     contextMap.put(key, value);
   }
 
+  @Override
+  public void setPayloadSpillStore(PayloadSpillStore store) {
+    spillStore = store;
+  }
+
+  private void spill(List<ExportedMessage> messages) {
+    if (spillStore != null) {
+      for (var message : messages) {
+        spillStore.add(message);
+      }
+    }
+  }
+
   @Override
   public void load(List<ExportedMessage> messages) {
+    spill(messages);
+
     messageList.clear();
     messageList.addAll(messages);
 
@@ -93,7 +123,6 @@ public class MessageManager implements IMessageManager {
       map.put(type, list);
       senderMap.put(from, map);
     }
-    isSenderMapDirty = true;
     rebuildMessageMap();
   }
 
@@ -110,14 +139,13 @@ public class MessageManager implements IMessageManager {
   @Override
   public void putMessagesForSender(String sender, Map<MessageType, List<ExportedMessage>> messages) {
     senderMap.put(sender, messages);
-    isSenderMapDirty = true;
-    rebuildMessageMap();
+    pendingSenders.add(sender);
   }
 
   @Override
   public void removeMessagesForSender(String sender) {
     senderMap.remove(sender);
-    isSenderMapDirty = true;
+    pendingSenders.add(sender);
   }
 
   @Override
@@ -125,42 +153,55 @@ public class MessageManager implements IMessageManager {
     for (var sender : removeList) {
       removeMessagesForSender(sender);
     }
-    rebuildMessageMap();
   }
 
   /**
-   * if senderMap is dirty, then we must rebuild the messageMap before using it
+   * rebuild messageMap from scratch, only after loading
    */
   private void rebuildMessageMap() {
     messageMap.clear();
-    for (var containedMap : senderMap.values()) {
-      for (var entry : containedMap.entrySet()) {
-        var entryMessageType = entry.getKey();
-        var entryList = entry.getValue();
-        var messageList = messageMap.getOrDefault(entryMessageType, new ArrayList<ExportedMessage>());
-        messageList.addAll(entryList);
-        Collections.sort(messageList);
-        messageMap.put(entryMessageType, messageList);
-      }
+    indexedSenderMap.clear();
+    typeSenderCountMap.clear();
+    pendingSenders.clear();
+    merge(senderMap.keySet());
+  }
+
+  /**
+   * bring messageMap up to date with the senders put or removed since; see
+   * MessageMapMerger
+   */
+  private void updateMessageMap() {
+    if (pendingSenders.isEmpty()) {
+      return;
     }
-    isSenderMapDirty = false;
+
+    merge(pendingSenders);
+    pendingSenders.clear();
   }
 
-  @Override
-  public List<ExportedMessage> getMessagesForType(MessageType type) {
-    if (isSenderMapDirty) {
-      rebuildMessageMap();
+  private void merge(Collection<String> senders) {
+    MessageMapMerger.merge(senders, senderMap, indexedSenderMap, typeSenderCountMap, messageMap, //
+        MessageManager::copyOf, list -> list);
+  }
+
+  // callers change the maps from getMessagesForSender() in place
+  private static Map<MessageType, List<ExportedMessage>> copyOf(Map<MessageType, List<ExportedMessage>> map) {
+    var copy = new HashMap<MessageType, List<ExportedMessage>>();
+    for (var entry : map.entrySet()) {
+      copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
     }
+    return copy;
+  }
 
+  @Override
+  public List<ExportedMessage> getMessagesForType(MessageType type) {
+    updateMessageMap();
     return messageMap.get(type);
   }
 
   @Override
   public Iterator<MessageType> getMessageTypeIteror() {
-    if (isSenderMapDirty) {
-      rebuildMessageMap();
-    }
-
+    updateMessageMap();
     return messageMap.keySet().iterator();
   }
 
@@ -169,11 +210,35 @@ public class MessageManager implements IMessageManager {
     return senderMap.keySet().iterator();
   }
 
+  /**
+   * a copy, since the lists from getMessagesForSender() can be changed in place;
+   * see ConcurrentMessageManager for snapshots that are cheap to take
+   */
+  @Override
+  public MessageSnapshot snapshot() {
+    updateMessageMap();
+    var senderCopy = new HashMap<String, Map<MessageType, List<ExportedMessage>>>();
+    for (var senderEntry : senderMap.entrySet()) {
+      var containedCopy = new HashMap<MessageType, List<ExportedMessage>>();
+      for (var entry : senderEntry.getValue().entrySet()) {
+        containedCopy.put(entry.getKey(), List.copyOf(entry.getValue()));
+      }
+      senderCopy.put(senderEntry.getKey(), Collections.unmodifiableMap(containedCopy));
+    }
+
+    var typeCopy = new HashMap<MessageType, List<ExportedMessage>>();
+    for (var entry : messageMap.entrySet()) {
+      typeCopy.put(entry.getKey(), List.copyOf(entry.getValue()));
+    }
+    return new MessageSnapshot(Collections.unmodifiableMap(senderCopy), Collections.unmodifiableMap(typeCopy));
+  }
+
   @Override
   public void load(Map<MessageType, List<ExportedMessage>> messages) {
     senderMap.clear();
     for (var messageType : messages.keySet()) {
       var typeList = messages.get(messageType);
+      spill(typeList);
       for (var message : typeList) {
         var sender = message.from;
         var tmpSenderMap = senderMap.getOrDefault(sender, new HashMap<MessageType, List<ExportedMessage>>());
@@ -188,7 +253,6 @@ public class MessageManager implements IMessageManager {
       } // end loop over messages in typeList
     } // end loop over messageTypes
     rebuildMessageMap();
-    isSenderMapDirty = false;
   }
 
   @Override
@@ -0,0 +1,132 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.surftools.wimp.message.ExportedMessage;
+
+/**
+ * the incremental merge shared by MessageManager and ConcurrentMessageManager:
+ * bring a by-type map up to date with a batch of changed senders, by taking out
+ * what was indexed for them and merging in their current (sorted) messages
+ *
+ * only messages from the same sender can compare equal, and a sender's messages
+ * are either all in the batch or not at all, so this gives exactly what a full
+ * rebuild would, in time linear in the # of messages
+ *
+ * @author bobt
+ *
+ */
+final class MessageMapMerger {
+
+  private MessageMapMerger() {
+  }
+
+  /**
+   * @param senders
+   *          put or removed since the last merge
+   * @param senderMap
+   *          source of truth: current messages by sender, then by type
+   * @param indexedSenderMap
+   *          what typeMap holds for each sender; updated
+   * @param typeSenderCountMap
+   *          # of senders holding each type in typeMap; updated
+   * @param typeMap
+   *          sorted messages by type; updated
+   * @param indexer
+   *          what to remember for a sender, given its current messages
+   * @param finisher
+   *          what to store in typeMap, given a newly merged list
+   */
+  static void merge(Collection<String> senders, Map<String, Map<MessageType, List<ExportedMessage>>> senderMap,
+      Map<String, Map<MessageType, List<ExportedMessage>>> indexedSenderMap,
+      Map<MessageType, Integer> typeSenderCountMap, Map<MessageType, List<ExportedMessage>> typeMap,
+      UnaryOperator<Map<MessageType, List<ExportedMessage>>> indexer, UnaryOperator<List<ExportedMessage>> finisher) {
+    var removedMap = new HashMap<MessageType, Set<ExportedMessage>>();
+    var addedMap = new HashMap<MessageType, List<ExportedMessage>>();
+    for (var sender : senders) {
+      var indexedMap = indexedSenderMap.remove(sender);
+      if (indexedMap != null) {
+        for (var entry : indexedMap.entrySet()) {
+          var messageType = entry.getKey();
+          removedMap.computeIfAbsent(messageType, k -> Collections.newSetFromMap(new IdentityHashMap<>()))
+              .addAll(entry.getValue());
+          typeSenderCountMap.merge(messageType, -1, Integer::sum);
+        }
+      }
+
+      var containedMap = senderMap.get(sender);
+      if (containedMap != null) {
+        for (var entry : containedMap.entrySet()) {
+          addedMap.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+          typeSenderCountMap.merge(entry.getKey(), 1, Integer::sum);
+        }
+        indexedSenderMap.put(sender, indexer.apply(containedMap));
+      }
+    }
+
+    var messageTypes = new LinkedHashSet<MessageType>(removedMap.keySet());
+    messageTypes.addAll(addedMap.keySet());
+    for (var messageType : messageTypes) {
+      if (typeSenderCountMap.getOrDefault(messageType, 0) <= 0) {
+        typeSenderCountMap.remove(messageType);
+        typeMap.remove(messageType);
+        continue;
+      }
+
+      var removed = removedMap.getOrDefault(messageType, Set.of());
+      var added = addedMap.getOrDefault(messageType, new ArrayList<>());
+      Collections.sort(added);
+
+      var current = typeMap.getOrDefault(messageType, List.of());
+      var merged = new ArrayList<ExportedMessage>(current.size() + added.size());
+      var iAdded = 0;
+      for (var message : current) {
+        if (removed.contains(message)) {
+          continue;
+        }
+        while (iAdded < added.size() && added.get(iAdded).compareTo(message) < 0) {
+          merged.add(added.get(iAdded++));
+        }
+        merged.add(message);
+      }
+      merged.addAll(added.subList(iAdded, added.size()));
+      typeMap.put(messageType, finisher.apply(merged));
+    }
+  }
+}
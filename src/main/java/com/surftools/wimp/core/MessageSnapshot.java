@@ -0,0 +1,68 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.surftools.wimp.message.ExportedMessage;
+
+/**
+ * an immutable, point-in-time view of the messages held by an IMessageManager,
+ * for read-only consumers (writers, maps, charts) that want to iterate without
+ * seeing, or blocking, later changes
+ *
+ * @author bobt
+ *
+ * @param senderMap
+ *          messages by sender, then by type
+ * @param typeMap
+ *          messages by type, each list sorted
+ */
+public record MessageSnapshot(Map<String, Map<MessageType, List<ExportedMessage>>> senderMap,
+    Map<MessageType, List<ExportedMessage>> typeMap) {
+
+  public static final MessageSnapshot EMPTY = new MessageSnapshot(Map.of(), Map.of());
+
+  public Set<MessageType> getMessageTypes() {
+    return typeMap.keySet();
+  }
+
+  public List<ExportedMessage> getMessagesForType(MessageType type) {
+    return typeMap.get(type);
+  }
+
+  public Set<String> getSenders() {
+    return senderMap.keySet();
+  }
+
+  public Map<MessageType, List<ExportedMessage>> getMessagesForSender(String sender) {
+    return senderMap.get(sender);
+  }
+}
@@ -27,15 +27,32 @@ SOFTWARE.
 
 package com.surftools.wimp.message;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.core.CallSignPool;
 import com.surftools.wimp.core.IMessage;
 import com.surftools.wimp.core.IWritableTable;
 import com.surftools.wimp.core.MessageType;
+import com.surftools.wimp.parser.AbstractBaseParser;
+import com.surftools.wimp.parser.FormBinder;
 
 /**
  * base class of all parsed Winlink Messages
@@ -47,6 +64,8 @@ import com.surftools.wimp.core.MessageType;
  *
  */
 public class ExportedMessage implements IMessage, IWritableTable {
+  private static final Logger logger = LoggerFactory.getLogger(ExportedMessage.class);
+
   public record ExportedKey(String from, String messageId) {
   };
 
@@ -64,22 +83,24 @@ public class ExportedMessage implements IMessage, IWritableTable {
   public LatLongPair msgLocation; // location from message meta-data; may or may not be present
   public final String msgLocationSource;
 
-  public final String mime;
-  public final String plainContent;
-  public final Map<String, byte[]> attachments;
+  // mime (the raw message, from which everything else is decoded), plainContent,
+  // attachments, lines and the mime index, shared with all copies of this message
+  private final Payload payload;
 
   public LocalDateTime sortDateTime; // date/time used for sorting
   public LatLongPair mapLocation; // location used for mapping
 
   public final boolean isP2p;
   public final String fileName;
-  public final List<String> lines;
 
   // these variables aren't known at contructor time, only after a message is
   // parsed
   public String formVersion;
   public String expressVersion;
 
+  // constructor arguments of a form message, only kept for MessageColumns
+  private FormBinder.Bound bound;
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -110,33 +131,353 @@ public class ExportedMessage implements IMessage, IWritableTable {
     return true;
   }
 
+  /**
+   * the MIME content of a message is only decoded (into plainContent and
+   * attachments) or indexed when first needed
+   *
+   * lines are only kept if explicitly requested
+   *
+   * once attached to a PayloadSpillStore, everything but the messageId may be
+   * paged out to disk and is paged back in on the next access
+   */
+  static class Payload {
+    private final String messageId;
+    private String mime;
+    private List<String> lines;
+
+    private boolean isDecoded;
+    private String plainContent;
+    private Map<String, byte[]> attachments;
+    private MimeHeaderIndex mimeIndex;
+
+    private volatile PayloadSpillStore spillStore;
+    private boolean isResident = true;
+    private long spillOffset = -1;
+    private int spillLength;
+    private boolean isAttachmentsChanged; // renamed since decoded or last written
+
+    private Payload(String messageId, String mime, List<String> lines) {
+      this.messageId = messageId;
+      this.mime = mime;
+      this.lines = lines;
+    }
+
+    private Payload(String messageId, String mime, MimeHeaderIndex mimeIndex, List<String> lines) {
+      this(messageId, mime, lines);
+      this.mimeIndex = mimeIndex;
+    }
+
+    private Payload(String mime, String plainContent, Map<String, byte[]> attachments, List<String> lines) {
+      this(null, mime, lines);
+      this.plainContent = plainContent;
+      this.attachments = attachments;
+      this.isDecoded = true;
+    }
+
+    private String getMime() {
+      String result;
+      synchronized (this) {
+        ensureResident();
+        result = mime;
+      }
+      touch();
+      return result;
+    }
+
+    private List<String> getLines() {
+      List<String> result;
+      synchronized (this) {
+        ensureResident();
+        result = lines;
+      }
+      touch();
+      return result;
+    }
+
+    private String getPlainContent() {
+      String result;
+      synchronized (this) {
+        ensureResident();
+        decode();
+        result = plainContent;
+      }
+      touch();
+      return result;
+    }
+
+    private Map<String, byte[]> getAttachments() {
+      Map<String, byte[]> result;
+      synchronized (this) {
+        ensureResident();
+        decode();
+        result = attachments == null ? null : Collections.unmodifiableMap(attachments);
+      }
+      touch();
+      return result;
+    }
+
+    private void renameAttachment(String fromName, String toName) {
+      synchronized (this) {
+        ensureResident();
+        decode();
+        if (attachments != null && attachments.containsKey(fromName)) {
+          var bytes = attachments.remove(fromName);
+          attachments.put(toName, bytes);
+          isAttachmentsChanged = true;
+        }
+      }
+      touch();
+    }
+
+    private MimeHeaderIndex getMimeIndex() {
+      MimeHeaderIndex result;
+      synchronized (this) {
+        ensureResident();
+        if (mimeIndex == null) {
+          mimeIndex = new MimeHeaderIndex(mime);
+        }
+        result = mimeIndex;
+      }
+      touch();
+      return result;
+    }
+
+    private void decode() {
+      if (isDecoded) {
+        return;
+      }
+
+      // plainContent and attachments stay null if we can't parse
+      try {
+        var decodedMime = AbstractBaseParser.decodeMime(messageId, mime);
+        if (decodedMime != null) {
+          plainContent = decodedMime.plainContent();
+          attachments = decodedMime.attachments();
+        }
+      } catch (Exception e) {
+        logger.error("could not decode mime: " + e.getLocalizedMessage() + ", for messageId: " + messageId);
+        plainContent = null;
+        attachments = null;
+      }
+      isDecoded = true;
+    }
+
+    synchronized void attach(PayloadSpillStore store) {
+      if (spillStore == null) {
+        spillStore = store;
+      }
+    }
+
+    private void touch() {
+      var store = spillStore;
+      if (store != null) {
+        store.touch(this);
+      }
+    }
+
+    /**
+     * @return estimated heap bytes held, or -1 if not resident
+     */
+    synchronized long estimateResidentSize() {
+      if (!isResident) {
+        return -1;
+      }
+
+      var size = 64L + length(mime) + length(plainContent);
+      if (lines != null) {
+        for (var line : lines) {
+          size += 16 + length(line);
+        }
+      }
+      if (attachments != null) {
+        for (var entry : attachments.entrySet()) {
+          size += 32 + length(entry.getKey()) + (entry.getValue() == null ? 0 : entry.getValue().length);
+        }
+      }
+      return size;
+    }
+
+    private static long length(String s) {
+      return s == null ? 0 : s.length();
+    }
+
+    /**
+     * write (if not already written, or attachments renamed) and drop our content;
+     * a rename can't simply be re-decoded
+     */
+    synchronized void spill(PayloadSpillStore store) {
+      if (!isResident) {
+        return;
+      }
+
+      if (spillOffset < 0 || isAttachmentsChanged) {
+        try {
+          var bytes = toBytes();
+          spillOffset = store.append(bytes);
+          spillLength = bytes.length;
+          isAttachmentsChanged = false;
+        } catch (IOException e) {
+          logger.error("could not spill payload for messageId: " + messageId + ", keeping in memory, "
+              + e.getLocalizedMessage());
+          return;
+        }
+      }
+
+      mime = null;
+      lines = null;
+      plainContent = null;
+      attachments = null;
+      mimeIndex = null;
+      isDecoded = false;
+      isResident = false;
+    }
+
+    private void ensureResident() {
+      if (isResident) {
+        return;
+      }
+
+      try (var in = new DataInputStream(new ByteArrayInputStream(spillStore.read(spillOffset, spillLength)))) {
+        mime = readString(in);
+        var nLines = in.readInt();
+        if (nLines >= 0) {
+          lines = new ArrayList<>(nLines);
+          for (var i = 0; i < nLines; ++i) {
+            lines.add(readString(in));
+          }
+        }
+        isDecoded = in.readBoolean();
+        if (isDecoded) {
+          plainContent = readString(in);
+          var nAttachments = in.readInt();
+          if (nAttachments >= 0) {
+            attachments = new LinkedHashMap<>();
+            for (var i = 0; i < nAttachments; ++i) {
+              attachments.put(readString(in), readBytes(in));
+            }
+          }
+        }
+        isResident = true;
+      } catch (IOException e) {
+        throw new UncheckedIOException("could not reload payload for messageId: " + messageId, e);
+      }
+    }
+
+    private byte[] toBytes() throws IOException {
+      var bytes = new ByteArrayOutputStream(mime == null ? 64 : mime.length() + 64);
+      try (var out = new DataOutputStream(bytes)) {
+        writeString(out, mime);
+        out.writeInt(lines == null ? -1 : lines.size());
+        if (lines != null) {
+          for (var line : lines) {
+            writeString(out, line);
+          }
+        }
+        out.writeBoolean(isDecoded);
+        if (isDecoded) {
+          writeString(out, plainContent);
+          out.writeInt(attachments == null ? -1 : attachments.size());
+          if (attachments != null) {
+            for (var entry : attachments.entrySet()) {
+              writeString(out, entry.getKey());
+              writeBytes(out, entry.getValue());
+            }
+          }
+        }
+      }
+      return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+      writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+      var bytes = readBytes(in);
+      return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+      if (bytes == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+      var length = in.readInt();
+      if (length < 0) {
+        return null;
+      }
+      var bytes = new byte[length];
+      in.readFully(bytes);
+      return bytes;
+    }
+  }
+
+  /**
+   * constructor for messages whose content is already decoded
+   */
   public ExportedMessage(String messageId, String from, String source, String to, String toList, String ccList, //
       String subject, LocalDateTime dateTime, //
       LatLongPair location, String locationSource, //
       String mime, String plainContent, Map<String, byte[]> attachments, boolean isP2p, String fileName,
       List<String> lines) {
+    this(messageId, from, source, to, toList, ccList, subject, dateTime, location, locationSource, isP2p, fileName,
+        new Payload(mime, plainContent, attachments, lines));
+  }
+
+  /**
+   * constructor for messages whose content will be decoded from mime on demand
+   */
+  public ExportedMessage(String messageId, String from, String source, String to, String toList, String ccList, //
+      String subject, LocalDateTime dateTime, //
+      LatLongPair location, String locationSource, //
+      String mime, boolean isP2p, String fileName, List<String> lines) {
+    this(messageId, from, source, to, toList, ccList, subject, dateTime, location, locationSource, isP2p, fileName,
+        new Payload(messageId, mime, lines));
+  }
+
+  /**
+   * constructor for messages whose content will be decoded from mime on demand,
+   * and whose mime has already been indexed, see BaseReadProcessor
+   */
+  public ExportedMessage(String messageId, String from, String source, String to, String toList, String ccList, //
+      String subject, LocalDateTime dateTime, //
+      LatLongPair location, String locationSource, //
+      String mime, MimeHeaderIndex mimeIndex, boolean isP2p, String fileName, List<String> lines) {
+    this(messageId, from, source, to, toList, ccList, subject, dateTime, location, locationSource, isP2p, fileName,
+        new Payload(messageId, mime, mimeIndex, lines));
+  }
+
+  /**
+   * constructor for messages sharing an existing payload, see MessageColumns
+   */
+  ExportedMessage(String messageId, String from, String source, String to, String toList, String ccList, //
+      String subject, LocalDateTime dateTime, //
+      LatLongPair location, String locationSource, //
+      boolean isP2p, String fileName, Payload payload) {
     this.messageId = messageId;
-    this.from = from;
-    this.source = source;
-    this.to = to;
-    this.toList = toList;
-    this.ccList = ccList;
+    this.from = CallSignPool.intern(from);
+    this.source = CallSignPool.intern(source);
+    this.to = CallSignPool.intern(to);
+    this.toList = CallSignPool.internAddresses(toList);
+    this.ccList = CallSignPool.internAddresses(ccList);
     this.subject = subject;
 
     this.msgDateTime = dateTime;
     this.msgLocation = location;
     this.msgLocationSource = locationSource;
 
-    this.mime = mime;
-    this.plainContent = plainContent;
-    this.attachments = attachments;
+    this.payload = payload;
 
     this.sortDateTime = dateTime;
     this.mapLocation = location;
 
     this.isP2p = isP2p;
     this.fileName = fileName;
-    this.lines = lines;
   }
 
   public void setSortDateTime(LocalDateTime dateTime) {
@@ -160,15 +501,12 @@ public class ExportedMessage implements IMessage, IWritableTable {
     this.msgLocation = (exportedMessage.msgLocation != null) ? exportedMessage.msgLocation : LatLongPair.INVALID;
     this.msgLocationSource = exportedMessage.msgLocationSource;
 
-    this.mime = exportedMessage.mime;
-    this.plainContent = exportedMessage.plainContent;
-    this.attachments = exportedMessage.attachments;
+    this.payload = exportedMessage.payload;
 
     this.sortDateTime = exportedMessage.sortDateTime;
     this.mapLocation = exportedMessage.mapLocation;
     this.isP2p = exportedMessage.isP2p;
     this.fileName = exportedMessage.fileName;
-    this.lines = exportedMessage.lines;
 
     this.formVersion = "";
     this.expressVersion = "";
@@ -176,21 +514,90 @@ public class ExportedMessage implements IMessage, IWritableTable {
 
   @Override
   public String toString() {
+    var attachments = getAttachments();
     var nAttachments = attachments == null ? 0 : attachments.size();
     var attachmentNames = nAttachments == 0 ? "" : String.join(",", attachments.keySet());
     String attachmentsString = "\n" + nAttachments + " attachments(" + attachmentNames + ")\n";
     return "ExportedMessage {messageId: " + messageId + ", from: " + from + ", to: " + to + ", subject: " + subject
         + ", date: " + msgDateTime.toLocalDate() + ", time: " + msgDateTime.toLocalTime() + ", plainContent: \n"
-        + plainContent + attachmentsString + ", fileName: " + fileName + ", fornVersion: " + formVersion
+        + getPlainContent() + attachmentsString + ", fileName: " + fileName + ", fornVersion: " + formVersion
         + ", expressVersion: " + expressVersion + "}";
   }
 
   public String[] getMimeLines() {
-    return mime.split("\n");
+    return getMimeHeaderIndex().getLines(getMime());
+  }
+
+  /**
+   * the headers, indexed on first access
+   *
+   * @return
+   */
+  @JsonIgnore
+  public MimeHeaderIndex getMimeHeaderIndex() {
+    return payload.getMimeIndex();
+  }
+
+  public String getMime() {
+    return payload.getMime();
   }
 
   public String getPlainContent() {
-    return plainContent;
+    return payload.getPlainContent();
+  }
+
+  /**
+   * NOTE WELL: null if the mime content can't be parsed
+   *
+   * the map is a read-only view, and may be paged out (and back in, as a new
+   * map) at any time; use renameAttachment to change it
+   *
+   * @return
+   */
+  public Map<String, byte[]> getAttachments() {
+    return payload.getAttachments();
+  }
+
+  /**
+   * rename an attachment (keeping its content) under the payload's lock, so that
+   * the rename can't race with the payload being spilled
+   *
+   * @param fromName
+   * @param toName
+   */
+  public void renameAttachment(String fromName, String toName) {
+    payload.renameAttachment(fromName, toName);
+  }
+
+  /**
+   * NOTE WELL: null unless lines were requested when reading
+   *
+   * @return
+   */
+  public List<String> getLines() {
+    return payload.getLines();
+  }
+
+  Payload getPayload() {
+    return payload;
+  }
+
+  /**
+   * @return the FormBinder arguments this message was constructed from, if kept
+   */
+  @JsonIgnore
+  public FormBinder.Bound getBound() {
+    return bound;
+  }
+
+  /**
+   * keep the FormBinder arguments this message was constructed from, so that
+   * MessageColumns can store it without its header fields
+   *
+   * @param bound
+   */
+  public void setBound(FormBinder.Bound bound) {
+    this.bound = bound;
   }
 
   @Override
@@ -207,10 +614,11 @@ public class ExportedMessage implements IMessage, IWritableTable {
     var time = sortDateTime == null ? "" : sortDateTime.toLocalTime().toString();
     var lat = mapLocation == null ? "" : mapLocation.getLatitude();
     var lon = mapLocation == null ? "" : mapLocation.getLongitude();
+    var attachments = getAttachments();
     var nAttachments = attachments == null ? "" : String.valueOf(attachments.size());
     return new String[] { messageId, from, to, toList, ccList, subject, //
         date, time, lat, lon, msgLocationSource, //
-        plainContent, nAttachments, fileName, formVersion, expressVersion };
+        getPlainContent(), nAttachments, fileName, formVersion, expressVersion };
   }
 
   public MessageType getMessageType() {
@@ -0,0 +1,390 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.message;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.core.MessageType;
+import com.surftools.wimp.core.RejectType;
+import com.surftools.wimp.parser.FormBinder;
+
+/**
+ * append-only, columnar storage of ExportedMessages, to bound the heap used by
+ * very large numbers of messages
+ *
+ * each message is one row across primitive columns. Call signs, addresses,
+ * subjects, file names and the like are dictionary-encoded as int ids, shared by
+ * all rows, and date/times are stored as epoch seconds. Messages are only built
+ * again, on demand, by get(); payloads are shared, not copied
+ *
+ * exported, plain and rejection messages are stored entirely in columns. Form
+ * messages that kept their FormBinder arguments (see ClassifierProcessor) store
+ * their header in columns too, and only those arguments as objects; they are
+ * constructed again, around the header, by get(). Other form messages are kept
+ * as objects; their rows only hold what is needed to index and sort them
+ *
+ * rows are never changed, so a row id is valid for the life of the store
+ *
+ * @author bobt
+ *
+ */
+public class MessageColumns {
+  private static final byte KIND_EXPORTED = 0;
+  private static final byte KIND_PLAIN = 1;
+  private static final byte KIND_REJECTION = 2;
+  private static final byte KIND_FORM = 3;
+  private static final byte KIND_BOUND = 4;
+
+  // stands for the message a form was constructed from, in stored arguments
+  private static final Object HEADER = new Object();
+
+  private static final long NO_DATE_TIME = Long.MIN_VALUE;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+  private static final RejectType[] REJECT_TYPES = RejectType.values();
+
+  // id -> string; id 0 is null
+  private final List<String> dictionary = new ArrayList<>();
+  private final Map<String, Integer> dictionaryMap = new HashMap<>();
+
+  private int rowCount;
+
+  private byte[] kinds;
+  private byte[] messageTypes;
+  private byte[] rejectTypes;
+  private boolean[] p2ps;
+
+  private String[] messageIds;
+  private int[] froms;
+  private int[] sources;
+  private int[] tos;
+  private int[] toLists;
+  private int[] ccLists;
+  private int[] subjects;
+  private int[] locationSources;
+  private int[] fileNames;
+  private int[] formVersions;
+  private int[] expressVersions;
+  private int[] rejectContexts;
+
+  private long[] msgSeconds;
+  private int[] msgNanos;
+  private long[] sortSeconds;
+  private int[] sortNanos;
+
+  private LatLongPair[] msgLocations;
+  private LatLongPair[] mapLocations;
+  private ExportedMessage.Payload[] payloads;
+  private ExportedMessage[] forms;
+  private Class<?>[] boundTypes;
+  private Object[][] boundArgs;
+
+  public MessageColumns() {
+    dictionary.add(null);
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @return the # of rows
+   */
+  public int size() {
+    return rowCount;
+  }
+
+  /**
+   * @return the # of distinct strings encoded
+   */
+  public int getDictionarySize() {
+    return dictionary.size() - 1;
+  }
+
+  /**
+   * append a message
+   *
+   * @param message
+   * @return its row id
+   */
+  public int add(ExportedMessage message) {
+    if (rowCount == kinds.length) {
+      allocate(rowCount * 2);
+    }
+
+    var row = rowCount++;
+    var type = message.getMessageType();
+    messageTypes[row] = (byte) type.ordinal();
+    froms[row] = encode(message.from);
+    setDateTime(sortSeconds, sortNanos, row, message.sortDateTime);
+
+    var messageClass = message.getClass();
+    if (messageClass == ExportedMessage.class) {
+      kinds[row] = KIND_EXPORTED;
+    } else if (messageClass == PlainMessage.class) {
+      kinds[row] = KIND_PLAIN;
+    } else if (messageClass == RejectionMessage.class) {
+      var rejectionMessage = (RejectionMessage) message;
+      kinds[row] = KIND_REJECTION;
+      rejectTypes[row] = (byte) rejectionMessage.reason.ordinal();
+      rejectContexts[row] = encode(rejectionMessage.context);
+    } else if (message.getBound() != null && message.getBound().type() == messageClass) {
+      kinds[row] = KIND_BOUND;
+      boundTypes[row] = messageClass;
+      boundArgs[row] = toStoredArgs(message.getBound().args());
+    } else {
+      kinds[row] = KIND_FORM;
+      forms[row] = message;
+      return row;
+    }
+
+    messageIds[row] = message.messageId;
+    sources[row] = encode(message.source);
+    tos[row] = encode(message.to);
+    toLists[row] = encode(message.toList);
+    ccLists[row] = encode(message.ccList);
+    subjects[row] = encode(message.subject);
+    locationSources[row] = encode(message.msgLocationSource);
+    fileNames[row] = encode(message.fileName);
+    formVersions[row] = encode(message.formVersion);
+    expressVersions[row] = encode(message.expressVersion);
+    p2ps[row] = message.isP2p;
+    setDateTime(msgSeconds, msgNanos, row, message.msgDateTime);
+    msgLocations[row] = message.msgLocation;
+    mapLocations[row] = message.mapLocation;
+    payloads[row] = message.getPayload();
+    return row;
+  }
+
+  /**
+   * build the message for a row
+   *
+   * @param row
+   * @return a new message, equal in every field to the one added, or, for a
+   *         form kept as an object, the form message itself
+   */
+  public ExportedMessage get(int row) {
+    checkRow(row);
+    var kind = kinds[row];
+    if (kind == KIND_FORM) {
+      return forms[row];
+    }
+
+    var msgDateTime = getDateTime(msgSeconds, msgNanos, row);
+    var sortDateTime = getDateTime(sortSeconds, sortNanos, row);
+    var message = new ExportedMessage(messageIds[row], decode(froms[row]), decode(sources[row]), decode(tos[row]),
+        decode(toLists[row]), decode(ccLists[row]), decode(subjects[row]), msgDateTime, msgLocations[row],
+        decode(locationSources[row]), p2ps[row], decode(fileNames[row]), payloads[row]);
+    message.sortDateTime = (sortDateTime != null && sortDateTime.equals(msgDateTime)) ? msgDateTime : sortDateTime;
+    message.mapLocation = mapLocations[row];
+
+    if (kind == KIND_PLAIN) {
+      message = new PlainMessage(message);
+    } else if (kind == KIND_REJECTION) {
+      message = new RejectionMessage(message, REJECT_TYPES[rejectTypes[row]], decode(rejectContexts[row]));
+    } else if (kind == KIND_BOUND) {
+      message = construct(row, message);
+    }
+    message.formVersion = decode(formVersions[row]);
+    message.expressVersion = decode(expressVersions[row]);
+    return message;
+  }
+
+  /**
+   * construct a form message again, from its stored arguments and its header;
+   * fields the form's constructor set in its header are then set as stored
+   *
+   * @param row
+   * @param header
+   * @return
+   */
+  private ExportedMessage construct(int row, ExportedMessage header) {
+    var storedArgs = boundArgs[row];
+    var args = new Object[storedArgs.length];
+    for (var i = 0; i < args.length; ++i) {
+      args[i] = (storedArgs[i] == HEADER) ? header : storedArgs[i];
+    }
+
+    var message = (ExportedMessage) FormBinder.construct(new FormBinder.Bound(boundTypes[row], args));
+    message.sortDateTime = header.sortDateTime;
+    message.mapLocation = header.mapLocation;
+    message.setBound(new FormBinder.Bound(boundTypes[row], storedArgs));
+    return message;
+  }
+
+  /**
+   * @param args
+   * @return the arguments, with the message a form was constructed from replaced
+   *         by HEADER; the same array if there is none, such as when re-adding a
+   *         message from get()
+   */
+  private static Object[] toStoredArgs(Object[] args) {
+    Object[] storedArgs = args;
+    for (var i = 0; i < args.length; ++i) {
+      if (args[i] instanceof ExportedMessage) {
+        if (storedArgs == args) {
+          storedArgs = args.clone();
+        }
+        storedArgs[i] = HEADER;
+      }
+    }
+    return storedArgs;
+  }
+
+  public String getFrom(int row) {
+    checkRow(row);
+    return decode(froms[row]);
+  }
+
+  public MessageType getMessageType(int row) {
+    checkRow(row);
+    return MESSAGE_TYPES[messageTypes[row]];
+  }
+
+  /**
+   * compare two rows as their messages would compare: by sortDateTime, then from
+   *
+   * @param row1
+   * @param row2
+   * @return
+   */
+  public int compare(int row1, int row2) {
+    var cmp = Long.compare(sortSeconds[row1], sortSeconds[row2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Integer.compare(sortNanos[row1], sortNanos[row2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return decode(froms[row1]).compareTo(decode(froms[row2]));
+  }
+
+  private int encode(String s) {
+    if (s == null) {
+      return 0;
+    }
+    var id = dictionaryMap.get(s);
+    if (id == null) {
+      id = dictionary.size();
+      dictionary.add(s);
+      dictionaryMap.put(s, id);
+    }
+    return id;
+  }
+
+  private String decode(int id) {
+    return dictionary.get(id);
+  }
+
+  private static void setDateTime(long[] seconds, int[] nanos, int row, LocalDateTime dateTime) {
+    if (dateTime == null) {
+      seconds[row] = NO_DATE_TIME;
+    } else {
+      seconds[row] = dateTime.toEpochSecond(ZoneOffset.UTC);
+      nanos[row] = dateTime.getNano();
+    }
+  }
+
+  private static LocalDateTime getDateTime(long[] seconds, int[] nanos, int row) {
+    if (seconds[row] == NO_DATE_TIME) {
+      return null;
+    }
+    return LocalDateTime.ofEpochSecond(seconds[row], nanos[row], ZoneOffset.UTC);
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("row: " + row + ", size: " + rowCount);
+    }
+  }
+
+  private void allocate(int capacity) {
+    if (kinds == null) {
+      kinds = new byte[capacity];
+      messageTypes = new byte[capacity];
+      rejectTypes = new byte[capacity];
+      p2ps = new boolean[capacity];
+      messageIds = new String[capacity];
+      froms = new int[capacity];
+      sources = new int[capacity];
+      tos = new int[capacity];
+      toLists = new int[capacity];
+      ccLists = new int[capacity];
+      subjects = new int[capacity];
+      locationSources = new int[capacity];
+      fileNames = new int[capacity];
+      formVersions = new int[capacity];
+      expressVersions = new int[capacity];
+      rejectContexts = new int[capacity];
+      msgSeconds = new long[capacity];
+      msgNanos = new int[capacity];
+      sortSeconds = new long[capacity];
+      sortNanos = new int[capacity];
+      msgLocations = new LatLongPair[capacity];
+      mapLocations = new LatLongPair[capacity];
+      payloads = new ExportedMessage.Payload[capacity];
+      forms = new ExportedMessage[capacity];
+      boundTypes = new Class<?>[capacity];
+      boundArgs = new Object[capacity][];
+      return;
+    }
+
+    kinds = Arrays.copyOf(kinds, capacity);
+    messageTypes = Arrays.copyOf(messageTypes, capacity);
+    rejectTypes = Arrays.copyOf(rejectTypes, capacity);
+    p2ps = Arrays.copyOf(p2ps, capacity);
+    messageIds = Arrays.copyOf(messageIds, capacity);
+    froms = Arrays.copyOf(froms, capacity);
+    sources = Arrays.copyOf(sources, capacity);
+    tos = Arrays.copyOf(tos, capacity);
+    toLists = Arrays.copyOf(toLists, capacity);
+    ccLists = Arrays.copyOf(ccLists, capacity);
+    subjects = Arrays.copyOf(subjects, capacity);
+    locationSources = Arrays.copyOf(locationSources, capacity);
+    fileNames = Arrays.copyOf(fileNames, capacity);
+    formVersions = Arrays.copyOf(formVersions, capacity);
+    expressVersions = Arrays.copyOf(expressVersions, capacity);
+    rejectContexts = Arrays.copyOf(rejectContexts, capacity);
+    msgSeconds = Arrays.copyOf(msgSeconds, capacity);
+    msgNanos = Arrays.copyOf(msgNanos, capacity);
+    sortSeconds = Arrays.copyOf(sortSeconds, capacity);
+    sortNanos = Arrays.copyOf(sortNanos, capacity);
+    msgLocations = Arrays.copyOf(msgLocations, capacity);
+    mapLocations = Arrays.copyOf(mapLocations, capacity);
+    payloads = Arrays.copyOf(payloads, capacity);
+    forms = Arrays.copyOf(forms, capacity);
+    boundTypes = Arrays.copyOf(boundTypes, capacity);
+    boundArgs = Arrays.copyOf(boundArgs, capacity);
+  }
+}
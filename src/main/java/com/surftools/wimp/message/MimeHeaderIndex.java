@@ -0,0 +1,374 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * an index of the raw MIME text of a message, built in a single pass over the
+ * text
+ *
+ * - the (unfolded) headers, up to the first blank line
+ *
+ * - the To: and Cc: address lists
+ *
+ * - the X-Location: line, wherever it is
+ *
+ * - the "Express Version:" lines, as is and from the quoted-printable body
+ *
+ * - where each line starts
+ *
+ * The index holds neither the MIME text nor its lines, only the headers, a few
+ * short lines and the line offsets, so it is cheap to keep
+ *
+ * @author bobt
+ *
+ */
+public class MimeHeaderIndex {
+  private static final String LOCATION_PREFIX = "X-LOCATION:";
+  private static final String EXPRESS_VERSION = "Express Version:";
+  private static final String SEGMENT_SEPARATOR = "=0A";
+  private static final String SOFT_LINE_BREAK = "=\n";
+
+  /**
+   * a quoted-printable segment, between "=0A"s and without soft line breaks, that
+   * mentions the Express version
+   *
+   * @param keyLines
+   *          -- the start of the segment's line(s) up to each "Express Version:"
+   * @param value
+   *          -- the segment's last ":" or "=" separated field, or null if none
+   */
+  private record ExpressVersionSegment(List<String> keyLines, String value) {
+  };
+
+  private final Map<String, String> headerLines; // lower-case header name -> unfolded header line
+  private final List<String> toList;
+  private final List<String> ccList;
+  private String locationLine;
+  private final List<String> expressVersionLines;
+  private final List<ExpressVersionSegment> expressVersionSegments;
+  private int[] lineStarts;
+  private int lineCount;
+
+  public MimeHeaderIndex(String mime) {
+    headerLines = new HashMap<>();
+    toList = new ArrayList<>();
+    ccList = new ArrayList<>();
+    expressVersionLines = new ArrayList<>();
+    expressVersionSegments = new ArrayList<>();
+    lineStarts = new int[16];
+
+    if (mime == null) {
+      mime = "";
+    }
+
+    var isInHeaders = true;
+    StringBuilder header = null;
+    var isInRecipients = true;
+    List<String> recipientList = null;
+
+    // next occurrences at or after the current line, -1 if none left
+    var nextVersion = mime.indexOf(EXPRESS_VERSION);
+    var nextSeparator = mime.indexOf(SEGMENT_SEPARATOR);
+    var segmentStart = 0;
+    var isSegmentCandidate = false; // may mention the Express version, once soft line breaks are removed
+    String carry = null; // the text before a soft line break, that might start "Express Version:"
+
+    var start = 0;
+    while (start <= mime.length()) {
+      var end = mime.indexOf('\n', start);
+      if (end == -1) {
+        end = mime.length();
+      }
+      addLineStart(start);
+
+      while (nextVersion >= 0 && nextVersion < start) {
+        nextVersion = mime.indexOf(EXPRESS_VERSION, start);
+      }
+      var hasVersion = nextVersion >= 0 && nextVersion < end;
+      if (hasVersion) {
+        expressVersionLines.add(mime.substring(start, end));
+      }
+
+      // "Express Version:" may have been split by soft line breaks
+      var isSoftBreak = end < mime.length() && end > start && mime.charAt(end - 1) == '=';
+      if (carry != null || isSoftBreak) {
+        var text = (carry == null ? "" : carry) + mime.substring(start, isSoftBreak ? end - 1 : end);
+        if (carry != null && text.indexOf(EXPRESS_VERSION) >= 0) {
+          hasVersion = true;
+        }
+        carry = isSoftBreak ? text.substring(Math.max(0, text.length() - EXPRESS_VERSION.length() + 1)) : null;
+      }
+
+      // "=0A" can't span lines, so segments end within a line
+      isSegmentCandidate |= hasVersion;
+      while (nextSeparator >= 0 && nextSeparator < end) {
+        addSegment(mime, segmentStart, nextSeparator, isSegmentCandidate);
+        segmentStart = nextSeparator + SEGMENT_SEPARATOR.length();
+        isSegmentCandidate = hasVersion;
+        nextSeparator = mime.indexOf(SEGMENT_SEPARATOR, segmentStart);
+      }
+
+      if (locationLine == null && mime.regionMatches(true, start, LOCATION_PREFIX, 0, LOCATION_PREFIX.length())) {
+        locationLine = mime.substring(start, end);
+      }
+
+      if (isInHeaders || isInRecipients) {
+        var line = mime.substring(start, end);
+        if (isInHeaders) {
+          if (line.isBlank()) {
+            isInHeaders = false;
+            addHeader(header);
+            header = null;
+          } else if (header != null && (line.startsWith(" ") || line.startsWith("\t"))) {
+            header.append(line.stripTrailing());
+          } else {
+            addHeader(header);
+            header = new StringBuilder(line.stripTrailing());
+          }
+        }
+
+        // addresses continue on following lines, until Cc: or Message-ID:
+        if (isInRecipients) {
+          if (line.startsWith("Message-ID: ")) {
+            isInRecipients = false;
+          } else {
+            if (line.startsWith("To: ")) {
+              recipientList = toList;
+            } else if (line.startsWith("Cc: ")) {
+              recipientList = ccList;
+            }
+
+            if (recipientList != null) {
+              var address = fixAddress(line);
+              if (address != null && !address.isBlank()) {
+                recipientList.add(address);
+              }
+            }
+          }
+        }
+      }
+
+      start = end + 1;
+    } // end loop over lines
+    addHeader(header);
+    addSegment(mime, segmentStart, mime.length(), isSegmentCandidate);
+    lineStarts = Arrays.copyOf(lineStarts, lineCount);
+  }
+
+  private void addLineStart(int start) {
+    if (lineCount == lineStarts.length) {
+      lineStarts = Arrays.copyOf(lineStarts, 2 * lineCount);
+    }
+    lineStarts[lineCount++] = start;
+  }
+
+  private void addHeader(StringBuilder header) {
+    if (header == null) {
+      return;
+    }
+    var colonIndex = header.indexOf(":");
+    if (colonIndex > 0) {
+      headerLines.putIfAbsent(header.substring(0, colonIndex).trim().toLowerCase(), header.toString());
+    }
+  }
+
+  private void addSegment(String mime, int start, int end, boolean isCandidate) {
+    if (!isCandidate) {
+      return;
+    }
+
+    var segment = mime.substring(start, end).replace(SOFT_LINE_BREAK, "");
+    var keyLines = new ArrayList<String>();
+    var index = segment.indexOf(EXPRESS_VERSION);
+    while (index >= 0) {
+      var keyEnd = index + EXPRESS_VERSION.length();
+      keyLines.add(segment.substring(segment.lastIndexOf('\n', index) + 1, keyEnd));
+      index = segment.indexOf(EXPRESS_VERSION, keyEnd);
+    }
+    if (keyLines.isEmpty()) {
+      return;
+    }
+
+    expressVersionSegments.add(new ExpressVersionSegment(keyLines, getLastField(segment)));
+  }
+
+  /**
+   * the same as the last of split("[:=]"), trimmed, without splitting a long
+   * segment
+   *
+   * @param segment
+   * @return the last field, or null if split() would give fewer than two fields
+   */
+  private static String getLastField(String segment) {
+    var end = segment.length();
+    while (end > 0 && isFieldSeparator(segment.charAt(end - 1))) {
+      --end; // split() drops trailing empty fields
+    }
+
+    var start = end;
+    while (start > 0 && !isFieldSeparator(segment.charAt(start - 1))) {
+      --start;
+    }
+    return (start == 0) ? null : segment.substring(start, end).trim();
+  }
+
+  private static boolean isFieldSeparator(char c) {
+    return c == ':' || c == '=';
+  }
+
+  /**
+   * clean up line, strip leading To: Cc: and space, strip trailing ,
+   *
+   * @param line
+   * @return
+   */
+  public static String fixAddress(String line) {
+    if (line == null) {
+      return null;
+    }
+
+    if (line.startsWith("To: ") || line.startsWith("Cc: ")) {
+      String[] fields = line.split(" ");
+      line = fields[1];
+    }
+
+    if (line.endsWith(",")) {
+      line = line.substring(0, line.length() - 1);
+    }
+    return line.trim();
+  }
+
+  /**
+   * @param name,
+   *          case-insensitive, without the colon
+   * @return the whole (unfolded) header line, or null if not present
+   */
+  public String getHeaderLine(String name) {
+    return headerLines.get(name.toLowerCase());
+  }
+
+  /**
+   * @param name,
+   *          case-insensitive, without the colon
+   * @return the (unfolded) header value, or null if not present
+   */
+  public String getHeader(String name) {
+    var line = getHeaderLine(name);
+    return (line == null) ? null : line.substring(line.indexOf(':') + 1).trim();
+  }
+
+  public List<String> getToList() {
+    return Collections.unmodifiableList(toList);
+  }
+
+  public List<String> getCcList() {
+    return Collections.unmodifiableList(ccList);
+  }
+
+  /**
+   * X-Location: 38.660000N, 122.870667W (SPECIFIED)
+   *
+   * @return the first line, anywhere in the text, that starts with X-Location:
+   *         (in any case), or null if not present
+   */
+  public String getLocationLine() {
+    return locationLine;
+  }
+
+  /**
+   * value following the key, from the first line that starts with the key, else
+   * (if not found or empty) from the quoted-printable body, where the key might have been split by a
+   * soft line break
+   *
+   * @param key,
+   *          like "Senders Express Version:", must end with "Express Version:"
+   * @return trimmed value, or "" if not found
+   */
+  public String getExpressVersion(String key) {
+    if (!key.endsWith(EXPRESS_VERSION)) {
+      throw new RuntimeException("key: " + key + " doesn't end with: " + EXPRESS_VERSION);
+    }
+
+    for (var line : expressVersionLines) {
+      if (line.startsWith(key)) {
+        var value = line.substring(key.length()).trim();
+        if (value.length() > 0) {
+          return value;
+        }
+        break;
+      }
+    }
+
+    for (var segment : expressVersionSegments) {
+      if (segment.value() != null && segment.keyLines().stream().anyMatch(l -> l.endsWith(key))) {
+        return segment.value();
+      }
+    }
+    return "";
+  }
+
+  /**
+   * the lines of the indexed text, as split("\n") would give them
+   *
+   * @param mime,
+   *          the text this index was built from
+   * @return
+   */
+  String[] getLines(String mime) {
+    if (mime == null) {
+      mime = "";
+    }
+
+    if (lineCount == 1) {
+      return new String[] { mime };
+    }
+
+    // split() drops trailing empty lines
+    var count = lineCount;
+    while (count > 0 && lineStarts[count - 1] >= lineEnd(mime, count - 1)) {
+      --count;
+    }
+
+    var lines = new String[count];
+    for (var i = 0; i < count; ++i) {
+      lines[i] = mime.substring(lineStarts[i], lineEnd(mime, i));
+    }
+    return lines;
+  }
+
+  private int lineEnd(String mime, int i) {
+    return (i + 1 < lineCount) ? lineStarts[i + 1] - 1 : mime.length();
+  }
+}
@@ -0,0 +1,186 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.surftools.utils.FileUtils;
+
+/**
+ * bounded-memory home for the payloads (mime, lines, decoded content) of
+ * ExportedMessages
+ *
+ * payloads stay on the heap until their estimated size exceeds the budget; then
+ * the least recently used ones are written to an append-only segment file and
+ * dropped, leaving only their offset in memory. The next access to a spilled
+ * payload pages it back in. Unchanged payloads are only written once; a payload
+ * whose attachments were changed (renamed) is written again
+ *
+ * sizes are estimates (one byte per char, plus attachment bytes), so the budget
+ * is approximate
+ *
+ * @author bobt
+ *
+ */
+public class PayloadSpillStore implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(PayloadSpillStore.class);
+
+  private final Path segmentPath;
+  private final FileChannel channel;
+  private final long budgetBytes;
+
+  private final AtomicLong appendPosition = new AtomicLong();
+  private final AtomicInteger spillCount = new AtomicInteger();
+  private final AtomicInteger writeCount = new AtomicInteger();
+  private final AtomicInteger reloadCount = new AtomicInteger();
+
+  // resident payloads in least- to most-recently used order, with their sizes
+  private final LinkedHashMap<ExportedMessage.Payload, Long> residentMap = new LinkedHashMap<>(16, 0.75f, true);
+  private long residentBytes;
+  private long peakResidentBytes;
+
+  public PayloadSpillStore(Path directory, long budgetBytes) throws IOException {
+    FileUtils.makeDirIfNeeded(directory.toString());
+    this.segmentPath = Files.createTempFile(directory, "payloads-", ".segment");
+    this.channel = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.DELETE_ON_CLOSE);
+    this.budgetBytes = budgetBytes;
+    logger.info("spilling message payloads beyond " + (budgetBytes / (1024 * 1024)) + " MB to: " + segmentPath);
+  }
+
+  /**
+   * put a message's payload under our management; may spill others to make room
+   *
+   * @param message
+   */
+  public void add(ExportedMessage message) {
+    var payload = message.getPayload();
+    payload.attach(this);
+    touch(payload);
+  }
+
+  /**
+   * note a use of a resident payload, then spill least-recently used payloads
+   * until we're within budget again. The payload just used is never spilled here
+   *
+   * @param payload
+   */
+  synchronized void touch(ExportedMessage.Payload payload) {
+    var size = payload.estimateResidentSize();
+    if (size < 0) {
+      return; // spilled again by another thread since it was used
+    }
+
+    var previousSize = residentMap.put(payload, size);
+    residentBytes += size - (previousSize == null ? 0 : previousSize);
+    peakResidentBytes = Math.max(peakResidentBytes, residentBytes);
+
+    var iterator = residentMap.entrySet().iterator();
+    while (residentBytes > budgetBytes && iterator.hasNext()) {
+      var entry = iterator.next();
+      if (entry.getKey() == payload) {
+        break; // only the most recently used is left
+      }
+      entry.getKey().spill(this);
+      residentBytes -= entry.getValue();
+      iterator.remove();
+      spillCount.incrementAndGet();
+    }
+  }
+
+  long append(byte[] bytes) throws IOException {
+    var offset = appendPosition.getAndAdd(bytes.length);
+    var buffer = ByteBuffer.wrap(bytes);
+    var position = offset;
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    writeCount.incrementAndGet();
+    return offset;
+  }
+
+  byte[] read(long offset, int length) throws IOException {
+    var bytes = new byte[length];
+    var buffer = ByteBuffer.wrap(bytes);
+    var position = offset;
+    while (buffer.hasRemaining()) {
+      var n = channel.read(buffer, position);
+      if (n < 0) {
+        throw new IOException("unexpected end of segment: " + segmentPath + " at " + position);
+      }
+      position += n;
+    }
+    reloadCount.incrementAndGet();
+    return bytes;
+  }
+
+  public int getSpillCount() {
+    return spillCount.get();
+  }
+
+  public int getReloadCount() {
+    return reloadCount.get();
+  }
+
+  public String getReport() {
+    synchronized (this) {
+      return "payload spill: budget " + mb(budgetBytes) + " MB, " + spillCount.get() + " spills, " + writeCount.get()
+          + " writes (" + mb(appendPosition.get()) + " MB), " + reloadCount.get() + " reloads, " + residentMap.size()
+          + " payloads resident (" + mb(residentBytes) + " MB, peak " + mb(peakResidentBytes) + " MB)";
+    }
+  }
+
+  private static String mb(long bytes) {
+    return String.format("%.1f", bytes / (1024d * 1024d));
+  }
+
+  /**
+   * close and delete our segment file; the directory is left alone, it may be
+   * shared with other runs
+   */
+  @Override
+  public void close() {
+    try {
+      channel.close();
+      Files.deleteIfExists(segmentPath); // normally already gone, DELETE_ON_CLOSE
+    } catch (IOException e) {
+      logger.warn("Exception closing spill segment: " + segmentPath + ", " + e.getLocalizedMessage());
+    }
+  }
+}
@@ -42,23 +42,21 @@ import javax.activation.DataSource;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 import javax.mail.util.ByteArrayDataSource;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.commons.mail.util.MimeMessageParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 
+import com.surftools.utils.XmlFactories;
 import com.surftools.utils.location.LatLongPair;
 import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.core.IParser;
 import com.surftools.wimp.core.RejectType;
 import com.surftools.wimp.message.ExportedMessage;
 import com.surftools.wimp.message.RejectionMessage;
+import com.surftools.wimp.parser.WinlinkMimeDecoder.DecodedMime;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
 public abstract class AbstractBaseParser implements IParser {
@@ -68,11 +66,15 @@ public abstract class AbstractBaseParser implements IParser {
   public static final String DATA_SOURCE_RMS_VIEWER = "RmsViewer.xml";
   public static final String DATA_SOURCE_FORM_DATA = "FormData.txt";
 
+  // [Fatal Error] :16:31: Character reference "&#21" is an invalid XML character.
+  private static final CharacterAssassinator XML_ASSASSINATOR = new CharacterAssassinator(null, Map.of("&#21", "_"));
+
   protected Set<String> filterIds = new HashSet<>();
   protected IConfigurationManager cm;
   protected IMessageManager mm;
 
   protected Document currentDocument = null;
+  protected XmlTagIndex currentTagIndex = null;
   protected String currentMessageId = null;
 
   @SuppressWarnings("unchecked")
@@ -96,49 +98,39 @@ public abstract class AbstractBaseParser implements IParser {
     return new RejectionMessage(message, reason, context);
   }
 
-  public String getValueFromMime(String[] mimeLines, String key) {
-    for (String line : mimeLines) {
-      if (line.startsWith(key)) {
-        var value = line.substring(key.length());
-        return value.trim();
-      }
+  /**
+   * decode plain content and attachments, via the WinlinkMimeDecoder for the
+   * usual shape of Winlink Express content, else via the MimeMessageParser
+   *
+   * @param messageId
+   * @param mimeContent
+   * @return null if the mime can't be parsed
+   */
+  public static DecodedMime decodeMime(String messageId, String mimeContent) {
+    if (mimeContent == null) {
+      return null;
+    }
+
+    var decodedMime = WinlinkMimeDecoder.decode(mimeContent.getBytes());
+    if (decodedMime != null) {
+      return decodedMime;
+    }
+
+    var parser = makeMimeMessageParser(messageId, mimeContent);
+    if (parser == null) {
+      return null;
     }
-    return "";
+    return new DecodedMime(parser.getPlainContent(), getAttachments(parser));
   }
 
   public static MimeMessageParser makeMimeMessageParser(String messageId, String mimeContent) {
-    try {
-
-      // ETO_2024_09_19: some people send in messages with this:
-      // Content-Disposition: attachment; name=""ETO Welfare Message //
-      // Exercise".pdf"; filename=""ETO Welfare Message Exercise".pdf"//
-      // Content-Type: text/plain; name=""ETO Welfare Message Exercise".pdf"//
-      // Content-Transfer-Encoding: base64//
-      var doHack_ETO_2024_09_19 = true;
-      if (doHack_ETO_2024_09_19) {
-        if (mimeContent == null) {
-          return null;
-        }
-        var lines = mimeContent.split("\n");
-        var newLines = new ArrayList<String>();
-        var inBadArea = false;
-        for (var line : lines) {
-          if (!inBadArea && line.startsWith("Content-Disposition: attachment;") && line.contains("\"\"")) {
-            inBadArea = true;
-          }
-          if (inBadArea && line.isBlank()) {
-            inBadArea = false;
-          }
-          if (inBadArea) {
-            line = line.replaceAll("\"\"", "\"");
-            line = line.replaceAll("\".pdf", ".pdf");
-          }
-          newLines.add(line);
-        } // end for over lines
-        mimeContent = String.join("\n", newLines);
-      }
+    if (mimeContent == null) {
+      return null;
+    }
 
-      InputStream inputStream = new ByteArrayInputStream(mimeContent.getBytes());
+    try {
+      // repairs ETO_2024_09_19 Content-Disposition quoting, etc.
+      InputStream inputStream = new MimeRepairInputStream(new ByteArrayInputStream(mimeContent.getBytes()));
       Session session = Session.getDefaultInstance(new Properties(), null);
       MimeMessage mimeMessage = new MimeMessage(session, inputStream);
 
@@ -246,17 +238,14 @@ public abstract class AbstractBaseParser implements IParser {
       xmlString += ">";
     }
 
-    // [Fatal Error] :16:31: Character reference "&#21" is an invalid XML character.
-    xmlString = xmlString.replaceAll("&#21", "_");
+    xmlString = XML_ASSASSINATOR.assassinate(xmlString);
 
     try {
-      DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-      dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      DocumentBuilder db = dbf.newDocumentBuilder();
       InputSource inputSource = new InputSource(new StringReader(xmlString));
-      Document doc = db.parse(inputSource);
+      Document doc = XmlFactories.getDocumentBuilder().parse(inputSource);
       doc.getDocumentElement().normalize();
       currentDocument = doc;
+      currentTagIndex = new XmlTagIndex(doc);
       currentMessageId = messageId;
     } catch (Exception e) {
       logger.error("can't parse xml: " + xmlString + ", " + e.getLocalizedMessage());
@@ -292,33 +281,7 @@ public abstract class AbstractBaseParser implements IParser {
   }
 
   public String getStringFromXml(String tagName) {
-    String s = null;
-    NodeList list = currentDocument.getElementsByTagName(tagName);
-    if (list != null && list.getLength() > 0) {
-      NodeList subList = list.item(0).getChildNodes();
-      if (subList != null && subList.getLength() > 0) {
-        s = subList.item(0).getNodeValue();
-      }
-    }
-
-    if (s == null && Character.isLowerCase(tagName.charAt(0))) {
-      tagName = tagName.substring(0, 1).toUpperCase() + tagName.substring(1);
-      list = currentDocument.getElementsByTagName(tagName);
-      if (list != null && list.getLength() > 0) {
-        NodeList subList = list.item(0).getChildNodes();
-        if (subList != null && subList.getLength() > 0) {
-          s = subList.item(0).getNodeValue();
-        }
-      }
-    }
-
-    if (s != null) {
-      s = s.trim();
-    } else {
-      s = "";
-    }
-
-    return s;
+    return currentTagIndex.get(tagName);
   }
 
   /**
@@ -396,20 +359,7 @@ public abstract class AbstractBaseParser implements IParser {
   }
 
   protected String getExpressVersion(ExportedMessage message, String key) {
-    var expressVersion = getValueFromMime(message.getMimeLines(), key);
-    if (expressVersion == null || expressVersion.length() == 0) {
-      var newLines = message.mime.split("=0A");
-      for (var newLine : newLines) {
-        newLine = newLine.replace("=\n", "");
-        if (newLine.contains(key)) {
-          var newFields = newLine.split("[:=]");
-          if (newFields.length >= 2) {
-            expressVersion = newFields[newFields.length - 1].trim();
-            break;
-          }
-        }
-      }
-    }
+    var expressVersion = message.getMimeHeaderIndex().getExpressVersion(key);
     expressVersion = expressVersion.replace("=20", "");
     expressVersion = expressVersion.replace(":", "");
     expressVersion = (expressVersion != null && expressVersion.length() > 0) ? expressVersion : "(unknown)";
@@ -39,39 +39,26 @@ import com.surftools.wimp.message.ExportedMessage;
  *
  */
 public class BloodAvailabilityParser extends AbstractBaseParser {
+  private static final FormBinder<BloodAvailabilityMessage> BINDER = new FormBinder<>(BloodAvailabilityMessage.class, //
+      FormBinder.SUPPLIED, FormBinder.SUPPLIED, "datetime", //
+      "facilityname", "address", "contactname", "phonenumber", //
+      "btype1", "btype2", "btype3", "btype4", "btype5", "btype6", "btype7", "btype8", //
+      "btype9", "btype10", "btype11", "btype12", //
+      "comments", "approved_name", FormBinder.SUPPLIED, //
+      "maplat", "maplon", FormBinder.SUPPLIED, FormBinder.SUPPLIED);
+
   @Override
   public ExportedMessage parse(ExportedMessage message) {
 
     try {
 
-      String xmlString = new String(message.attachments.get(MessageType.BLOOD_AVAILABILITY.rmsViewerName()));
+      String xmlString = new String(message.getAttachments().get(MessageType.BLOOD_AVAILABILITY.rmsViewerName()));
 
       makeDocument(message.messageId, xmlString);
 
       var isExercise = getStringFromXml("isexercise").equals("** THIS IS AN EXERCISE **");
 
-      var formDateTime = getStringFromXml("datetime");
-      var facilityName = getStringFromXml("facilityname");
-      var facilityAddress = getStringFromXml("address");
-      var facilityContactName = getStringFromXml("contactname");
-      var facilityPhoneNumber = getStringFromXml("phonenumber");
-      var redOPlus = getStringFromXml("btype1");
-      var redOMinus = getStringFromXml("btype2");
-      var redAPlus = getStringFromXml("btype3");
-      var redAMinus = getStringFromXml("btype4");
-      var redBPlus = getStringFromXml("btype5");
-      var redBMinus = getStringFromXml("btype6");
-      var redABPlus = getStringFromXml("btype7");
-      var redABMinus = getStringFromXml("btype8");
-      var plasmaO = getStringFromXml("btype9");
-      var plasmaA = getStringFromXml("btype10");
-      var plasmaB = getStringFromXml("btype11");
-      var plasmaAB = getStringFromXml("btype12");
-      var comments = getStringFromXml("comments");
-      var approvedBy = getStringFromXml("approved_name");
       var attachCSV = getStringFromXml("addattachment").equals("false") ? "No" : "Yes";
-      var formLatitude = getStringFromXml("maplat");
-      var formLongitude = getStringFromXml("maplon");
       var formVersion = "";
       var templateVersion = getStringFromXml("templateversion");
       if (templateVersion != null) {
@@ -80,11 +67,8 @@ public class BloodAvailabilityParser extends AbstractBaseParser {
       }
       var expressVersion = getExpressVersion(message, "Senders Express Version:");
 
-      var m = new BloodAvailabilityMessage(message, isExercise, formDateTime, //
-          facilityName, facilityAddress, facilityContactName, facilityPhoneNumber, //
-          redOPlus, redOMinus, redAPlus, redAMinus, redBPlus, redBMinus, redABPlus, redABMinus, //
-          plasmaO, plasmaA, plasmaB, plasmaAB, //
-          comments, approvedBy, attachCSV, formLatitude, formLongitude, formVersion, expressVersion);
+      var m = BINDER.bind(currentTagIndex, message, isExercise, //
+          attachCSV, formVersion, expressVersion);
 
       return m;
     } catch (Exception e) {
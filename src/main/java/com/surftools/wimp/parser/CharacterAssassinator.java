@@ -27,7 +27,15 @@ SOFTWARE.
 
 package com.surftools.wimp.parser;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,19 +45,37 @@ import java.util.Map;
  *
  * useful before handing off to XML processor
  *
+ * all targets are compiled once, into a single Aho-Corasick automaton, so that
+ * each call makes exactly one pass over its input, no matter how many targets
+ * there are. Instances are immutable and safe to share between threads.
+ *
+ * NOTE WELL: targets are matched as literals, not as regular expressions. When
+ * targets overlap, the one that ends first wins. If a nonAsciiReplacement is
+ * given, every non-ASCII code point is translated to it before target matching
+ *
  * @author bobt
  *
  */
 public class CharacterAssassinator {
   private List<String> deleteList;
   private Map<String, String> replaceMap;
+  private final String nonAsciiReplacement;
+
+  private final Automaton charAutomaton;
+  private final Automaton byteAutomaton;
+  private final String[] charReplacements;
+  private final byte[][] byteReplacements;
+  private final byte[] byteNonAsciiReplacement;
 
   public CharacterAssassinator() {
-    deleteList = new ArrayList<>();
-    replaceMap = new HashMap<>();
+    this(null, null, null);
   }
 
   public CharacterAssassinator(List<String> deleteList, Map<String, String> replaceMap) {
+    this(deleteList, replaceMap, null);
+  }
+
+  public CharacterAssassinator(List<String> deleteList, Map<String, String> replaceMap, String nonAsciiReplacement) {
     if (deleteList == null) {
       this.deleteList = new ArrayList<>();
     } else {
@@ -61,6 +87,47 @@ public class CharacterAssassinator {
     } else {
       this.replaceMap = replaceMap;
     }
+
+    this.nonAsciiReplacement = nonAsciiReplacement;
+
+    var targets = new ArrayList<String>();
+    var replacements = new ArrayList<String>();
+    for (var s : this.deleteList) {
+      if (s == null || s.isEmpty()) {
+        continue;
+      }
+      targets.add(s);
+      replacements.add("");
+    }
+    for (var key : this.replaceMap.keySet()) {
+      if (key == null || key.isEmpty()) {
+        continue;
+      }
+      targets.add(key);
+      replacements.add(this.replaceMap.get(key));
+    }
+
+    var charTargets = new ArrayList<int[]>();
+    var byteTargets = new ArrayList<int[]>();
+    for (var target : targets) {
+      charTargets.add(target.chars().toArray());
+      var bytes = target.getBytes(StandardCharsets.UTF_8);
+      var symbols = new int[bytes.length];
+      for (var i = 0; i < bytes.length; ++i) {
+        symbols[i] = bytes[i] & 0xff;
+      }
+      byteTargets.add(symbols);
+    }
+    charAutomaton = new Automaton(charTargets);
+    byteAutomaton = new Automaton(byteTargets);
+
+    charReplacements = replacements.toArray(new String[0]);
+    byteReplacements = new byte[charReplacements.length][];
+    for (var i = 0; i < charReplacements.length; ++i) {
+      byteReplacements[i] = charReplacements[i].getBytes(StandardCharsets.UTF_8);
+    }
+    byteNonAsciiReplacement = (nonAsciiReplacement == null) ? null
+        : nonAsciiReplacement.getBytes(StandardCharsets.UTF_8);
   }
 
   /**
@@ -69,15 +136,420 @@ public class CharacterAssassinator {
    * @param string
    * @return
    */
-  public String assassinate(String string) {
-    for (String s : deleteList) {
-      string = string.replaceAll(s, "");
+  public String assassinate(CharSequence string) {
+    if (nonAsciiReplacement == null) {
+      return assassinateLiterals(string);
+    }
+
+    var output = new StringBuilder(string.length());
+    var scan = new CharScan(output);
+    for (var i = 0; i < string.length(); ++i) {
+      scan.feed(string.charAt(i));
+    }
+    scan.flush();
+    return output.toString();
+  }
+
+  /**
+   * delete or replace unwanted characters from the UTF-8 encoded bytes between
+   * the buffer's position and limit, without decoding them first
+   *
+   * the input buffer's position is not changed
+   *
+   * @param buffer
+   * @return a buffer, ready to be read; possibly sharing content with the input
+   */
+  public ByteBuffer assassinate(ByteBuffer buffer) {
+    if (byteNonAsciiReplacement == null) {
+      return assassinateLiterals(buffer);
+    }
+
+    var input = buffer.duplicate();
+    var output = new ByteArrayOutputStream(input.remaining());
+    var scan = new ByteScan(output);
+    while (input.hasRemaining()) {
+      scan.feed(input.get() & 0xff);
+    }
+    scan.flush();
+    return ByteBuffer.wrap(output.toByteArray());
+  }
+
+  /**
+   * without non-ASCII translation, the input itself holds any pending symbols, so
+   * unchanged runs can be copied in bulk; and if nothing matches, nothing is
+   * copied at all
+   *
+   * @param string
+   * @return
+   */
+  private String assassinateLiterals(CharSequence string) {
+    StringBuilder output = null;
+    var emitted = 0;
+    var state = 0;
+    for (var i = 0; i < string.length(); ++i) {
+      state = charAutomaton.step(state, string.charAt(i));
+      var targetIndex = charAutomaton.match[state];
+      if (targetIndex >= 0) {
+        if (output == null) {
+          output = new StringBuilder(string.length());
+        }
+        output.append(string, emitted, i + 1 - charAutomaton.matchDepth[state]);
+        output.append(charReplacements[targetIndex]);
+        emitted = i + 1;
+        state = 0;
+      }
+    }
+
+    if (output == null) {
+      return string.toString();
     }
+    output.append(string, emitted, string.length());
+    return output.toString();
+  }
 
-    for (String key : replaceMap.keySet()) {
-      string = string.replaceAll(key, replaceMap.get(key));
+  private ByteBuffer assassinateLiterals(ByteBuffer buffer) {
+    ByteArrayOutputStream output = null;
+    var start = buffer.position();
+    var end = buffer.limit();
+    var emitted = start;
+    var state = 0;
+    for (var i = start; i < end; ++i) {
+      state = byteAutomaton.step(state, buffer.get(i) & 0xff);
+      var targetIndex = byteAutomaton.match[state];
+      if (targetIndex >= 0) {
+        if (output == null) {
+          output = new ByteArrayOutputStream(end - start);
+        }
+        copy(buffer, emitted, i + 1 - byteAutomaton.matchDepth[state], output);
+        output.writeBytes(byteReplacements[targetIndex]);
+        emitted = i + 1;
+        state = 0;
+      }
     }
 
-    return string;
+    if (output == null) {
+      return buffer.slice();
+    }
+    copy(buffer, emitted, end, output);
+    return ByteBuffer.wrap(output.toByteArray());
+  }
+
+  private void copy(ByteBuffer buffer, int from, int to, ByteArrayOutputStream output) {
+    var bytes = new byte[to - from];
+    buffer.get(from, bytes);
+    output.writeBytes(bytes);
+  }
+
+  /**
+   * wrap a Reader so that unwanted characters are deleted or replaced as they are
+   * read, rather than after the whole content has been read into a String
+   *
+   * @param reader
+   * @return
+   */
+  public Reader wrap(Reader reader) {
+    return new AssassinatingReader(reader);
+  }
+
+  private class AssassinatingReader extends FilterReader {
+    private final char[] readBuffer = new char[8192];
+    private final StringBuilder output = new StringBuilder(); // examined, not yet returned
+    private final CharScan scan = new CharScan(output);
+    private int outputIndex = 0;
+    private boolean isEof = false;
+
+    private AssassinatingReader(Reader reader) {
+      super(reader);
+    }
+
+    @Override
+    public int read() throws IOException {
+      var buffer = new char[1];
+      var n = read(buffer, 0, 1);
+      return (n == -1) ? -1 : buffer[0];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+
+      while (outputIndex == output.length()) {
+        if (isEof) {
+          return -1;
+        }
+        fill();
+      }
+
+      var n = Math.min(len, output.length() - outputIndex);
+      output.getChars(outputIndex, outputIndex + n, cbuf, off);
+      outputIndex += n;
+      return n;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+      return outputIndex < output.length() || super.ready();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * read and scan the next chunk; any tail that might be the start of a target
+     * split across chunks is held back by the scan until the next chunk
+     *
+     * @throws IOException
+     */
+    private void fill() throws IOException {
+      output.setLength(0);
+      outputIndex = 0;
+
+      var n = in.read(readBuffer, 0, readBuffer.length);
+      if (n == -1) {
+        isEof = true;
+        scan.flush();
+        return;
+      }
+
+      for (var i = 0; i < n; ++i) {
+        scan.feed(readBuffer[i]);
+      }
+    }
+  }
+
+  /**
+   * the state of one pass over one input: the automaton state, plus the input
+   * symbols that are (so far) a prefix of some target and so can't be emitted yet
+   */
+  private abstract class Scan {
+    private final Automaton automaton;
+    private final int[] pending;
+    private int pendingLength = 0;
+    private int state = 0;
+
+    private Scan(Automaton automaton) {
+      this.automaton = automaton;
+      this.pending = new int[automaton.maxDepth + 1];
+    }
+
+    protected abstract void emitSymbol(int symbol);
+
+    protected abstract void emitReplacement(int targetIndex);
+
+    protected void match(int symbol) {
+      var next = automaton.step(state, symbol);
+      var depth = automaton.depth[next];
+
+      // everything that fell off the front of the match window can be emitted
+      pending[pendingLength++] = symbol;
+      var drop = pendingLength - depth;
+      for (var i = 0; i < drop; ++i) {
+        emitSymbol(pending[i]);
+      }
+      if (drop > 0) {
+        System.arraycopy(pending, drop, pending, 0, depth);
+        pendingLength = depth;
+      }
+      state = next;
+
+      var targetIndex = automaton.match[next];
+      if (targetIndex >= 0) {
+        var prefixLength = depth - automaton.matchDepth[next];
+        for (var i = 0; i < prefixLength; ++i) {
+          emitSymbol(pending[i]);
+        }
+        emitReplacement(targetIndex);
+        pendingLength = 0;
+        state = 0;
+      }
+    }
+
+    protected void flush() {
+      for (var i = 0; i < pendingLength; ++i) {
+        emitSymbol(pending[i]);
+      }
+      pendingLength = 0;
+      state = 0;
+    }
+  }
+
+  private class CharScan extends Scan {
+    private final StringBuilder output;
+    private boolean isAfterHighSurrogate = false;
+
+    private CharScan(StringBuilder output) {
+      super(charAutomaton);
+      this.output = output;
+    }
+
+    private void feed(char c) {
+      if (nonAsciiReplacement == null || c < 0x80) {
+        isAfterHighSurrogate = false;
+        match(c);
+        return;
+      }
+
+      // one replacement per code point, even when a surrogate pair is split across chunks
+      if (!(isAfterHighSurrogate && Character.isLowSurrogate(c))) {
+        for (var i = 0; i < nonAsciiReplacement.length(); ++i) {
+          match(nonAsciiReplacement.charAt(i));
+        }
+      }
+      isAfterHighSurrogate = Character.isHighSurrogate(c);
+    }
+
+    @Override
+    protected void emitSymbol(int symbol) {
+      output.append((char) symbol);
+    }
+
+    @Override
+    protected void emitReplacement(int targetIndex) {
+      output.append(charReplacements[targetIndex]);
+    }
+  }
+
+  private class ByteScan extends Scan {
+    private final ByteArrayOutputStream output;
+
+    private ByteScan(ByteArrayOutputStream output) {
+      super(byteAutomaton);
+      this.output = output;
+    }
+
+    private void feed(int b) {
+      if (byteNonAsciiReplacement == null || b < 0x80) {
+        match(b);
+        return;
+      }
+
+      // one replacement per UTF-8 lead byte; continuation bytes are dropped
+      if (b >= 0xc0) {
+        for (var r : byteNonAsciiReplacement) {
+          match(r & 0xff);
+        }
+      }
+    }
+
+    @Override
+    protected void emitSymbol(int symbol) {
+      output.write(symbol);
+    }
+
+    @Override
+    protected void emitReplacement(int targetIndex) {
+      output.writeBytes(byteReplacements[targetIndex]);
+    }
+  }
+
+  /**
+   * Aho-Corasick automaton over int symbols: either the chars or the UTF-8 bytes
+   * of the targets
+   *
+   * ASCII transitions are fully resolved into a dense table; anything else walks
+   * the failure links
+   */
+  private static class Automaton {
+    private static final int DENSE_SIZE = 0x80;
+
+    private final List<int[]> dense = new ArrayList<>();
+    private final List<Map<Integer, Integer>> sparse = new ArrayList<>();
+    private final int[] fail;
+    private final int[] depth;
+    private final int[] match; // index of longest target ending in this state, or -1
+    private final int[] matchDepth;
+    private int maxDepth = 0;
+
+    private Automaton(List<int[]> targets) {
+      var depthList = new ArrayList<Integer>();
+      var matchList = new ArrayList<Integer>();
+      newState(depthList, matchList, 0);
+
+      for (var iTarget = 0; iTarget < targets.size(); ++iTarget) {
+        var state = 0;
+        for (var symbol : targets.get(iTarget)) {
+          var next = (symbol < DENSE_SIZE) ? dense.get(state)[symbol] : sparse.get(state).getOrDefault(symbol, -1);
+          if (next == -1) {
+            next = newState(depthList, matchList, depthList.get(state) + 1);
+            if (symbol < DENSE_SIZE) {
+              dense.get(state)[symbol] = next;
+            } else {
+              sparse.get(state).put(symbol, next);
+            }
+          }
+          state = next;
+        }
+        if (matchList.get(state) == -1) { // first target wins
+          matchList.set(state, iTarget);
+        }
+        maxDepth = Math.max(maxDepth, targets.get(iTarget).length);
+      }
+
+      var n = depthList.size();
+      fail = new int[n];
+      depth = depthList.stream().mapToInt(Integer::intValue).toArray();
+      match = matchList.stream().mapToInt(Integer::intValue).toArray();
+      matchDepth = new int[n];
+
+      // breadth first, so that failure links always point to finished states
+      var queue = new ArrayDeque<Integer>();
+      queue.add(0);
+      while (!queue.isEmpty()) {
+        int state = queue.remove();
+        if (match[state] != -1) {
+          matchDepth[state] = depth[state];
+        } else if (state != 0) {
+          match[state] = match[fail[state]];
+          matchDepth[state] = matchDepth[fail[state]];
+        }
+
+        var row = dense.get(state);
+        for (var symbol = 0; symbol < DENSE_SIZE; ++symbol) {
+          var child = row[symbol];
+          if (child == -1) {
+            row[symbol] = (state == 0) ? 0 : dense.get(fail[state])[symbol];
+          } else {
+            fail[child] = (state == 0) ? 0 : dense.get(fail[state])[symbol];
+            queue.add(child);
+          }
+        }
+        for (var entry : sparse.get(state).entrySet()) {
+          var child = entry.getValue();
+          fail[child] = (state == 0) ? 0 : step(fail[state], entry.getKey());
+          queue.add(child);
+        }
+      }
+    }
+
+    private int newState(List<Integer> depthList, List<Integer> matchList, int stateDepth) {
+      var row = new int[DENSE_SIZE];
+      Arrays.fill(row, -1);
+      dense.add(row);
+      sparse.add(new HashMap<>());
+      depthList.add(stateDepth);
+      matchList.add(-1);
+      return dense.size() - 1;
+    }
+
+    private int step(int state, int symbol) {
+      if (symbol < DENSE_SIZE) {
+        return dense.get(state)[symbol];
+      }
+
+      while (true) {
+        var next = sparse.get(state).get(symbol);
+        if (next != null) {
+          return next;
+        }
+        if (state == 0) {
+          return 0;
+        }
+        state = fail[state];
+      }
+    }
   }
 }
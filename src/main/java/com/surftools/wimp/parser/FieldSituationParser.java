@@ -47,8 +47,6 @@ public class FieldSituationParser extends AbstractBaseParser {
   private static final String[] OVERRIDE_LAT_LON_TAG_NAMES = new String[] {};
   private static final String MERGED_LAT_LON_TAG_NAMES;
 
-  // private static final Map<UnderlyingMessageType, Integer> typeCountMap;
-
   static {
     var set = new LinkedHashSet<String>();
     set.addAll(Arrays.asList(DEFAULT_LATLON_TAGS));
@@ -56,6 +54,26 @@ public class FieldSituationParser extends AbstractBaseParser {
     MERGED_LAT_LON_TAG_NAMES = "couldn't find lat/long within tags: " + set.toString();
   }
 
+  private static final FormBinder<FieldSituationMessage> BINDER = new FormBinder<>(FieldSituationMessage.class, //
+      FormBinder.SUPPLIED, "title", FormBinder.SUPPLIED, //
+      "precedence", "udtgfld", "msgnr", "msgto", "msgsender", "safetyneed", "comm0", //
+      "city", "county", "state", "territory", //
+      "pots", "comm1", "voip", "comm1a", //
+      "cell", "comm2", "celltext", "comm2a", //
+      "amfm", "comm3", //
+      "tvstatus", "comm4", "tvstatusb", "comm4b", "tvstatusc", "comm4c", //
+      "waterworks", "comm5", //
+      "powerworks", "comm6", "powerstable", "comm6a", //
+      "natgas", "comm9c", //
+      "inter", "comm7", //
+      "noaa", "noaacom", "noaab", "noaacomb", //
+      "message", "poc", FormBinder.SUPPLIED, FormBinder.SUPPLIED) //
+      .withVersion("RMS_Express_Form_Field Situation Report_viewer.xml") //
+      .withVersion("RMS_Express_Form_Field Situation Report 23_viewer.xml") //
+      .withVersion("RMS_Express_Form_Field Situation Report 25_viewer.xml") //
+      .withVersion("RMS_Express_Form_Field Situation Report 26_viewer.xml") //
+      .withVersion("RMS_Express_Form_Field Situation Report viewer.xml");
+
   public FieldSituationParser() {
   }
 
@@ -64,13 +82,14 @@ public class FieldSituationParser extends AbstractBaseParser {
     var messageId = message.messageId;
     var from = message.from;
 
-    UnderlyingMessageType underlyingMessageType = getUnderlyingMessageType(message);
-    if (underlyingMessageType == UnderlyingMessageType.UNSUPPORTED) {
-      return reject(message, RejectType.UNSUPPORTED_TYPE, underlyingMessageType.toString());
+    var attachmentName = getAttachmentName(message);
+    if (!BINDER.hasVersion(attachmentName)) {
+      return reject(message, RejectType.PROCESSING_ERROR,
+          "mId: " + messageId + ", from: " + from + ", unsupported variant: " + attachmentName);
     }
 
     try {
-      String xmlString = new String(message.attachments.get(underlyingMessageType.toString()));
+      String xmlString = new String(message.getAttachments().get(attachmentName));
 
       makeDocument(message.messageId, xmlString);
 
@@ -79,86 +98,11 @@ public class FieldSituationParser extends AbstractBaseParser {
         return reject(message, RejectType.CANT_PARSE_LATLONG, MERGED_LAT_LON_TAG_NAMES);
       }
 
-      String organization = getStringFromXml("title");
-      String precedence = getStringFromXml("precedence");
-      String formDateTime = getStringFromXml("udtgfld");
-      String task = getStringFromXml("msgnr");
-      String formTo = getStringFromXml("msgto");
-      String formFrom = getStringFromXml("msgsender");
-      String isHelpNeeded = getStringFromXml("safetyneed");
-      String neededHelp = getStringFromXml("comm0");
-
-      String city = getStringFromXml("city");
-      String county = getStringFromXml("county");
-      String state = getStringFromXml("state");
-      String territory = getStringFromXml("territory");
-
-      String landlineStatus = getStringFromXml("pots");
-      String landlineComments = getStringFromXml("comm1");
-
-      String voipStatus = getStringFromXml("voip");
-      String voipComments = getStringFromXml("comm1a");
-
-      String cellPhoneStatus = getStringFromXml("cell");
-      String cellPhoneComments = getStringFromXml("comm2");
-
-      String cellTextStatus = getStringFromXml("celltext");
-      String cellTextComments = getStringFromXml("comm2a");
-
-      String radioStatus = getStringFromXml("amfm");
-      String radioComments = getStringFromXml("comm3");
-
-      String tvStatus = getStringFromXml("tvstatus");
-      String tvComments = getStringFromXml("comm4");
-
-      String satTvStatus = getStringFromXml("tvstatusb");
-      String satTvComments = getStringFromXml("comm4b");
-
-      String cableTvStatus = getStringFromXml("tvstatusc");
-      String cableTvComments = getStringFromXml("comm4c");
-
-      String waterStatus = getStringFromXml("waterworks");
-      String waterComments = getStringFromXml("comm5");
-
-      String powerStatus = getStringFromXml("powerworks");
-      String powerComments = getStringFromXml("comm6");
-
-      String powerStable = getStringFromXml("powerstable");
-      String powerStableComments = getStringFromXml("comm6a");
-
-      String naturalGasStatus = getStringFromXml("natgas");
-      String naturalGasComments = getStringFromXml("comm9c");
-
-      String internetStatus = getStringFromXml("inter");
-      String internetComments = getStringFromXml("comm7");
-
-      String noaaStatus = getStringFromXml("noaa");
-      String noaaComments = getStringFromXml("noaacom");
-
-      String noaaAudioDegraded = getStringFromXml("noaab");
-      String noaaAudioDegradedComments = getStringFromXml("noaacomb");
-
-      String additionalComments = getStringFromXml("message");
-      String poc = getStringFromXml("poc");
       String formVersion = parseFormVersion(getStringFromXml("templateversion"));
       var expressVersion = getExpressVersion(message, "Express Version:");
 
-      // TODO verify that I've identified base variables and variants
-
-      FieldSituationMessage m = new FieldSituationMessage(//
-          message, organization, formLocation, //
-          precedence, formDateTime, task, formTo, formFrom, isHelpNeeded, neededHelp, //
-          city, county, state, territory, //
-          landlineStatus, landlineComments, voipStatus, voipComments, //
-          cellPhoneStatus, cellPhoneComments, cellTextStatus, cellTextComments, //
-          radioStatus, radioComments, //
-          tvStatus, tvComments, satTvStatus, satTvComments, cableTvStatus, cableTvComments, //
-          waterStatus, waterComments, //
-          powerStatus, powerComments, powerStable, powerStableComments, //
-          naturalGasStatus, naturalGasComments, //
-          internetStatus, internetComments, //
-          noaaStatus, noaaComments, noaaAudioDegraded, noaaAudioDegradedComments, //
-          additionalComments, poc, formVersion, expressVersion);
+      var binder = BINDER.forVersion(attachmentName);
+      var m = binder.bind(currentTagIndex, message, formLocation, formVersion, expressVersion);
 
       return m;
     } catch (Exception e) {
@@ -168,20 +112,18 @@ public class FieldSituationParser extends AbstractBaseParser {
   }
 
   /**
-   * return the underlying type, NOT FSR
+   * return the name of the form attachment, whichever variant it is; each
+   * supported variant is declared as a version of the binding
    *
    * @param message
    * @return
    */
-  private UnderlyingMessageType getUnderlyingMessageType(ExportedMessage message) {
-    var attachments = message.attachments;
+  private String getAttachmentName(ExportedMessage message) {
+    var attachments = message.getAttachments();
     if (attachments != null && attachments.size() > 0) {
-      var attachmentNames = attachments.keySet();
-
-      for (var name : attachmentNames) {
+      for (var name : attachments.keySet()) {
         if (name.startsWith(MessageType.FIELD_SITUATION.rmsViewerName())) {
-          var umt = UnderlyingMessageType.fromString(name);
-          return umt;
+          return name;
         }
       }
     }
@@ -200,35 +142,4 @@ public class FieldSituationParser extends AbstractBaseParser {
       return string;
     }
   }
-
-  private static enum UnderlyingMessageType {
-
-    FIELD_SITUATION_REPORT_20("RMS_Express_Form_Field Situation Report_viewer.xml"), //
-    FIELD_SITUATION_REPORT_23("RMS_Express_Form_Field Situation Report 23_viewer.xml"), //
-    FIELD_SITUATION_REPORT_25("RMS_Express_Form_Field Situation Report 25_viewer.xml"), //
-    FIELD_SITUATION_REPORT_26("RMS_Express_Form_Field Situation Report 26_viewer.xml"), //
-    FIELD_SITUATION_REPORT("RMS_Express_Form_Field Situation Report viewer.xml"), //
-    UNSUPPORTED("unsupported");
-
-    private final String attachmentName;
-
-    private UnderlyingMessageType(String attachmentName) {
-      this.attachmentName = attachmentName;
-    }
-
-    public static UnderlyingMessageType fromString(String string) {
-      for (UnderlyingMessageType umt : UnderlyingMessageType.values()) {
-        if (umt.toString().equals(string)) {
-          return umt;
-        }
-      }
-      return null;
-    }
-
-    @Override
-    public String toString() {
-      return attachmentName;
-    }
-
-  }
 }
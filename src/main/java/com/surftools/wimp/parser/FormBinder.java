@@ -0,0 +1,294 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.surftools.wimp.parser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * declarative binding of form XML elements to a message (or row) constructor
+ *
+ * each constructor parameter is declared, in order, as either the name of the
+ * XML element that supplies it, or SUPPLIED for values the parser computes
+ * itself (the ExportedMessage, locations, versions, etc.), which are passed to
+ * bind() in the same order. The constructor is resolved once, as a spreading
+ * MethodHandle, and every value is read from the document's XmlTagIndex.
+ *
+ * tag names may contain ROW_NUMBER and/or ROW_LETTER, for forms with numbered
+ * rows; neither character can appear in an XML element name
+ *
+ * withVersion() declares a form version whose element names differ from the
+ * base binding, and forVersion() picks the binding for a version, so a new
+ * version of a form is one more declaration rather than new parsing code
+ *
+ * between beginCapture() and endCapture(), the constructor arguments of the last
+ * bind() or construct() on the calling thread are kept, so that a message can be
+ * rebuilt later with construct(), without its form XML
+ *
+ * @author bobt
+ *
+ */
+public class FormBinder<T> {
+  public static final String SUPPLIED = "?";
+  public static final String ROW_NUMBER = "#";
+  public static final String ROW_LETTER = "@";
+
+  /**
+   * a constructed message, as its type and constructor arguments
+   */
+  public record Bound(Class<?> type, Object[] args) {
+  };
+
+  private static final Map<Class<?>, MethodHandle> constructorMap = new ConcurrentHashMap<>();
+  private static final ThreadLocal<Bound[]> captureHolder = new ThreadLocal<>();
+
+  private final Class<T> type;
+  private final String[] tags;
+  private final int suppliedCount;
+  private final MethodHandle constructor;
+  private final Map<String, FormBinder<T>> versionMap = new HashMap<>();
+  private final Map<Integer, String[]> rowTagsMap = new ConcurrentHashMap<>();
+
+  /**
+   * there can be only one (base) binding per type, since construct() finds the
+   * constructor by type alone
+   *
+   * @param type
+   * @param tags
+   */
+  public FormBinder(Class<T> type, String... tags) {
+    this(type, tags, makeConstructor(type, tags));
+    var existing = constructorMap.putIfAbsent(type, constructor);
+    if (existing != null) {
+      throw new RuntimeException("duplicate binding for " + type.getName());
+    }
+  }
+
+  private FormBinder(Class<T> type, String[] tags, MethodHandle constructor) {
+    this.type = type;
+    this.tags = tags;
+    this.constructor = constructor;
+    this.suppliedCount = (int) Arrays.stream(tags).filter(SUPPLIED::equals).count();
+  }
+
+  /**
+   * declare a form version whose element names differ from the base binding
+   *
+   * @param formVersion
+   *          whatever names the version: its templateversion, attachment name,
+   *          etc.
+   * @param renames
+   *          pairs of base tag name, tag name in this version; none if the
+   *          version only needs to be known
+   * @return this, for chaining
+   */
+  public FormBinder<T> withVersion(String formVersion, String... renames) {
+    if (renames.length % 2 != 0) {
+      throw new IllegalArgumentException("renames must be pairs of tag names, not: " + Arrays.toString(renames));
+    }
+
+    var renameMap = new HashMap<String, String>();
+    for (var i = 0; i < renames.length; i += 2) {
+      renameMap.put(renames[i], renames[i + 1]);
+    }
+
+    var versionTags = new String[tags.length];
+    for (var i = 0; i < tags.length; ++i) {
+      versionTags[i] = renameMap.getOrDefault(tags[i], tags[i]);
+    }
+
+    versionMap.put(formVersion, new FormBinder<>(type, versionTags, constructor));
+    return this;
+  }
+
+  /**
+   * @param formVersion
+   * @return true if the version was declared with withVersion()
+   */
+  public boolean hasVersion(String formVersion) {
+    return formVersion != null && versionMap.containsKey(formVersion);
+  }
+
+  /**
+   * @param formVersion
+   * @return the binding for that version, or the base binding if not declared
+   */
+  public FormBinder<T> forVersion(String formVersion) {
+    if (formVersion == null) {
+      return this;
+    }
+    return versionMap.getOrDefault(formVersion, this);
+  }
+
+  /**
+   * construct from the current document
+   *
+   * @param index
+   * @param supplied
+   *          values for the SUPPLIED parameters, in declaration order
+   * @return
+   */
+  public T bind(XmlTagIndex index, Object... supplied) {
+    var args = makeArgs(tags, index, supplied);
+    var holder = captureHolder.get();
+    if (holder != null) {
+      holder[0] = new Bound(type, args);
+    }
+    return type.cast(invoke(type, constructor, args));
+  }
+
+  /**
+   * construct one numbered row (one-based) from the current document
+   *
+   * @param index
+   * @param row
+   * @param supplied
+   * @return
+   */
+  public T bindRow(XmlTagIndex index, int row, Object... supplied) {
+    var rowTags = rowTagsMap.computeIfAbsent(row, this::makeRowTags);
+    return type.cast(invoke(type, constructor, makeArgs(rowTags, index, supplied)));
+  }
+
+  /**
+   * start keeping the arguments of bind() and construct() on this thread
+   */
+  public static void beginCapture() {
+    captureHolder.set(new Bound[1]);
+  }
+
+  /**
+   * stop keeping the arguments of bind() and construct() on this thread
+   *
+   * @return the last bind() or construct() since beginCapture(), or null if none
+   */
+  public static Bound endCapture() {
+    var holder = captureHolder.get();
+    captureHolder.remove();
+    return (holder == null) ? null : holder[0];
+  }
+
+  /**
+   * rebuild a message from its captured arguments
+   *
+   * @param bound
+   * @return
+   */
+  public static Object construct(Bound bound) {
+    var constructor = constructorMap.get(bound.type());
+    if (constructor == null) {
+      throw new RuntimeException("no binding for " + bound.type().getName());
+    }
+    var holder = captureHolder.get();
+    if (holder != null) {
+      holder[0] = bound;
+    }
+    return invoke(bound.type(), constructor, bound.args());
+  }
+
+  private Object[] makeArgs(String[] tags, XmlTagIndex index, Object[] supplied) {
+    if (supplied.length != suppliedCount) {
+      throw new IllegalArgumentException(
+          type.getSimpleName() + " binding needs " + suppliedCount + " supplied values, got " + supplied.length);
+    }
+
+    var args = new Object[tags.length];
+    var suppliedIndex = 0;
+    for (var i = 0; i < tags.length; ++i) {
+      var tag = tags[i];
+      args[i] = SUPPLIED.equals(tag) ? supplied[suppliedIndex++] : index.get(tag);
+    }
+    return args;
+  }
+
+  private static Object invoke(Class<?> type, MethodHandle constructor, Object[] args) {
+    try {
+      return (Object) constructor.invokeExact(args);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new RuntimeException("could not construct " + type.getSimpleName() + ": " + t.getMessage(), t);
+    }
+  }
+
+  private String[] makeRowTags(int row) {
+    var number = String.valueOf(row);
+    var letter = String.valueOf((char) ('a' + row - 1));
+    var rowTags = new String[tags.length];
+    for (var i = 0; i < tags.length; ++i) {
+      var tag = tags[i];
+      rowTags[i] = SUPPLIED.equals(tag) ? SUPPLIED : tag.replace(ROW_NUMBER, number).replace(ROW_LETTER, letter);
+    }
+    return rowTags;
+  }
+
+  private static MethodHandle makeConstructor(Class<?> type, String[] tags) {
+    Constructor<?> found = null;
+    for (var candidate : type.getConstructors()) {
+      if (candidate.getParameterCount() != tags.length) {
+        continue;
+      }
+
+      var parameterTypes = candidate.getParameterTypes();
+      var isMatch = true;
+      for (var i = 0; i < tags.length; ++i) {
+        if (!SUPPLIED.equals(tags[i]) && !parameterTypes[i].isAssignableFrom(String.class)) {
+          isMatch = false;
+          break;
+        }
+      }
+
+      if (isMatch) {
+        if (found != null) {
+          throw new RuntimeException("ambiguous binding for " + type.getName() + ", " + tags.length + " parameters");
+        }
+        found = candidate;
+      }
+    }
+
+    if (found == null) {
+      throw new RuntimeException("no constructor for " + type.getName() + " matching " + Arrays.toString(tags));
+    }
+
+    try {
+      return MethodHandles.publicLookup() //
+          .unreflectConstructor(found) //
+          .asSpreader(Object[].class, tags.length) //
+          .asType(MethodType.methodType(Object.class, Object[].class));
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException("could not access constructor for " + type.getName() + ": " + e.getMessage(), e);
+    }
+  }
+}
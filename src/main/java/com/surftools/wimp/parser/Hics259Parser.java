@@ -36,39 +36,29 @@ import com.surftools.wimp.message.Hics259Message;
 import com.surftools.wimp.message.Hics259Message.CasualtyEntry;
 
 public class Hics259Parser extends AbstractBaseParser {
+  // rows are lettered for counts, numbered for comments
+  private static final FormBinder<CasualtyEntry> CASUALTY_BINDER = new FormBinder<>(CasualtyEntry.class, //
+      "@1", "@2", "comment#");
+
+  private static final FormBinder<Hics259Message> BINDER = new FormBinder<>(Hics259Message.class, //
+      FormBinder.SUPPLIED, //
+      "incidentname", "thedate", "thetime", //
+      "opperiod", "datefrom", "timefrom", "dateto", "timeto", //
+      FormBinder.SUPPLIED, //
+      "prepedbychief", "facility", FormBinder.SUPPLIED, FormBinder.SUPPLIED);
+
   @Override
   public ExportedMessage parse(ExportedMessage message) {
     try {
-      String xmlString = new String(message.attachments.get(MessageType.HICS_259.rmsViewerName()));
+      String xmlString = new String(message.getAttachments().get(MessageType.HICS_259.rmsViewerName()));
       makeDocument(message.messageId, xmlString);
 
-      var incidentName = getStringFromXml("incidentname");
-
-      var formDate = getStringFromXml("thedate");
-      var formTime = getStringFromXml("thetime");
-
-      var operationalPeriod = getStringFromXml("opperiod");
-      var opFromDate = getStringFromXml("datefrom");
-      var opFromTime = getStringFromXml("timefrom");
-      var opToDate = getStringFromXml("dateto");
-      var opToTime = getStringFromXml("timeto");
-
       var casualtyMap = new HashMap<String, CasualtyEntry>();
-
       var keys = Hics259Message.CASUALTY_KEYS;
       for (var i = 1; i <= keys.size(); ++i) {
-        var key = keys.get(i - 1);
-        var letter = Character.valueOf((char) ('a' + i - 1)).toString();
-        var adultValue = getStringFromXml(letter + "1");
-        var childValue = getStringFromXml(letter + "2");
-        var comment = getStringFromXml("comment" + i);
-        var entry = new CasualtyEntry(adultValue, childValue, comment);
-        casualtyMap.put(key, entry);
+        casualtyMap.put(keys.get(i - 1), CASUALTY_BINDER.bindRow(currentTagIndex, i));
       }
 
-      var patientTrackingManager = getStringFromXml("prepedbychief");
-      var facilityName = getStringFromXml("facility");
-
       // HICS 259 v 0.2
       var formVersion = getStringFromXml("templateversion");
       if (formVersion != null) {
@@ -80,11 +70,7 @@ public class Hics259Parser extends AbstractBaseParser {
 
       var expressVersion = getExpressVersion(message, "Senders Express Version:");
 
-      var m = new Hics259Message(message, //
-          incidentName, formDate, formTime, //
-          operationalPeriod, opFromDate, opFromTime, opToDate, opToTime, //
-          casualtyMap, //
-          patientTrackingManager, facilityName, formVersion, expressVersion);
+      var m = BINDER.bind(currentTagIndex, message, casualtyMap, formVersion, expressVersion);
 
       return m;
     } catch (Exception e) {
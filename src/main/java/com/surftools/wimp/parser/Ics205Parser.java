@@ -49,17 +49,27 @@ public class Ics205Parser extends AbstractBaseParser {
 
   private static boolean strictParsing = false; // should a parse error fail here, or downstream during grading
 
+  private static final FormBinder<RadioEntry> RADIO_ENTRY_BINDER = new FormBinder<>(RadioEntry.class, //
+      FormBinder.SUPPLIED, //
+      "zonegrp#", "ch#", "function#", "channelname#", "assignment#", //
+      "rx#", "nwmode#", "rxtone#", //
+      "tx#", "tnwmode#", "txtone#", //
+      "mode#", "remarks#");
+
+  private static final FormBinder<Ics205Message> BINDER = new FormBinder<>(Ics205Message.class, //
+      FormBinder.SUPPLIED, "formtitle", "incident_name", //
+      "activitydatetime2", "datefrom", "dateto", "timefrom", "timeto", //
+      "specialinstructions", "preparedname", "activitydatetime1", "iap_page", //
+      FormBinder.SUPPLIED, FormBinder.SUPPLIED, FormBinder.SUPPLIED);
+
   @Override
   public ExportedMessage parse(ExportedMessage message) {
     try {
 
-      String xmlString = new String(message.attachments.get(MessageType.ICS_205.rmsViewerName()));
+      String xmlString = new String(message.getAttachments().get(MessageType.ICS_205.rmsViewerName()));
 
       makeDocument(message.messageId, xmlString);
 
-      var organization = getStringFromXml("formtitle");
-      var incidentName = getStringFromXml("incident_name");
-
       var dateTimePreparedString = getStringFromXml("activitydatetime2");
       try {
         LocalDateTime.parse(dateTimePreparedString, DT_FORMATTER);
@@ -70,14 +80,6 @@ public class Ics205Parser extends AbstractBaseParser {
         }
       }
 
-      var dateFrom = getStringFromXml("datefrom");
-      var dateTo = getStringFromXml("dateto");
-      var timeFrom = getStringFromXml("timefrom");
-      var timeTo = getStringFromXml("timeto");
-
-      var specialInstructions = getStringFromXml("specialinstructions");
-      var approvedBy = getStringFromXml("preparedname");
-
       var radioEntries = makeRadioEntries();
 
       var formVersion = "";
@@ -110,9 +112,7 @@ public class Ics205Parser extends AbstractBaseParser {
 
       var expressVersion = getExpressVersion(message, "Senders Express Version:");
 
-      var m = new Ics205Message(message, organization, incidentName, //
-          dateTimePreparedString, dateFrom, dateTo, timeFrom, timeTo, //
-          specialInstructions, approvedBy, dateTimeApprovedString, iapPageString, //
+      var m = BINDER.bind(currentTagIndex, message, //
           radioEntries, formVersion, expressVersion);
 
       return m;
@@ -122,29 +122,9 @@ public class Ics205Parser extends AbstractBaseParser {
   }
 
   private List<RadioEntry> makeRadioEntries() {
-
     var list = new ArrayList<RadioEntry>();
     for (int i = 1; i <= 10; ++i) {
-      var rowNumber = i;
-      var zoneGroup = getStringFromXml("zonegrp" + i);
-      var channelNumber = getStringFromXml("ch" + i);
-      var function = getStringFromXml("function" + i);
-      var channelName = getStringFromXml("channelname" + i);
-      var assignment = getStringFromXml("assignment" + i);
-      var rxFrequency = getStringFromXml("rx" + i);
-      var rxNarrowWide = getStringFromXml("nwmode" + i);
-      var rxTone = getStringFromXml("rxtone" + i);
-      var txFrequency = getStringFromXml("tx" + i);
-      var txNarrowWide = getStringFromXml("tnwmode" + i);
-      var txTone = getStringFromXml("txtone" + i);
-      var mode = getStringFromXml("mode" + i);
-      var remarks = getStringFromXml("remarks" + i);
-      var entry = new RadioEntry(rowNumber, //
-          zoneGroup, channelNumber, function, channelName, assignment, //
-          rxFrequency, rxNarrowWide, rxTone, //
-          txFrequency, txNarrowWide, txTone, //
-          mode, remarks);
-      list.add(entry);
+      list.add(RADIO_ENTRY_BINDER.bindRow(currentTagIndex, i, i));
     }
     return list;
   }
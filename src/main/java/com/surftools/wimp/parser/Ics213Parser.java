@@ -36,11 +36,17 @@ public class Ics213Parser extends AbstractBaseParser {
   private static final String IS_EXERCISE = "** THIS IS AN EXERCISE **";
   private static final String[] mapLocationTags = new String[] { "maplat", "maplon" };
 
+  private static final FormBinder<Ics213Message> BINDER = new FormBinder<>(Ics213Message.class, //
+      FormBinder.SUPPLIED, "formtitle", "inc_name", //
+      "fm_name", "to_name", "subjectline", "mdate", "mtime", //
+      "message", "approved_name", "approved_postitle", //
+      FormBinder.SUPPLIED, FormBinder.SUPPLIED, FormBinder.SUPPLIED, FormBinder.SUPPLIED, FormBinder.SUPPLIED);
+
   @Override
   public ExportedMessage parse(ExportedMessage message) {
     try {
       String theAttachmentName = null;
-      for (var attachmentName : message.attachments.keySet()) {
+      for (var attachmentName : message.getAttachments().keySet()) {
         if (attachmentName == null) {
           continue;
         }
@@ -51,29 +57,10 @@ public class Ics213Parser extends AbstractBaseParser {
         }
       }
 
-      String xmlString = new String(message.attachments.get(theAttachmentName));
+      String xmlString = new String(message.getAttachments().get(theAttachmentName));
       makeDocument(message.messageId, xmlString);
 
-      String organization = getStringFromXml("formtitle");
-      var incidentName = getStringFromXml("inc_name");
-
-      var formFrom = getStringFromXml("fm_name");
-      var formTo = getStringFromXml("to_name");
-      var formSubject = getStringFromXml("subjectline");
-      var formDate = getStringFromXml("mdate");
-      var formTime = getStringFromXml("mtime");
-
-      // we want the value of the <message> element
-      var formMessage = getStringFromXml("message");
-      if (formMessage == null) {
-        formMessage = getStringFromXml("Message");
-      }
-
-      var approvedBy = getStringFromXml("approved_name");
-      var position = getStringFromXml("approved_postitle");
-
-      var isExerciseString = getStringFromXml("isexercise");
-      var isExercise = isExerciseString != null && isExerciseString.equals(IS_EXERCISE);
+      var isExercise = getStringFromXml("isexercise").equals(IS_EXERCISE);
       var formLocation = getLatLongFromXml(mapLocationTags);
       var formVersion = getStringFromXml("templateversion");
       if (formVersion != null) {
@@ -84,9 +71,7 @@ public class Ics213Parser extends AbstractBaseParser {
       }
       var expressVersion = getExpressVersion(message, "Senders Express Version:");
 
-      var m = new Ics213Message(message, organization, incidentName, //
-          formFrom, formTo, formSubject, formDate, formTime, //
-          formMessage, approvedBy, position, //
+      var m = BINDER.bind(currentTagIndex, message, //
           isExercise, formLocation, formVersion, expressVersion, DATA_SOURCE_RMS_VIEWER);
       return m;
     } catch (Exception e) {
@@ -36,64 +36,37 @@ import com.surftools.wimp.message.Ics213RRMessage;
 import com.surftools.wimp.message.Ics213RRMessage.LineItem;
 
 public class Ics213RrParser extends AbstractBaseParser {
+  private static final FormBinder<LineItem> LINE_ITEM_BINDER = new FormBinder<>(LineItem.class, //
+      "qty#", "kind#", "type#", "item#", "reqdatetime#", "estdatetime#", "cost#");
+
+  private static final FormBinder<Ics213RRMessage> BINDER = new FormBinder<>(Ics213RRMessage.class, //
+      FormBinder.SUPPLIED, "formtitle", "incname", "activitydatetime1", "reqnum", //
+      FormBinder.SUPPLIED, //
+      "delivery", "subs1", "reqname", "priority", "secapp", //
+      "lognum", "supinfo", "supname", //
+      "poc", "notes", "authsig", //
+      "activitydatetime2", "orderby", //
+      "fincomm", "finrepname", "activitydatetime3", //
+      FormBinder.SUPPLIED, FormBinder.SUPPLIED);
+
   public Ics213RrParser() {
   }
 
   @Override
   public ExportedMessage parse(ExportedMessage message) {
     try {
-      var xmlString = new String(message.attachments.get(MessageType.ICS_213_RR.rmsViewerName()));
+      var xmlString = new String(message.getAttachments().get(MessageType.ICS_213_RR.rmsViewerName()));
       makeDocument(message.messageId, xmlString);
 
-      var organization = getStringFromXml("formtitle");
-      var incidentName = getStringFromXml("incname");
-      var activityDateTime = getStringFromXml("activitydatetime1");
-      var requestNumber = getStringFromXml("reqnum");
-
       var lineItems = new ArrayList<LineItem>();
-
       for (var i = 1; i <= 8; ++i) {
-        var quantity = getStringFromXml("qty" + String.valueOf(i));
-        var kind = getStringFromXml("kind" + String.valueOf(i));
-        var type = getStringFromXml("type" + String.valueOf(i));
-        var item = getStringFromXml("item" + String.valueOf(i));
-        var requestedDateTime = getStringFromXml("reqdatetime" + String.valueOf(i));
-        var estimatedDateTime = getStringFromXml("estdatetime" + String.valueOf(i));
-        var cost = getStringFromXml("cost" + String.valueOf(i));
-        var lineItem = new LineItem(quantity, kind, type, item, requestedDateTime, estimatedDateTime, cost);
-        lineItems.add(lineItem);
+        lineItems.add(LINE_ITEM_BINDER.bindRow(currentTagIndex, i));
       }
 
-      var delivery = getStringFromXml("delivery");
-      var substitutes = getStringFromXml("subs1");
-      var requestedBy = getStringFromXml("reqname");
-      var priority = getStringFromXml("priority");
-      var approvedBy = getStringFromXml("secapp");
-
-      var logisticsOrderNumber = getStringFromXml("lognum");
-      var supplierInfo = getStringFromXml("supinfo");
-      var supplierName = getStringFromXml("supname");
-      var supplierPointOfContact = getStringFromXml("poc");
-      var supplyNotes = getStringFromXml("notes");
-      var logisticsAuthorizer = getStringFromXml("authsig");
-      var logisticsDateTime = getStringFromXml("activitydatetime2");
-      var orderedBy = getStringFromXml("orderby");
-
-      var financeComments = getStringFromXml("fincomm");
-      var financeName = getStringFromXml("finrepname");
-      var financeDateTime = getStringFromXml("activitydatetime3");
-
       var formVersion = getStringFromXml("templateversion");
       var expressVersion = getExpressVersion(message, "Senders Express Version:");
 
-      var m = new Ics213RRMessage(message, organization, incidentName, activityDateTime, requestNumber, //
-          lineItems, //
-          delivery, substitutes, requestedBy, priority, approvedBy, //
-          logisticsOrderNumber, supplierInfo, supplierName, //
-          supplierPointOfContact, supplyNotes, logisticsAuthorizer, //
-          logisticsDateTime, orderedBy, //
-          financeComments, financeName, financeDateTime, //
-          formVersion, expressVersion);
+      var m = BINDER.bind(currentTagIndex, message, lineItems, formVersion, expressVersion);
 
       return m;
 
@@ -0,0 +1,96 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * find the <message> ... </message> elements of an exported message file by
+ * scanning the raw bytes, typically of a memory-mapped file, without decoding
+ * anything
+ *
+ * works because the tags are ASCII, and so can't appear within any other UTF-8
+ * character; and because the mime content of a message is XML-escaped
+ *
+ * @author bobt
+ *
+ */
+public class MessageBoundaryScanner {
+  private static final byte[] START_TAG = "<message>".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] END_TAG = "</message>".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * return one slice (a view, not a copy) per complete message element
+   *
+   * @param buffer
+   * @return
+   */
+  public static List<ByteBuffer> scan(ByteBuffer buffer) {
+    var slices = new ArrayList<ByteBuffer>();
+
+    var limit = buffer.limit();
+    var position = buffer.position();
+    while (position < limit) {
+      var start = indexOf(buffer, START_TAG, position, limit);
+      if (start == -1) {
+        break;
+      }
+
+      var end = indexOf(buffer, END_TAG, start + START_TAG.length, limit);
+      if (end == -1) {
+        break; // truncated last message
+      }
+      end += END_TAG.length;
+
+      slices.add(buffer.slice(start, end - start));
+      position = end;
+    }
+
+    return slices;
+  }
+
+  private static int indexOf(ByteBuffer buffer, byte[] target, int from, int limit) {
+    var first = target[0];
+    var last = limit - target.length;
+    outer: for (var i = from; i <= last; ++i) {
+      if (buffer.get(i) != first) {
+        continue;
+      }
+      for (var j = 1; j < target.length; ++j) {
+        if (buffer.get(i + j) != target[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+}
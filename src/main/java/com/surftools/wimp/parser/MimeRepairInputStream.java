@@ -0,0 +1,274 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.parser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * repair known Winlink Express quirks in raw MIME content, as it is read
+ *
+ * content is examined one line at a time. Lines outside of a region claimed by a
+ * RepairRule are passed through untouched; only lines within a region are
+ * rewritten
+ *
+ * @author bobt
+ *
+ */
+public class MimeRepairInputStream extends FilterInputStream {
+
+  /**
+   * a region of lines that need repair, from a start line through (but not
+   * including) an end line
+   *
+   * lines are passed without their trailing "\n", but with any "\r"
+   */
+  public interface RepairRule {
+    public boolean isStart(byte[] line, int offset, int length);
+
+    public boolean isEnd(byte[] line, int offset, int length);
+
+    public byte[] repair(byte[] line, int offset, int length);
+  }
+
+  /**
+   * ETO_2024_09_19: some people send in messages with this:
+   *
+   * Content-Disposition: attachment; name=""ETO Welfare Message //
+   * Exercise".pdf"; filename=""ETO Welfare Message Exercise".pdf"//
+   * Content-Type: text/plain; name=""ETO Welfare Message Exercise".pdf"//
+   * Content-Transfer-Encoding: base64//
+   *
+   * so fix the quoting, up to the next blank line
+   */
+  public static class ContentDispositionQuoteRule implements RepairRule {
+    private static final byte[] PREFIX = "Content-Disposition: attachment;".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public boolean isStart(byte[] line, int offset, int length) {
+      if (length < PREFIX.length || !Arrays.equals(line, offset, offset + PREFIX.length, PREFIX, 0, PREFIX.length)) {
+        return false;
+      }
+
+      for (var i = offset + PREFIX.length; i < offset + length - 1; ++i) {
+        if (line[i] == '"' && line[i + 1] == '"') {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean isEnd(byte[] line, int offset, int length) {
+      for (var i = offset; i < offset + length; ++i) {
+        if (!Character.isWhitespace(line[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public byte[] repair(byte[] line, int offset, int length) {
+      // ISO_8859_1 maps every byte to a char and back again
+      var string = new String(line, offset, length, StandardCharsets.ISO_8859_1);
+      string = string.replace("\"\"", "\"");
+      string = string.replace("\".pdf", ".pdf");
+      return string.getBytes(StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  public static final List<RepairRule> DEFAULT_RULES = List.of(new ContentDispositionQuoteRule());
+
+  private final List<RepairRule> rules;
+  private final boolean[] isActive;
+
+  private final byte[] chunk = new byte[8192];
+  private int chunkIndex = 0;
+  private int chunkLength = 0;
+  private boolean isEof = false;
+
+  private byte[] line = new byte[1024];
+  private int lineLength = 0;
+
+  private byte[] output; // the current line, repaired or not
+  private int outputIndex = 0;
+  private int outputLength = 0;
+
+  public MimeRepairInputStream(InputStream in) {
+    this(in, DEFAULT_RULES);
+  }
+
+  public MimeRepairInputStream(InputStream in, List<RepairRule> rules) {
+    super(in);
+    this.rules = rules;
+    this.isActive = new boolean[rules.size()];
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (outputIndex == outputLength) {
+      if (!nextLine()) {
+        return -1;
+      }
+    }
+    return output[outputIndex++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    while (outputIndex == outputLength) {
+      if (!nextLine()) {
+        return -1;
+      }
+    }
+
+    var n = Math.min(len, outputLength - outputIndex);
+    System.arraycopy(output, outputIndex, b, off, n);
+    outputIndex += n;
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    var skipped = 0L;
+    while (skipped < n) {
+      if (outputIndex == outputLength && !nextLine()) {
+        break;
+      }
+      var step = (int) Math.min(n - skipped, outputLength - outputIndex);
+      outputIndex += step;
+      skipped += step;
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (outputLength - outputIndex) + (chunkLength - chunkIndex);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readlimit) {
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * read the next line, including its "\n", and repair it if needed
+   *
+   * @return false at end of input
+   * @throws IOException
+   */
+  private boolean nextLine() throws IOException {
+    lineLength = 0;
+    var isTerminated = false;
+    while (!isTerminated) {
+      if (chunkIndex == chunkLength) {
+        if (isEof) {
+          break;
+        }
+        chunkLength = in.read(chunk, 0, chunk.length);
+        chunkIndex = 0;
+        if (chunkLength == -1) {
+          chunkLength = 0;
+          isEof = true;
+          break;
+        }
+      }
+
+      var start = chunkIndex;
+      while (chunkIndex < chunkLength && chunk[chunkIndex] != '\n') {
+        ++chunkIndex;
+      }
+      if (chunkIndex < chunkLength) {
+        ++chunkIndex; // include the \n
+        isTerminated = true;
+      }
+      append(chunk, start, chunkIndex - start);
+    }
+
+    if (lineLength == 0) {
+      return false;
+    }
+
+    var contentLength = isTerminated ? lineLength - 1 : lineLength;
+    byte[] repaired = null;
+    for (var iRule = 0; iRule < rules.size(); ++iRule) {
+      var rule = rules.get(iRule);
+      var content = (repaired == null) ? line : repaired;
+      var length = (repaired == null) ? contentLength : repaired.length;
+      if (!isActive[iRule] && rule.isStart(content, 0, length)) {
+        isActive[iRule] = true;
+      }
+      if (isActive[iRule] && rule.isEnd(content, 0, length)) {
+        isActive[iRule] = false;
+      }
+      if (isActive[iRule]) {
+        repaired = rule.repair(content, 0, length);
+      }
+    }
+
+    if (repaired == null) {
+      output = line;
+      outputLength = lineLength;
+    } else {
+      output = Arrays.copyOf(repaired, repaired.length + (isTerminated ? 1 : 0));
+      outputLength = output.length;
+      if (isTerminated) {
+        output[outputLength - 1] = '\n';
+      }
+    }
+    outputIndex = 0;
+    return true;
+  }
+
+  private void append(byte[] bytes, int offset, int length) {
+    if (lineLength + length > line.length) {
+      line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+    }
+    System.arraycopy(bytes, offset, line, lineLength, length);
+    lineLength += length;
+  }
+}
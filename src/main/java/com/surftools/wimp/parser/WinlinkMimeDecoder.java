@@ -0,0 +1,600 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.parser;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * decode the narrow shape of MIME that Winlink Express exports: a flat
+ * multipart/mixed of a text/plain body plus (base64) attachments, like the RMS
+ * Viewer XML and FormData.txt, or a single text/plain body
+ *
+ * plain text and attachments are decoded straight out of the content bytes,
+ * with the same results as MimeMessageParser, but without a Session, MimeMessage
+ * or intermediate DataSource copies
+ *
+ * anything else -- nested multiparts, RFC 2047/2231 encoded names, escaped or
+ * malformed parameters, unknown encodings or charsets, content that a
+ * MimeRepairInputStream rule would rewrite -- is not recognized, and decode()
+ * returns null, so that the caller can fall back to the general path
+ *
+ * @author bobt
+ *
+ */
+public class WinlinkMimeDecoder {
+
+  public record DecodedMime(String plainContent, Map<String, byte[]> attachments) {
+  };
+
+  /**
+   * control flow only, so no stack trace
+   */
+  @SuppressWarnings("serial")
+  private static class NotRecognizedException extends Exception {
+    private NotRecognizedException() {
+      super(null, null, false, false);
+    }
+  }
+
+  private static final NotRecognizedException NOT_RECOGNIZED = new NotRecognizedException();
+
+  private static final String MIME_SPECIALS = "()<>@,;:\\\"/[]?=";
+
+  private static final byte[] BASE64_VALUES = new byte[128];
+  static {
+    Arrays.fill(BASE64_VALUES, (byte) -1);
+    var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for (var i = 0; i < alphabet.length(); ++i) {
+      BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+    }
+  }
+
+  private record HeaderValue(String value, Map<String, String> parameters) {
+  };
+
+  private final byte[] bytes;
+  private int position = 0; // start of the next line
+
+  private String plainContent;
+  private boolean isHtmlFound;
+  private final Map<String, byte[]> attachments = new LinkedHashMap<>();
+  private int attachmentIndex = -1;
+
+  private WinlinkMimeDecoder(byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  /**
+   * @param bytes
+   *          raw MIME content, including headers
+   * @return decoded content, or null if the content isn't recognized
+   */
+  public static DecodedMime decode(byte[] bytes) {
+    try {
+      return new WinlinkMimeDecoder(bytes).decode();
+    } catch (NotRecognizedException e) {
+      return null;
+    }
+  }
+
+  private DecodedMime decode() throws NotRecognizedException {
+    checkRepairRules();
+
+    var headers = readHeaders();
+    var contentType = parseHeaderValue(headers.get("content-type"), true);
+    if (contentType == null) {
+      contentType = new HeaderValue("text/plain", Map.of());
+    }
+
+    if (contentType.value.startsWith("multipart/")) {
+      var encoding = headers.get("content-transfer-encoding");
+      if (encoding != null && !isIdentityEncoding(encoding)) {
+        throw NOT_RECOGNIZED;
+      }
+      var boundary = contentType.parameters.get("boundary");
+      if (boundary == null || boundary.isEmpty()) {
+        throw NOT_RECOGNIZED;
+      }
+      readParts(boundary.getBytes(StandardCharsets.ISO_8859_1));
+    } else {
+      handlePart(headers, contentType, position, bytes.length);
+    }
+
+    return new DecodedMime(plainContent, attachments);
+  }
+
+  /**
+   * if any rule would start repairing, the bytes aren't what Jakarta sees
+   *
+   * @throws NotRecognizedException
+   */
+  private void checkRepairRules() throws NotRecognizedException {
+    var start = 0;
+    while (start < bytes.length) {
+      var end = lineEnd(start);
+      var length = contentEnd(start, end) - start;
+      for (var rule : MimeRepairInputStream.DEFAULT_RULES) {
+        if (rule.isStart(bytes, start, length)) {
+          throw NOT_RECOGNIZED;
+        }
+      }
+      start = end + 1;
+    }
+  }
+
+  /**
+   * @param start
+   * @return index of the terminating \n, or bytes.length
+   */
+  private int lineEnd(int start) {
+    var end = start;
+    while (end < bytes.length && bytes[end] != '\n') {
+      ++end;
+    }
+    return end;
+  }
+
+  /**
+   * @return end of a line's content, without any \r
+   */
+  private int contentEnd(int start, int lineEnd) {
+    return (lineEnd > start && bytes[lineEnd - 1] == '\r') ? lineEnd - 1 : lineEnd;
+  }
+
+  /**
+   * read (unfolded) headers up to, and including, the blank line
+   *
+   * @return lower-case name -> first value
+   * @throws NotRecognizedException
+   */
+  private Map<String, String> readHeaders() throws NotRecognizedException {
+    var headers = new HashMap<String, String>();
+    String name = null;
+    StringBuilder value = null;
+    while (true) {
+      if (position >= bytes.length) {
+        throw NOT_RECOGNIZED; // no body
+      }
+      var end = lineEnd(position);
+      var line = new String(bytes, position, contentEnd(position, end) - position, StandardCharsets.ISO_8859_1);
+      position = end + 1;
+
+      if (line.isEmpty()) {
+        break;
+      }
+
+      if (line.charAt(0) == ' ' || line.charAt(0) == '\t') {
+        if (value == null || line.isBlank()) {
+          throw NOT_RECOGNIZED;
+        }
+        value.append(line);
+        continue;
+      }
+
+      if (name != null) {
+        headers.putIfAbsent(name, value.toString().trim());
+      }
+      var colonIndex = line.indexOf(':');
+      if (colonIndex <= 0) {
+        throw NOT_RECOGNIZED;
+      }
+      name = line.substring(0, colonIndex).trim().toLowerCase();
+      value = new StringBuilder(line.substring(colonIndex + 1));
+    }
+
+    if (name != null) {
+      headers.putIfAbsent(name, value.toString().trim());
+    }
+    return headers;
+  }
+
+  /**
+   * one level of parts, each ending just before the line terminator that
+   * precedes the next delimiter
+   *
+   * @param boundary
+   * @throws NotRecognizedException
+   */
+  private void readParts(byte[] boundary) throws NotRecognizedException {
+    // skip the preamble
+    while (true) {
+      if (position >= bytes.length) {
+        throw NOT_RECOGNIZED; // no delimiter
+      }
+
+      var lineStart = position;
+      var end = lineEnd(lineStart);
+      position = end + 1;
+
+      var delimiter = matchDelimiter(lineStart, end, boundary);
+      if (delimiter == 1) {
+        break;
+      } else if (delimiter == 2) {
+        return; // no parts at all
+      }
+    }
+
+    while (true) {
+      var headers = readHeaders();
+      var contentStart = position;
+
+      var delimiter = 0;
+      var lineStart = position;
+      while (delimiter == 0) {
+        if (position >= bytes.length) {
+          throw NOT_RECOGNIZED; // missing close delimiter
+        }
+        lineStart = position;
+        var end = lineEnd(lineStart);
+        position = end + 1;
+        delimiter = matchDelimiter(lineStart, end, boundary);
+      }
+
+      // content doesn't include the line terminator before the delimiter
+      var contentEnd = lineStart;
+      if (contentEnd > contentStart && bytes[contentEnd - 1] == '\n') {
+        --contentEnd;
+        if (contentEnd > contentStart && bytes[contentEnd - 1] == '\r') {
+          --contentEnd;
+        }
+      }
+
+      var contentType = parseHeaderValue(headers.get("content-type"), true);
+      if (contentType == null) {
+        contentType = new HeaderValue("text/plain", Map.of());
+      }
+      handlePart(headers, contentType, contentStart, contentEnd);
+
+      if (delimiter == 2) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return 0 if not a delimiter, 1 for --boundary, 2 for --boundary--
+   */
+  private int matchDelimiter(int start, int end, byte[] boundary) {
+    end = contentEnd(start, end);
+    while (end > start && (bytes[end - 1] == ' ' || bytes[end - 1] == '\t')) {
+      --end;
+    }
+
+    var length = end - start;
+    if (length != boundary.length + 2 && length != boundary.length + 4) {
+      return 0;
+    }
+    if (bytes[start] != '-' || bytes[start + 1] != '-') {
+      return 0;
+    }
+    for (var i = 0; i < boundary.length; ++i) {
+      if (bytes[start + 2 + i] != boundary[i]) {
+        return 0;
+      }
+    }
+    if (length == boundary.length + 2) {
+      return 1;
+    }
+    return (bytes[end - 2] == '-' && bytes[end - 1] == '-') ? 2 : 0;
+  }
+
+  /**
+   * same choices as MimeMessageParser: first non-attachment text/plain is the
+   * plain content, first non-attachment text/html is dropped, everything else is
+   * an attachment
+   *
+   * @throws NotRecognizedException
+   */
+  private void handlePart(Map<String, String> headers, HeaderValue contentType, int start, int end)
+      throws NotRecognizedException {
+    var disposition = parseHeaderValue(headers.get("content-disposition"), false);
+    var isAttachment = disposition != null && disposition.value.equals("attachment");
+
+    var type = contentType.value;
+    if (type.startsWith("multipart/") || type.startsWith("message/")) {
+      throw NOT_RECOGNIZED;
+    }
+
+    var encoding = headers.get("content-transfer-encoding");
+    if (type.equals("text/plain") && plainContent == null && !isAttachment) {
+      plainContent = new String(decodeContent(encoding, start, end), getCharset(contentType));
+      return;
+    }
+
+    if (type.equals("text/html") && !isHtmlFound && !isAttachment) {
+      getCharset(contentType);
+      isHtmlFound = true;
+      return;
+    }
+
+    ++attachmentIndex;
+    String name = null;
+    if (disposition != null) {
+      name = disposition.parameters.get("filename");
+    }
+    if (name == null) {
+      name = contentType.parameters.get("name");
+    }
+    if (name != null && name.contains("=?")) {
+      throw NOT_RECOGNIZED; // RFC 2047 encoded-word
+    }
+    if (name == null || name.length() == 0) {
+      name = "attachment-" + attachmentIndex;
+    }
+    attachments.put(name, decodeContent(encoding, start, end));
+  }
+
+  /**
+   * only the charsets Winlink Express uses; Jakarta decodes a missing charset
+   * (or "us-ascii") as ISO-8859-1, so we do too
+   */
+  private Charset getCharset(HeaderValue contentType) throws NotRecognizedException {
+    var charsetName = contentType.parameters.get("charset");
+    if (charsetName == null) {
+      return StandardCharsets.ISO_8859_1;
+    }
+
+    if (charsetName.equalsIgnoreCase("us-ascii") || charsetName.equalsIgnoreCase("iso-8859-1")) {
+      return StandardCharsets.ISO_8859_1;
+    } else if (charsetName.equalsIgnoreCase("utf-8")) {
+      return StandardCharsets.UTF_8;
+    } else {
+      throw NOT_RECOGNIZED;
+    }
+  }
+
+  private boolean isIdentityEncoding(String encoding) {
+    return encoding.equalsIgnoreCase("7bit") || encoding.equalsIgnoreCase("8bit")
+        || encoding.equalsIgnoreCase("binary");
+  }
+
+  private byte[] decodeContent(String encoding, int start, int end) throws NotRecognizedException {
+    if (encoding == null || isIdentityEncoding(encoding)) {
+      return Arrays.copyOfRange(bytes, start, end);
+    } else if (encoding.equalsIgnoreCase("base64")) {
+      return decodeBase64(start, end);
+    } else if (encoding.equalsIgnoreCase("quoted-printable")) {
+      return decodeQuotedPrintable(start, end);
+    } else {
+      throw NOT_RECOGNIZED;
+    }
+  }
+
+  /**
+   * two passes: validate and size, then decode directly into the result
+   *
+   * only whitespace is ignored, and padding is only allowed at the very end
+   */
+  private byte[] decodeBase64(int start, int end) throws NotRecognizedException {
+    var nSymbols = 0;
+    var nPads = 0;
+    for (var i = start; i < end; ++i) {
+      var b = bytes[i];
+      if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+        continue;
+      }
+      if (b == '=') {
+        ++nPads;
+        continue;
+      }
+      if (b < 0 || BASE64_VALUES[b] == -1 || nPads > 0) {
+        throw NOT_RECOGNIZED;
+      }
+      ++nSymbols;
+    }
+    if ((nSymbols + nPads) % 4 != 0 || nPads > 2 || (nPads > 0 && nSymbols % 4 + nPads != 4)) {
+      throw NOT_RECOGNIZED;
+    }
+
+    var result = new byte[nSymbols * 6 / 8];
+    var accumulator = 0;
+    var nBits = 0;
+    var index = 0;
+    for (var i = start; i < end && index < result.length; ++i) {
+      var b = bytes[i];
+      if (b < 0 || BASE64_VALUES[b] == -1) {
+        continue;
+      }
+      accumulator = (accumulator << 6) | BASE64_VALUES[b];
+      nBits += 6;
+      if (nBits >= 8) {
+        nBits -= 8;
+        result[index++] = (byte) (accumulator >> nBits);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * same as the Jakarta decoder: soft line breaks are removed, as are spaces
+   * before a line break or the end; any questionable "=" is not recognized
+   */
+  private byte[] decodeQuotedPrintable(int start, int end) throws NotRecognizedException {
+    var result = new byte[end - start];
+    var index = 0;
+    var i = start;
+    while (i < end) {
+      var b = bytes[i];
+      if (b == ' ') {
+        var j = i;
+        while (j < end && bytes[j] == ' ') {
+          ++j;
+        }
+        if (j == end || bytes[j] == '\r' || bytes[j] == '\n') {
+          i = j; // trailing whitespace
+          continue;
+        }
+        while (i < j) {
+          result[index++] = ' ';
+          ++i;
+        }
+        continue;
+      }
+
+      if (b == '=') {
+        if (i + 1 < end && bytes[i + 1] == '\n') {
+          i += 2;
+          continue;
+        }
+        if (i + 1 < end && bytes[i + 1] == '\r') {
+          i += (i + 2 < end && bytes[i + 2] == '\n') ? 3 : 2;
+          continue;
+        }
+        if (i + 2 >= end) {
+          throw NOT_RECOGNIZED;
+        }
+        var high = Character.digit(bytes[i + 1], 16);
+        var low = Character.digit(bytes[i + 2], 16);
+        if (high == -1 || low == -1) {
+          throw NOT_RECOGNIZED;
+        }
+        result[index++] = (byte) ((high << 4) | low);
+        i += 3;
+        continue;
+      }
+
+      result[index++] = b;
+      ++i;
+    }
+    return (index == result.length) ? result : Arrays.copyOf(result, index);
+  }
+
+  /**
+   * parse "type/subtype; name=value; ..." or "disposition; name=value; ..."
+   *
+   * @return null if value is null; lower-case type and parameter names
+   * @throws NotRecognizedException
+   *           for anything but tokens and simple quoted-strings
+   */
+  private HeaderValue parseHeaderValue(String value, boolean hasSubtype) throws NotRecognizedException {
+    if (value == null) {
+      return null;
+    }
+
+    var tokenizer = new Tokenizer(value);
+    var type = tokenizer.token();
+    if (hasSubtype) {
+      tokenizer.expect('/');
+      type = type + "/" + tokenizer.token();
+    }
+
+    var parameters = new HashMap<String, String>();
+    while (true) {
+      if (tokenizer.isAtEnd()) {
+        break;
+      }
+      tokenizer.expect(';');
+      if (tokenizer.isAtEnd()) {
+        break;
+      }
+      var name = tokenizer.token().toLowerCase();
+      if (name.indexOf('*') >= 0) {
+        throw NOT_RECOGNIZED; // RFC 2231
+      }
+      tokenizer.expect('=');
+      var parameterValue = tokenizer.tokenOrQuotedString();
+      if (parameters.put(name, parameterValue) != null) {
+        throw NOT_RECOGNIZED;
+      }
+    }
+    return new HeaderValue(type.toLowerCase(), parameters);
+  }
+
+  private static class Tokenizer {
+    private final String string;
+    private int index = 0;
+
+    private Tokenizer(String string) {
+      this.string = string;
+    }
+
+    private void skipWhitespace() {
+      while (index < string.length()) {
+        var c = string.charAt(index);
+        if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+          break;
+        }
+        ++index;
+      }
+    }
+
+    private boolean isAtEnd() {
+      skipWhitespace();
+      return index == string.length();
+    }
+
+    private void expect(char c) throws NotRecognizedException {
+      skipWhitespace();
+      if (index == string.length() || string.charAt(index) != c) {
+        throw NOT_RECOGNIZED;
+      }
+      ++index;
+    }
+
+    private String token() throws NotRecognizedException {
+      skipWhitespace();
+      var start = index;
+      while (index < string.length()) {
+        var c = string.charAt(index);
+        if (c <= ' ' || c >= 0x7f || MIME_SPECIALS.indexOf(c) >= 0) {
+          break;
+        }
+        ++index;
+      }
+      if (index == start) {
+        throw NOT_RECOGNIZED;
+      }
+      return string.substring(start, index);
+    }
+
+    private String tokenOrQuotedString() throws NotRecognizedException {
+      skipWhitespace();
+      if (index == string.length() || string.charAt(index) != '"') {
+        return token();
+      }
+
+      var start = ++index;
+      while (index < string.length()) {
+        var c = string.charAt(index);
+        if (c == '\\' || c == '\r' || c == '\n') {
+          throw NOT_RECOGNIZED;
+        }
+        if (c == '"') {
+          return string.substring(start, index++);
+        }
+        ++index;
+      }
+      throw NOT_RECOGNIZED; // unterminated
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * every element value of a form's XML document, found in a single traversal
+ *
+ * get(tagName) answers exactly what getElementsByTagName(tagName) on the whole
+ * document used to: the (trimmed) value of the first child of the first element
+ * with that name, in document order. When that's missing and the name starts
+ * with a lower-case letter, the capitalized name's value is used instead; that
+ * fallback is resolved when the index is built, so every lookup is one probe
+ *
+ * @author bobt
+ *
+ */
+public class XmlTagIndex {
+  // tag name -> value of the first such element; a null value means the first
+  // such element had no text, which is different from no such element
+  private final Map<String, String> valueMap = new HashMap<>();
+
+  public XmlTagIndex(Document document) {
+    // pre-order, iteratively, same as getElementsByTagName
+    Node node = document.getDocumentElement();
+    while (node != null) {
+      if (node.getNodeType() == Node.ELEMENT_NODE) {
+        var name = node.getNodeName();
+        if (!valueMap.containsKey(name)) {
+          var child = node.getFirstChild();
+          var value = (child == null) ? null : child.getNodeValue();
+          valueMap.put(name, (value == null) ? null : value.trim());
+        }
+      }
+      node = next(node);
+    }
+
+    // lower-case lookups fall back to the capitalized name
+    var fallbackMap = new HashMap<String, String>();
+    for (var entry : valueMap.entrySet()) {
+      var name = entry.getKey();
+      var first = name.charAt(0);
+      var lower = Character.toLowerCase(first);
+      if (lower == first || !Character.isLowerCase(lower) || entry.getValue() == null) {
+        continue;
+      }
+
+      var lowerName = lower + name.substring(1);
+      if (!capitalize(lowerName).equals(name) || valueMap.get(lowerName) != null) {
+        continue;
+      }
+      fallbackMap.put(lowerName, entry.getValue());
+    }
+    valueMap.putAll(fallbackMap);
+  }
+
+  /**
+   * @param tagName
+   * @return the trimmed value, or "" if not present
+   */
+  public String get(String tagName) {
+    var value = valueMap.get(tagName);
+    return (value == null) ? "" : value;
+  }
+
+  private static Node next(Node node) {
+    var child = node.getFirstChild();
+    if (child != null) {
+      return child;
+    }
+
+    while (node != null) {
+      var sibling = node.getNextSibling();
+      if (sibling != null) {
+        return sibling;
+      }
+      node = node.getParentNode();
+    }
+    return null;
+  }
+
+  private static String capitalize(String name) {
+    return name.substring(0, 1).toUpperCase() + name.substring(1);
+  }
+}
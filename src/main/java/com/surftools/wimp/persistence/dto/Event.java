@@ -28,6 +28,7 @@ SOFTWARE.
 package com.surftools.wimp.persistence.dto;
 
 import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.core.CallSignPool;
 
 /**
  * Data Transfer Object (DTO) for Event, a join between a User and an Exercise
@@ -38,6 +39,10 @@ public record Event(long id, //
     String call, // alternative to userId
     LatLongPair location, int feedbackCount, String feedback, String context) {
 
+  public Event {
+    call = CallSignPool.intern(call);
+  }
+
   public static Event updateUserId(Event old, long newUserId, long newExerciseId) {
     return new Event(old.id, newUserId, newExerciseId, old.call, //
         old.location, old.feedbackCount, old.feedback, old.context);
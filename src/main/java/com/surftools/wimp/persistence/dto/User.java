@@ -29,9 +29,14 @@ package com.surftools.wimp.persistence.dto;
 
 import java.time.LocalDate;
 
+import com.surftools.wimp.core.CallSignPool;
+
 /**
  * Data Transfer Object (DTO) for User
  */
 public record User(long id, String call, String name, boolean isActive, LocalDate dateJoined) {
 
+  public User {
+    call = CallSignPool.intern(call);
+  }
 }
@@ -143,7 +143,6 @@ public abstract class BasePracticeProcessor extends AbstractBaseProcessor {
   private boolean hintOnPerfect = false;
   private String hintContent = "";
 
-  @SuppressWarnings("unchecked")
   public void initialize(IConfigurationManager cm, IMessageManager mm, MessageType _processorMessageType) {
 
     processorMessageType = _processorMessageType;
@@ -162,11 +161,11 @@ public abstract class BasePracticeProcessor extends AbstractBaseProcessor {
     windowOpenDT = LocalDateTime.from(DTF.parse(cm.getAsString(Key.EXERCISE_WINDOW_OPEN)));
     windowCloseDT = LocalDateTime.from(DTF.parse(cm.getAsString(Key.EXERCISE_WINDOW_CLOSE)));
 
-    referenceMessage = (ExportedMessage) mm.getContextObject(PracticeProcessorTool.REFERENCE_MESSAGE_KEY);
+    referenceMessage = mm.getContext(PracticeProcessorTool.REFERENCE_MESSAGE_KEY);
 
-    ackMap = (Map<String, AckEntry>) mm.getContextObject(AcknowledgementProcessor.ACK_MAP);
+    ackMap = mm.getContext(AcknowledgementProcessor.ACK_MAP);
 
-    nextInstructions = (String) mm.getContextObject(PracticeProcessorTool.INSTRUCTIONS_KEY);
+    nextInstructions = mm.getContext(PracticeProcessorTool.INSTRUCTIONS_KEY);
 
     for (var i = 1; i <= 9; ++i) {
       clearinghouseList.add("ETO-0" + i + "@winlink.org");
@@ -420,7 +419,7 @@ public abstract class BasePracticeProcessor extends AbstractBaseProcessor {
     if (enableFeedbackForOnlyUnexpected) {
       // var ackTextMap = (Map<String, String>)
       // (mm.getContextObject(AcknowledgementProcessor.ACK_TEXT_MAP));
-      var nextInstructions = (String) mm.getContextObject(PracticeProcessorTool.INSTRUCTIONS_KEY);
+      var nextInstructions = mm.getContext(PracticeProcessorTool.INSTRUCTIONS_KEY);
       var allSenderSet = new HashSet<String>(ackMap.keySet());
       var expectedSenderList = outboundMessageList.stream().map(m -> m.to()).toList();
       allSenderSet.removeAll(expectedSenderList);
@@ -521,7 +520,7 @@ public abstract class BasePracticeProcessor extends AbstractBaseProcessor {
 
     WriteProcessor.writeString(lastWord, Path.of(outputPathName, exerciseDate + "-lastWord.txt"));
     logger.info("adding lastWord: \n" + lastWord);
-    mm.putContextObject(IMessageManager.LAST_WORD, lastWord);
+    mm.putContext(IMessageManager.LAST_WORD, lastWord);
   }
 
   record Legend(String label, String color, Predicate<MapEntry> predicate, Function<MapEntry, String> popupGenerator) {
@@ -27,11 +27,14 @@ SOFTWARE.
 
 package com.surftools.wimp.practice.tools;
 
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.kohsuke.args4j.CmdLineParser;
@@ -41,9 +44,15 @@ import org.slf4j.LoggerFactory;
 
 import com.surftools.utils.FileUtils;
 import com.surftools.wimp.configuration.Key;
-import com.surftools.wimp.core.MessageManager;
+import com.surftools.wimp.core.CallSignPool;
+import com.surftools.wimp.core.ContextKey;
+import com.surftools.wimp.message.ExportedMessage;
 import com.surftools.wimp.practice.misc.PracticeJsonMessageDeserializer;
+import com.surftools.wimp.practice.misc.PracticeSummary;
+import com.surftools.wimp.processors.std.AbstractBaseProcessor;
+import com.surftools.wimp.processors.std.FilterProcessor;
 import com.surftools.wimp.processors.std.PipelineProcessor;
+import com.surftools.wimp.processors.std.ReadProcessor;
 import com.surftools.wimp.schedule.ScheduleCheckResult;
 import com.surftools.wimp.schedule.ScheduleManager;
 import com.surftools.wimp.schedule.ScheduleRecord;
@@ -55,9 +64,11 @@ import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.core.FileAppender;
 
 public class PracticeProcessorTool {
-  public static final String REFERENCE_MESSAGE_KEY = "referenceMessage";
-  public static final String INSTRUCTIONS_KEY = "instructions";
-  public static final String CONFIGURATION_FILE_KEY = "configurationFileName";
+  public static final ContextKey<ExportedMessage> REFERENCE_MESSAGE_KEY = new ContextKey<>("referenceMessage",
+      ExportedMessage.class);
+  public static final ContextKey<String> INSTRUCTIONS_KEY = new ContextKey<>("instructions", String.class);
+  public static final ContextKey<String> CONFIGURATION_FILE_KEY = new ContextKey<>("configurationFileName",
+      String.class);
 
   static {
     System.setProperty("logback.configurationFile", "resources/logback.xml");
@@ -74,6 +85,14 @@ public class PracticeProcessorTool {
   @Option(name = "--config", usage = "practice onfiguration file name", required = true)
   private String configurationFileName;
 
+  @Option(name = "--watch", usage = "keep running, re-running the whole pipeline whenever input changes;"
+      + " only reading and parsing of unchanged exports is saved, by the read and classifier caches", required = false)
+  private boolean isWatchEnabled = false;
+
+  @Option(name = "--debounceSeconds", usage = "quiet time after last input change before re-processing", //
+      required = false)
+  private int debounceSeconds = 5;
+
   private ScheduleCheckResult checkResult;
   private ScheduleRecord scheduleRecord;
 
@@ -182,17 +201,29 @@ public class PracticeProcessorTool {
       cm.putString(Key.OUTBOUND_MESSAGE_SENDER, "ETO-PRACTICE");
       cm.putString(Key.OUTBOUND_MESSAGE_SUBJECT, "ETO Practice Exercise Feedback");
 
+      if (isWatchEnabled) {
+        if (enableFinalize) {
+          logger.warn("finalize disabled in watch mode; re-run without --watch to finalize");
+          enableFinalize = false;
+        }
+
+        // only parse new or changed export files and messages on each re-run
+        if (cm.getAsString(Key.READ_CACHE_ENABLED) == null) {
+          cm.putBoolean(Key.READ_CACHE_ENABLED, true);
+        }
+        if (cm.getAsString(Key.CLASSIFIER_CACHE_ENABLED) == null) {
+          cm.putBoolean(Key.CLASSIFIER_CACHE_ENABLED, true);
+        }
+      }
+
       cm.putBoolean(Key.ENABLE_FINALIZE, enableFinalize);
 
-      var mm = new MessageManager();
-      mm.putContextObject(REFERENCE_MESSAGE_KEY, referenceMessage);
-      mm.putContextObject(INSTRUCTIONS_KEY, instructionText);
-      mm.putContextObject(CONFIGURATION_FILE_KEY, configurationFileName);
+      runPipeline(cm, referenceMessage, instructionText);
 
-      var pipeline = new PipelineProcessor();
-      pipeline.initialize(cm, mm);
-      pipeline.process();
-      pipeline.postProcess();
+      if (isWatchEnabled) {
+        var inputPath = Path.of(exercisesPathName, exerciseYearString, exerciseDateString, "input");
+        watch(inputPath, cm, referenceMessage, instructionText);
+      }
 
     } catch (Exception e) {
       logger.error("Exception: " + e.getLocalizedMessage());
@@ -201,6 +232,139 @@ public class PracticeProcessorTool {
     logger.info("end run");
   }
 
+  private void runPipeline(IConfigurationManager cm, ExportedMessage referenceMessage, String instructionText) {
+    // static state that would otherwise leak into a warm re-run; the other
+    // processor statics (ackMap, outbound messages, epochDate, ...) are
+    // re-assigned by their initialize(). This list is kept by hand: a processor
+    // that adds static state, not re-assigned by initialize(), must be reset
+    // here too, or watch mode re-runs will see the previous run's values
+    AbstractBaseProcessor.resetInitialization();
+    PracticeSummary.resetRelocationIndex();
+    FilterProcessor.resetSenderSets();
+    CallSignPool.clear();
+
+    var mm = PipelineProcessor.makeMessageManager(cm);
+    mm.putContext(REFERENCE_MESSAGE_KEY, referenceMessage);
+    mm.putContext(INSTRUCTIONS_KEY, instructionText);
+    mm.putContext(CONFIGURATION_FILE_KEY, configurationFileName);
+
+    var pipeline = new PipelineProcessor();
+    pipeline.initialize(cm, mm);
+    pipeline.process();
+    pipeline.postProcess();
+  }
+
+  /**
+   * watch the input folder and re-run the pipeline, in this warm JVM, after
+   * exports stop arriving for debounceSeconds
+   *
+   * only Winlink export (.xml, .xml.gz, .zip) files and the reference file
+   * trigger a re-run; the pipeline itself writes other files (allFeedback.txt,
+   * configuration.txt) into input. Configuration, schedule and instructions are
+   * not re-read; the reference message is re-parsed only if its file changed.
+   * Runs until killed.
+   *
+   * every re-run is the whole pipeline, from Read to Cleanup, even if only the
+   * reference changed; no stage's output is kept between runs. What is saved is
+   * only the reading of unchanged export files and the classifying and parsing
+   * of unchanged messages, by the read and classifier caches. A warm re-run
+   * also depends on runPipeline() resetting every processor's static state
+   *
+   * @param inputPath
+   * @param cm
+   * @param referenceMessage
+   * @param instructionText
+   */
+  private void watch(Path inputPath, IConfigurationManager cm, ExportedMessage referenceMessage, String instructionText)
+      throws Exception {
+    var referenceFileName = exerciseDateString + "-reference.json";
+    var debounceMillis = Math.max(0, debounceSeconds) * 1000L;
+
+    try (var watchService = FileSystems.getDefault().newWatchService()) {
+      inputPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+          StandardWatchEventKinds.ENTRY_DELETE);
+      logger.info("watching " + inputPath + " for new exports, debounce: " + debounceSeconds + " seconds");
+
+      while (true) {
+        // block for the first change, then keep draining until it's quiet
+        var key = watchService.take();
+        var isExportChanged = false;
+        var isReferenceChanged = false;
+        while (key != null) {
+          for (var event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              isExportChanged = true;
+              continue;
+            }
+            var fileName = event.context().toString();
+            if (fileName.equals(referenceFileName)) {
+              isReferenceChanged = true;
+            } else if (ReadProcessor.isExportFileName(fileName)) {
+              isExportChanged = true;
+            }
+          }
+          if (!key.reset()) {
+            logger.error("input folder: " + inputPath + " no longer watchable, exiting");
+            return;
+          }
+          key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (!isExportChanged && !isReferenceChanged) {
+          continue;
+        }
+
+        if (isReferenceChanged) {
+          var refFilePath = Path.of(inputPath.toString(), referenceFileName);
+          try {
+            var jsonString = Files.readString(refFilePath);
+            referenceMessage = new PracticeJsonMessageDeserializer().deserialize(jsonString,
+                scheduleRecord.messageType());
+            logger.info("re-read reference message from: " + refFilePath);
+          } catch (Exception e) {
+            logger.error("Exception re-reading reference file: " + refFilePath + ", keeping previous, "
+                + e.getMessage());
+          }
+        }
+
+        var startMillis = System.currentTimeMillis();
+        logger.info(DASHES_72);
+        logger.info("input changed, re-running pipeline");
+        clearOutput(Path.of(inputPath.getParent().toString(), "output"));
+        try {
+          runPipeline(cm, referenceMessage, instructionText);
+        } catch (Exception e) {
+          logger.error("Exception re-running pipeline: " + e.getLocalizedMessage());
+          e.printStackTrace();
+        }
+        logger.info("re-run completed in " + (System.currentTimeMillis() - startMillis) + " msec");
+      } // end while forever
+    }
+  }
+
+  /**
+   * delete the previous run's output files, but not our log, which is still open
+   *
+   * @param outputPath
+   */
+  private void clearOutput(Path outputPath) {
+    var logFileName = exerciseDateString + "-log.txt";
+    try (Stream<Path> stream = Files.list(outputPath)) {
+      for (var path : stream.toList()) {
+        if (path.getFileName().toString().equals(logFileName)) {
+          continue;
+        }
+        if (Files.isDirectory(path)) {
+          FileUtils.deleteDirectory(path);
+        } else {
+          Files.delete(path);
+        }
+      }
+    } catch (Exception e) {
+      logger.error("Exception clearing output: " + outputPath + ", " + e.getMessage());
+    }
+  }
+
   /**
    * copy all files in the referencePath (for the given exerciseDate) to input
    *
@@ -0,0 +1,175 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.practice.tools.adhoc;
+
+import java.util.Random;
+
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.surftools.utils.location.CoordinateCodec;
+import com.surftools.utils.location.LatLongPair;
+
+/**
+ * microbenchmark for coordinate parsing: CoordinateCodec.parseDecimal against
+ * Double.parseDouble, and LatLongPair (which uses the codec as a fast path)
+ * against parsing its strings with Double.parseDouble
+ *
+ * every value is also checked for bit-for-bit agreement, so a run doubles as
+ * an equivalence test
+ *
+ * @author bobt
+ *
+ */
+public class CoordinateBenchmarkTool {
+  static {
+    System.setProperty("logback.configurationFile", "src/main/resources/logback.xml");
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(CoordinateBenchmarkTool.class);
+
+  @Option(name = "--values", usage = "# of coordinate values to generate", required = false)
+  private int valueCount = 200_000;
+
+  @Option(name = "--rounds", usage = "# of timed rounds, after as many warmup rounds", required = false)
+  private int roundCount = 10;
+
+  private volatile double sink; // defeat dead code elimination
+
+  public static void main(String[] args) {
+    var tool = new CoordinateBenchmarkTool();
+    CmdLineParser parser = new CmdLineParser(tool);
+    try {
+      parser.parseArgument(args);
+      tool.run();
+    } catch (Exception e) {
+      System.err.println(e.getMessage());
+      parser.printUsage(System.err);
+    }
+  }
+
+  public void run() {
+    logger.info("begin coordinate benchmark, values: " + valueCount + ", rounds: " + roundCount);
+    var latitudes = new String[valueCount];
+    var longitudes = new String[valueCount];
+    var random = new Random(2025);
+    for (var i = 0; i < valueCount; ++i) {
+      latitudes[i] = String.format("%." + random.nextInt(9) + "f", (random.nextDouble() - 0.5) * 180);
+      longitudes[i] = String.format("%." + random.nextInt(9) + "f", (random.nextDouble() - 0.5) * 360);
+    }
+
+    var mismatchCount = 0;
+    for (var i = 0; i < valueCount; ++i) {
+      for (var s : new String[] { latitudes[i], longitudes[i] }) {
+        var expected = Double.parseDouble(s);
+        var actual = CoordinateCodec.parseDecimal(s, 0, s.length());
+        if (Double.doubleToRawLongBits(expected) != Double.doubleToRawLongBits(actual)) {
+          ++mismatchCount;
+        }
+      }
+      var pair = new LatLongPair(latitudes[i], longitudes[i]);
+      if (!pair.isValid() || pair.getLatitudeAsDouble() != Double.parseDouble(latitudes[i])
+          || pair.getLongitudeAsDouble() != Double.parseDouble(longitudes[i])) {
+        ++mismatchCount;
+      }
+    }
+    logger.info("mismatches: " + mismatchCount);
+
+    var rates = new double[4];
+    for (var round = 0; round < 2 * roundCount; ++round) {
+      var isTimed = round >= roundCount;
+      var t0 = System.nanoTime();
+      sink = parseDoubles(latitudes, longitudes);
+      var t1 = System.nanoTime();
+      sink = parseDecimals(latitudes, longitudes);
+      var t2 = System.nanoTime();
+      sink = parsePairsWithDouble(latitudes, longitudes);
+      var t3 = System.nanoTime();
+      sink = parsePairs(latitudes, longitudes);
+      var t4 = System.nanoTime();
+      if (isTimed) {
+        rates[0] += 2d * valueCount / (t1 - t0) * 1000d / roundCount;
+        rates[1] += 2d * valueCount / (t2 - t1) * 1000d / roundCount;
+        rates[2] += 1d * valueCount / (t3 - t2) * 1000d / roundCount;
+        rates[3] += 1d * valueCount / (t4 - t3) * 1000d / roundCount;
+      }
+    }
+
+    logger.info(String.format("values/sec, millions: Double.parseDouble: %.2f, CoordinateCodec.parseDecimal: %.2f",
+        rates[0], rates[1]));
+    logger.info(String.format("pairs/sec, millions: via Double.parseDouble: %.2f, LatLongPair: %.2f", rates[2],
+        rates[3]));
+    logger.info("end coordinate benchmark");
+  }
+
+  private double parseDoubles(String[] latitudes, String[] longitudes) {
+    var sum = 0d;
+    for (var i = 0; i < latitudes.length; ++i) {
+      sum += Double.parseDouble(latitudes[i]) + Double.parseDouble(longitudes[i]);
+    }
+    return sum;
+  }
+
+  private double parseDecimals(String[] latitudes, String[] longitudes) {
+    var sum = 0d;
+    for (var i = 0; i < latitudes.length; ++i) {
+      sum += CoordinateCodec.parseDecimal(latitudes[i], 0, latitudes[i].length())
+          + CoordinateCodec.parseDecimal(longitudes[i], 0, longitudes[i].length());
+    }
+    return sum;
+  }
+
+  /**
+   * what a form's "lat,lon" costs without the fast path: validate, then get both
+   * values
+   */
+  private double parsePairsWithDouble(String[] latitudes, String[] longitudes) {
+    var sum = 0d;
+    for (var i = 0; i < latitudes.length; ++i) {
+      var latitude = Double.parseDouble(latitudes[i]);
+      var longitude = Double.parseDouble(longitudes[i]);
+      if (Math.abs(latitude) <= 90d && Math.abs(longitude) <= 180d) {
+        sum += Double.parseDouble(latitudes[i]) + Double.parseDouble(longitudes[i]);
+      }
+    }
+    return sum;
+  }
+
+  private double parsePairs(String[] latitudes, String[] longitudes) {
+    var sum = 0d;
+    for (var i = 0; i < latitudes.length; ++i) {
+      var pair = new LatLongPair(latitudes[i], longitudes[i]);
+      if (pair.isValid()) {
+        sum += pair.getLatitudeAsDouble() + pair.getLongitudeAsDouble();
+      }
+    }
+    return sum;
+  }
+}
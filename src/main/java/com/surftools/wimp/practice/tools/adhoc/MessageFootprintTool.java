@@ -0,0 +1,294 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.practice.tools.adhoc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.core.ColumnarMessageManager;
+import com.surftools.wimp.core.ConcurrentMessageManager;
+import com.surftools.wimp.core.IMessageManager;
+import com.surftools.wimp.core.IParser;
+import com.surftools.wimp.core.MessageManager;
+import com.surftools.wimp.core.RejectType;
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.PlainMessage;
+import com.surftools.wimp.message.RejectionMessage;
+import com.surftools.wimp.parser.FieldSituationParser;
+import com.surftools.wimp.parser.FormBinder;
+import com.surftools.wimp.parser.Ics213Parser;
+
+/**
+ * compare the heap used by each IMessageManager to hold a synthetic, year-sized
+ * corpus of messages
+ *
+ * header strings are made as a parser would, one instance per message; payloads
+ * are kept tiny, since they're the same for all managers (and can be bounded
+ * with spill.memoryBudgetMB)
+ *
+ * the mix of types is that of a typical exercise: 30% ICS-213 and 20% Field
+ * Situation Report forms, parsed from generated XML by their own parsers, 30%
+ * plain, 10% rejected and 10% unclassified messages. As in a classified run,
+ * forms only keep their FormBinder arguments for the columnar manager
+ *
+ * @author bobt
+ *
+ */
+public class MessageFootprintTool {
+  static {
+    System.setProperty("logback.configurationFile", "src/main/resources/logback.xml");
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(MessageFootprintTool.class);
+
+  private static final String[] SUBJECTS = { "ICS-213 ETO Practice Exercise", "Field Situation Report",
+      "Re: ETO weekly check-in", "Plain message check-in", "Hospital bed report" };
+
+  private static final String ICS_213_ATTACHMENT_NAME = "RMS_Express_Form_ICS213_Initial_Viewer.xml";
+  private static final String FSR_ATTACHMENT_NAME = "RMS_Express_Form_Field Situation Report 26_viewer.xml";
+
+  private static final String[] FSR_STATUS_TAGS = { "pots", "voip", "cell", "celltext", "amfm", "tvstatus",
+      "tvstatusb", "tvstatusc", "waterworks", "powerworks", "powerstable", "natgas", "inter", "noaa", "noaab" };
+  private static final String[] FSR_COMMENT_TAGS = { "comm1", "comm1a", "comm2", "comm2a", "comm3", "comm4",
+      "comm4b", "comm4c", "comm5", "comm6", "comm6a", "comm9c", "comm7", "noaacom", "noaacomb" };
+  private static final String[] STATUSES = { "YES", "NO", "Unknown" };
+  private static final String[] COMMENTS = { "", "", "", "intermittent", "down since 0800", "restored" };
+
+  @Option(name = "--messages", usage = "# of messages to generate", required = false)
+  private int messageCount = 300_000;
+
+  @Option(name = "--senders", usage = "# of distinct senders", required = false)
+  private int senderCount = 6_000;
+
+  @Option(name = "--managers", usage = "comma-delimited list of: default, columnar, concurrent", required = false)
+  private String managerNames = "default,columnar,concurrent";
+
+  public static void main(String[] args) {
+    var tool = new MessageFootprintTool();
+    CmdLineParser parser = new CmdLineParser(tool);
+    try {
+      parser.parseArgument(args);
+      tool.run();
+    } catch (Exception e) {
+      System.err.println(e.getMessage());
+      parser.printUsage(System.err);
+    }
+  }
+
+  public void run() {
+    logger.info("begin footprint, messages: " + messageCount + ", senders: " + senderCount);
+    for (var managerName : managerNames.split(",")) {
+      var baseBytes = getUsedBytes();
+      var messages = makeMessages(managerName.strip().equals("columnar"));
+      var messageBytes = getUsedBytes() - baseBytes;
+
+      var mm = makeManager(managerName.strip());
+      mm.load(messages);
+
+      messages = null;
+      var managerBytes = getUsedBytes() - baseBytes;
+
+      logger.info(String.format("%-10s messages alone: %,d KB, held by manager: %,d KB, %d bytes/message", //
+          managerName, messageBytes / 1024, managerBytes / 1024, managerBytes / messageCount));
+      mm.clear();
+    }
+    logger.info("end footprint");
+  }
+
+  private IMessageManager makeManager(String name) {
+    switch (name) {
+    case "default":
+      return new MessageManager();
+    case "columnar":
+      return new ColumnarMessageManager();
+    case "concurrent":
+      return new ConcurrentMessageManager();
+    default:
+      throw new IllegalArgumentException("unknown manager: " + name);
+    }
+  }
+
+  /**
+   * same seed every time, so every manager holds the same corpus
+   *
+   * @param isKeepingBindings
+   *          as the ClassifierProcessor does for the columnar manager
+   */
+  private List<ExportedMessage> makeMessages(boolean isKeepingBindings) {
+    var random = new Random(2025);
+    var ics213Parser = new Ics213Parser();
+    var fsrParser = new FieldSituationParser();
+    var calls = new String[senderCount];
+    for (var i = 0; i < senderCount; ++i) {
+      calls[i] = "" + (char) ('K' + random.nextInt(3)) + random.nextInt(10) + (char) ('A' + random.nextInt(26))
+          + (char) ('A' + random.nextInt(26)) + (char) ('A' + random.nextInt(26)) + "-" + i;
+    }
+
+    var startDateTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+    var messages = new ArrayList<ExportedMessage>(messageCount);
+    for (var i = 0; i < messageCount; ++i) {
+      var from = new String(calls[random.nextInt(senderCount)]);
+      var messageId = Long.toString(0x1000000000L + random.nextInt(1 << 30), 36).toUpperCase();
+      var to = new String("ETO-0" + random.nextInt(10));
+      var dateTime = startDateTime.plusMinutes(random.nextInt(365 * 24 * 60));
+      var location = new LatLongPair(String.format("%.4f", 30 + random.nextDouble() * 15),
+          String.format("%.4f", -120 + random.nextDouble() * 40));
+      ExportedMessage message = new ExportedMessage(messageId, from, new String(from), to, new String(to), "",
+          new String(SUBJECTS[random.nextInt(SUBJECTS.length)]), dateTime, location, new String("GPS"),
+          "Message-ID: " + messageId, false, new String("export-" + (1 + i % 52) + ".xml"), null);
+      switch (i % 10) {
+      case 0:
+      case 1:
+      case 2:
+        message = makeForm(ics213Parser, message, ICS_213_ATTACHMENT_NAME, makeIcs213Xml(random, i),
+            isKeepingBindings);
+        break;
+      case 3:
+      case 4:
+        message = makeForm(fsrParser, message, FSR_ATTACHMENT_NAME, makeFsrXml(random, i), isKeepingBindings);
+        break;
+      case 5:
+      case 6:
+      case 7:
+        message = new PlainMessage(message);
+        break;
+      case 8:
+        message = new RejectionMessage(message, RejectType.PROCESSING_ERROR, new String("no form"));
+        break;
+      default:
+        break;
+      }
+      messages.add(message);
+    }
+    return messages;
+  }
+
+  /**
+   * parse the form from a copy of the message that carries it, but construct the
+   * result around the message itself, so that its payload stays tiny
+   */
+  private ExportedMessage makeForm(IParser parser, ExportedMessage message, String attachmentName, String xml,
+      boolean isKeepingBindings) {
+    var source = new ExportedMessage(message.messageId, message.from, message.source, message.to, message.toList,
+        message.ccList, message.subject, message.msgDateTime, message.msgLocation, message.msgLocationSource,
+        "Senders Express Version: 1.7.17.0\n", "", Map.of(attachmentName, xml.getBytes(StandardCharsets.UTF_8)),
+        false, message.fileName, null);
+
+    FormBinder.beginCapture();
+    parser.parse(source);
+    var bound = FormBinder.endCapture();
+    if (bound == null) {
+      throw new RuntimeException("could not parse " + attachmentName + " for messageId: " + message.messageId);
+    }
+
+    var args = bound.args().clone();
+    for (var i = 0; i < args.length; ++i) {
+      if (args[i] == source) {
+        args[i] = message;
+      }
+    }
+    var form = (ExportedMessage) FormBinder.construct(new FormBinder.Bound(bound.type(), args));
+    if (isKeepingBindings) {
+      form.setBound(new FormBinder.Bound(bound.type(), args));
+    }
+    return form;
+  }
+
+  private static String makeIcs213Xml(Random random, int i) {
+    var sb = new StringBuilder("<?xml version=\"1.0\"?><RMS_Express_Form><variables>");
+    append(sb, "templateversion", "GENERAL MESSAGE (ICS 213) 2.1");
+    append(sb, "formtitle", "ETO");
+    append(sb, "inc_name", "Weekly practice " + (i % 52));
+    append(sb, "fm_name", "Operator " + random.nextInt(6_000));
+    append(sb, "to_name", "ETO-0" + random.nextInt(10));
+    append(sb, "subjectline", SUBJECTS[0]);
+    append(sb, "mdate", "2025-" + (1 + random.nextInt(12)) + "-" + (1 + random.nextInt(28)));
+    append(sb, "mtime", random.nextInt(24) + ":" + random.nextInt(60));
+    append(sb, "message", "Checking in from grid " + random.nextInt(10_000) + ", all stations nominal");
+    append(sb, "approved_name", "Operator " + random.nextInt(6_000));
+    append(sb, "approved_postitle", "Radio Operator");
+    append(sb, "isexercise", "** THIS IS AN EXERCISE **");
+    appendLocation(sb, random);
+    return sb.append("</variables></RMS_Express_Form>").toString();
+  }
+
+  private static String makeFsrXml(Random random, int i) {
+    var sb = new StringBuilder("<?xml version=\"1.0\"?><RMS_Express_Form><variables>");
+    append(sb, "templateversion", "Field Situation Report 26 v 2.6");
+    append(sb, "title", "ETO");
+    append(sb, "precedence", "R/ Routine");
+    append(sb, "udtgfld", "2025-" + (1 + random.nextInt(12)) + "-" + (1 + random.nextInt(28)) + " 12:00Z");
+    append(sb, "msgnr", String.valueOf(i));
+    append(sb, "msgto", "ETO-0" + random.nextInt(10));
+    append(sb, "msgsender", "Operator " + random.nextInt(6_000));
+    append(sb, "safetyneed", STATUSES[random.nextInt(2)]);
+    append(sb, "city", "City " + random.nextInt(2_000));
+    append(sb, "county", "County " + random.nextInt(500));
+    append(sb, "state", "ST");
+    for (var j = 0; j < FSR_STATUS_TAGS.length; ++j) {
+      append(sb, FSR_STATUS_TAGS[j], STATUSES[random.nextInt(STATUSES.length)]);
+      append(sb, FSR_COMMENT_TAGS[j], COMMENTS[random.nextInt(COMMENTS.length)]);
+    }
+    append(sb, "message", "No further comments");
+    append(sb, "poc", "Operator " + random.nextInt(6_000));
+    appendLocation(sb, random);
+    return sb.append("</variables></RMS_Express_Form>").toString();
+  }
+
+  private static void appendLocation(StringBuilder sb, Random random) {
+    append(sb, "maplat", String.format("%.4f", 30 + random.nextDouble() * 15));
+    append(sb, "maplon", String.format("%.4f", -120 + random.nextDouble() * 40));
+  }
+
+  private static void append(StringBuilder sb, String tag, String value) {
+    sb.append('<').append(tag).append('>').append(value).append("</").append(tag).append('>');
+  }
+
+  private static long getUsedBytes() {
+    var runtime = Runtime.getRuntime();
+    for (var i = 0; i < 5; ++i) {
+      System.gc();
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -79,6 +79,14 @@ public abstract class AbstractBaseProcessor implements IProcessor {
     }
   }
 
+  /**
+   * forget the shared state, so that the next pipeline in this JVM starts with
+   * its own configuration and message manager
+   */
+  public static void resetInitialization() {
+    isInitialized = false;
+  }
+
   protected void doInitialization(IConfigurationManager _cm, IMessageManager _mm) {
     cm = _cm;
     mm = _mm;
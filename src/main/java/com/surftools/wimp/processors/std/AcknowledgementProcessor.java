@@ -36,6 +36,8 @@ import java.util.Map;
 import com.surftools.utils.location.LatLongPair;
 import com.surftools.utils.location.LocationUtils;
 import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.core.CallSignPool;
+import com.surftools.wimp.core.ContextKey;
 import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.core.IWritableTable;
 import com.surftools.wimp.core.MessageType;
@@ -54,7 +56,7 @@ import com.surftools.wimp.utils.config.IConfigurationManager;
 public class AcknowledgementProcessor extends AbstractBaseProcessor {
   private static final boolean LAST_LOCATION_WINS = true;
 
-  public static final String ACK_MAP = "ackMap";
+  public static final ContextKey<Map<String, AckEntry>> ACK_MAP = new ContextKey<>("ackMap", Map.class);
 
   private MessageType expectedMessageType;
   static private Map<String, AckEntry> ackMap; // sender -> AckEntry;
@@ -71,7 +73,7 @@ public class AcknowledgementProcessor extends AbstractBaseProcessor {
     }
 
     ackMap = new HashMap<>();
-    mm.putContextObject(ACK_MAP, ackMap);
+    mm.putContext(ACK_MAP, ackMap);
   }
 
   @Override
@@ -126,7 +128,7 @@ public class AcknowledgementProcessor extends AbstractBaseProcessor {
 
   @Override
   public void postProcess() {
-    mm.putContextObject("ackMap", ackMap);
+    mm.putContext(ACK_MAP, ackMap);
 
     var acknowledgments = new ArrayList<AckEntry>(ackMap.values().stream().toList());
     WriteProcessor.writeTable(new ArrayList<IWritableTable>(acknowledgments), "acknowledgements.csv");
@@ -151,7 +153,7 @@ public class AcknowledgementProcessor extends AbstractBaseProcessor {
     public Map<AckKey, ExportedMessage> unexpectedMessageMap;
 
     public AckEntry(String sender) {
-      this.from = sender;
+      this.from = CallSignPool.intern(sender);
 
       expectedMessageMap = new HashMap<>();
       unexpectedMessageMap = new HashMap<>();
@@ -28,33 +28,41 @@ SOFTWARE.
 package com.surftools.wimp.processors.std;
 
 import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
 import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.surftools.utils.XmlFactories;
 import com.surftools.utils.location.LatLongPair;
 import com.surftools.utils.location.LocationUtils;
 import com.surftools.wimp.configuration.Key;
 import com.surftools.wimp.core.IMessageManager;
-import com.surftools.wimp.core.RejectType;
 import com.surftools.wimp.message.ExportedMessage;
-import com.surftools.wimp.message.RejectionMessage;
-import com.surftools.wimp.parser.AbstractBaseParser;
+import com.surftools.wimp.message.ExportedMessage.ExportedKey;
+import com.surftools.wimp.message.MimeHeaderIndex;
 import com.surftools.wimp.parser.CharacterAssassinator;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
@@ -65,18 +73,27 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
   private Set<String> secondaryDestinations = new LinkedHashSet<>();
 
   private boolean isReadFilteringEnabled = false;
-  private int readFilterIncludeCount = 0;
-  private int readFilterExcludeCount = 0;
+  protected boolean isKeepLinesEnabled = false;
+  private boolean isReadDeduplicationEnabled = false;
+  private AtomicInteger readFilterIncludeCount = new AtomicInteger();
+  private AtomicInteger readFilterExcludeCount = new AtomicInteger();
   private Set<String> includeSenderSet;
   private Set<String> excludeSenderSet;
 
   private static final List<String> DELETE_LIST = Arrays.asList(new String[] { "&#21" });
+  private static final CharacterAssassinator ASSASSINATOR = new CharacterAssassinator(DELETE_LIST, null);
+
+  // child elements of <message> that we care about
+  private static final List<String> MESSAGE_FIELD_NAMES = List.of("id", "subject", "time", "sender", "source", "mime",
+      "peertopeer", "location");
 
   static record LocationResult(LatLongPair location, String source) {
   };
 
   public void baseInitialize(IConfigurationManager cm, IMessageManager mm) {
     isReadFilteringEnabled = cm.getAsBoolean(Key.READ_FILTER_ENABLED, false);
+    isKeepLinesEnabled = cm.getAsBoolean(Key.READ_KEEP_LINES, false);
+    isReadDeduplicationEnabled = cm.getAsBoolean(Key.READ_DEDUPLICATION_ENABLED, false);
   }
 
   @Override
@@ -85,14 +102,26 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
     baseInitialize(cm, mm);
   }
 
+  /**
+   * everything, besides the input itself, that affects the messages read, for
+   * the IngestCache
+   *
+   * @return
+   */
+  protected String getReadConfiguration() {
+    return "keepLines=" + isKeepLinesEnabled //
+        + ";expected=" + String.join(",", expectedDestinations) //
+        + ";secondary=" + String.join(",", secondaryDestinations);
+  }
+
   private InputStream fixInputString(String content) {
-    CharacterAssassinator assassinator = new CharacterAssassinator(DELETE_LIST, null);
-    content = assassinator.assassinate(content);
+    content = ASSASSINATOR.assassinate(content);
     return new ByteArrayInputStream(content.getBytes());
   }
 
   protected List<ExportedMessage> parseExportedMessages(List<String> fileLines, String fileName) {
     List<ExportedMessage> messages = new ArrayList<>();
+    var rejectedCount = 0;
 
     /**
      * I want to have the message lines in very rare circumstances. Here's the best
@@ -122,10 +151,7 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
       var iNode = 0;
       var nNodes = 0;
       try {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        Document doc = db.parse(inputStream);
+        Document doc = XmlFactories.getDocumentBuilder().parse(inputStream);
         doc.getDocumentElement().normalize();
         NodeList nodeList = doc.getElementsByTagName("message");
         nNodes = nodeList.getLength();
@@ -133,11 +159,12 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
           Node node = nodeList.item(iNode);
           if (node.getNodeType() == Node.ELEMENT_NODE) {
             Element element = (Element) node;
-            ExportedMessage message = readMessage(element, fileName, lines);
-            var isSelected = readFilter(message);
-            if (isSelected) {
-              messages.add(message);
+            var fieldMap = makeFieldMap(element);
+            if (!isSenderSelected(fieldMap.get("sender"))) {
+              ++rejectedCount;
+              continue;
             }
+            messages.add(readMessage(fieldMap, fileName, isKeepLinesEnabled ? lines : null));
           } // end if XML Message Node
         } // end for over messages
       } catch (Exception e) {
@@ -146,19 +173,197 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
       }
     }
 
+    countReadFilter(messages.size(), rejectedCount);
+    return messages;
+  }
+
+  /**
+   * streaming alternative to the DOM-per-message parsing above: pull each
+   * <message> element from a single XMLStreamReader over the whole file and
+   * create the ExportedMessage as soon as the element ends.
+   *
+   * Any XML error abandons the entire file, so that the caller can fall back to
+   * the more forgiving DOM path.
+   *
+   * NOTE WELL: message lines are NOT available from this path
+   *
+   * @param reader
+   * @param fileName
+   * @return
+   * @throws XMLStreamException
+   */
+  protected List<ExportedMessage> parseExportedMessages(Reader reader, String fileName) throws XMLStreamException {
+    List<ExportedMessage> messages = new ArrayList<>();
+    var factory = XmlFactories.getXMLInputFactory();
+    var rejectedCount = streamMessages(factory, ASSASSINATOR.wrap(reader), fileName, messages);
+    countReadFilter(messages.size(), rejectedCount);
+    return messages;
+  }
+
+  /**
+   * alternative to streaming the whole file: each slice holds the (undecoded)
+   * bytes of exactly one <message> element, typically found by the
+   * MessageBoundaryScanner in a memory-mapped file. Only the slices are decoded,
+   * and an XML error only loses its own message.
+   *
+   * NOTE WELL: message lines are NOT available from this path
+   *
+   * @param messageSlices
+   * @param fileName
+   * @return
+   */
+  protected List<ExportedMessage> parseMessageSlices(List<ByteBuffer> messageSlices, String fileName) {
+    List<ExportedMessage> messages = new ArrayList<>();
+    var rejectedCount = 0;
+
+    var factory = XmlFactories.getXMLInputFactory();
+    var iSlice = 0;
+    for (var slice : messageSlices) {
+      ++iSlice;
+      try {
+        var chars = StandardCharsets.UTF_8.decode(ASSASSINATOR.assassinate(slice));
+        var reader = new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        rejectedCount += streamMessages(factory, reader, fileName, messages);
+      } catch (Exception e) {
+        logger.error("Exception processing message " + iSlice + " of " + messageSlices.size() + " of file: " + fileName
+            + ", " + e.getLocalizedMessage());
+      }
+    }
+
+    countReadFilter(messages.size(), rejectedCount);
     return messages;
   }
 
-  private boolean readFilter(ExportedMessage message) {
+  /**
+   * pull <message> elements from the (already sanitized) reader, adding the
+   * selected ones to messages
+   *
+   * @param factory
+   * @param reader
+   * @param fileName
+   * @param messages
+   * @return number of messages rejected by the read filter
+   * @throws XMLStreamException
+   */
+  private int streamMessages(XMLInputFactory factory, Reader reader, String fileName, List<ExportedMessage> messages)
+      throws XMLStreamException {
+    var rejectedCount = 0;
+
+    XMLStreamReader xmlReader = null;
+    var messageCount = 0;
+    try {
+      xmlReader = factory.createXMLStreamReader(reader);
+
+      Map<String, String> fieldMap = null; // non-null only when inside a <message> element
+      String fieldName = null; // non-null only when inside a leaf element within a <message>
+      var isSkipping = false; // true once <sender> has been rejected by the read filter
+      var sb = new StringBuilder();
+      while (xmlReader.hasNext()) {
+        var event = xmlReader.next();
+        switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+          if (fieldMap == null) {
+            if (xmlReader.getLocalName().equals("message")) {
+              fieldMap = new HashMap<>();
+            }
+          } else if (!isSkipping) {
+            fieldName = xmlReader.getLocalName();
+            sb.setLength(0);
+          }
+          break;
+
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if (fieldName != null) {
+            sb.append(xmlReader.getTextCharacters(), xmlReader.getTextStart(), xmlReader.getTextLength());
+          }
+          break;
+
+        case XMLStreamConstants.END_ELEMENT:
+          if (fieldMap == null) {
+            break;
+          }
+
+          var name = xmlReader.getLocalName();
+          if (fieldName != null) {
+            var value = sb.toString();
+            fieldMap.putIfAbsent(name, value);
+            fieldName = null;
+            // don't even accumulate the (large) mime text for unwanted senders
+            if (name.equals("sender") && !isSenderSelected(value)) {
+              isSkipping = true;
+            }
+          } else if (name.equals("message")) {
+            ++messageCount;
+            if (isSkipping) {
+              ++rejectedCount;
+            } else {
+              try {
+                messages.add(readMessage(fieldMap, fileName, null));
+              } catch (Exception e) {
+                logger.error("Exception processing message " + messageCount + " of file: " + fileName + ", "
+                    + e.getLocalizedMessage());
+              }
+            }
+            fieldMap = null;
+            isSkipping = false;
+          }
+          break;
+
+        default:
+          break;
+        }
+      } // end while over events
+    } finally {
+      if (xmlReader != null) {
+        xmlReader.close();
+      }
+    }
+
+    return rejectedCount;
+  }
+
+  /**
+   * extract the text of the interesting child elements of a <message> element
+   *
+   * @param element
+   * @return
+   */
+  private Map<String, String> makeFieldMap(Element element) {
+    var fieldMap = new HashMap<String, String>();
+    for (var name : MESSAGE_FIELD_NAMES) {
+      var node = element.getElementsByTagName(name).item(0);
+      if (node != null) {
+        fieldMap.put(name, node.getTextContent());
+      }
+    }
+    return fieldMap;
+  }
+
+  private String getRequiredField(Map<String, String> fieldMap, String name) {
+    var value = fieldMap.get(name);
+    if (value == null) {
+      throw new RuntimeException("no <" + name + "> element");
+    }
+    return value;
+  }
+
+  /**
+   * should a message from this sender be read?
+   *
+   * NOTE WELL: no side effects, so it's safe to call from concurrent readers
+   *
+   * @param sender
+   * @return
+   */
+  private boolean readFilter(String sender) {
     if (!isReadFilteringEnabled) {
       return true;
     }
 
-    var sender = message.from;
-
     if (includeSenderSet.size() > 0) {
       if (includeSenderSet.contains(sender)) {
-        ++readFilterIncludeCount;
         return true;
       } else {
         return false;
@@ -167,7 +372,6 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
 
     if (excludeSenderSet.size() > 0) {
       if (excludeSenderSet.contains(sender)) {
-        ++readFilterExcludeCount;
         return false;
       } else {
         return true;
@@ -176,27 +380,120 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
     return true;
   }
 
-  private ExportedMessage readMessage(Element element, String fileName, List<String> lines) {
+  /**
+   * evaluate the read filter on the raw <sender> element, before any
+   * recipient, location or date parsing is done for the message
+   *
+   * a missing sender is passed through, so that readMessage() can report it
+   *
+   * @param sender
+   * @return
+   */
+  private boolean isSenderSelected(String sender) {
+    return sender == null || readFilter(sender);
+  }
+
+  /**
+   * accumulate read filter counts, once per successfully read file
+   *
+   * @param selectedCount
+   * @param rejectedCount
+   */
+  private void countReadFilter(int selectedCount, int rejectedCount) {
+    if (!isReadFilteringEnabled) {
+      return;
+    }
 
-    var messageId = element.getElementsByTagName("id").item(0).getTextContent();
-    var subject = element.getElementsByTagName("subject").item(0).getTextContent();
-    var dtString = element.getElementsByTagName("time").item(0).getTextContent();
-    var sender = element.getElementsByTagName("sender").item(0).getTextContent();
-    var source = element.getElementsByTagName("source").item(0).getTextContent();
-    var mime = element.getElementsByTagName("mime").item(0).getTextContent();
+    if (includeSenderSet.size() > 0) {
+      readFilterIncludeCount.addAndGet(selectedCount);
+    } else if (excludeSenderSet.size() > 0) {
+      readFilterExcludeCount.addAndGet(rejectedCount);
+    }
+  }
+
+  /**
+   * the same message often arrives in several exports. Drop byte-identical
+   * repeats of (sender, messageId) before they are decoded and classified,
+   * keeping the first one read.
+   *
+   * The repeats are published via IMessageManager.READ_DUPLICATES, so that the
+   * DeduplicationProcessor can still report them. Copies with the same key but
+   * different content are kept, for the DeduplicationProcessor to handle.
+   *
+   * NOTE WELL: messages must be in (deterministic) read order
+   *
+   * @param messages
+   * @return messages without the repeats
+   */
+  protected List<ExportedMessage> removeReadDuplicates(List<ExportedMessage> messages) {
+    if (!isReadDeduplicationEnabled) {
+      return messages;
+    }
+
+    var firstMap = new HashMap<ExportedKey, ExportedMessage>();
+    var firstHashMap = new HashMap<ExportedKey, Long>(); // only computed on a key collision
+    var duplicateMap = new LinkedHashMap<ExportedKey, List<ExportedMessage>>();
+    var outputList = new ArrayList<ExportedMessage>(messages.size());
+    for (var m : messages) {
+      var key = new ExportedKey(m.from, m.messageId);
+      var first = firstMap.putIfAbsent(key, m);
+      if (first != null) {
+        var firstHash = firstHashMap.computeIfAbsent(key, k -> rawHash(first));
+        if (firstHash == rawHash(m)) {
+          duplicateMap.computeIfAbsent(key, k -> new ArrayList<>()).add(m);
+          continue;
+        }
+      }
+      outputList.add(m);
+    }
+
+    var duplicateCount = messages.size() - outputList.size();
+    if (duplicateCount > 0) {
+      logger.info("skipped " + duplicateCount + " byte-identical duplicate messages from " + duplicateMap.size()
+          + " senders/messageIds");
+    }
+    mm.putContext(IMessageManager.READ_DUPLICATES, duplicateMap);
+    return outputList;
+  }
+
+  /**
+   * cheap 64-bit FNV-1a hash of what was read for a message
+   */
+  private static long rawHash(ExportedMessage m) {
+    var hash = 0xcbf29ce484222325L;
+    for (var s : new String[] { m.source, m.subject, m.getMime() }) {
+      if (s == null) {
+        continue;
+      }
+      for (var i = 0; i < s.length(); ++i) {
+        hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+      }
+      hash = (hash ^ 0xffff) * 0x100000001b3L; // separator
+    }
+    return hash;
+  }
+
+  private ExportedMessage readMessage(Map<String, String> fieldMap, String fileName, List<String> lines) {
+
+    var messageId = getRequiredField(fieldMap, "id");
+    var subject = getRequiredField(fieldMap, "subject");
+    var dtString = getRequiredField(fieldMap, "time");
+    var sender = getRequiredField(fieldMap, "sender");
+    var source = getRequiredField(fieldMap, "source");
+    var mime = getRequiredField(fieldMap, "mime");
 
     var isP2p = false;
-    var v = element.getElementsByTagName("peertopeer");
-    if (v != null && v.item(0) != null && v.item(0).getTextContent() != null) {
-      isP2p = Boolean.parseBoolean(v.item(0).getTextContent());
+    var p2pString = fieldMap.get("peertopeer");
+    if (p2pString != null) {
+      isP2p = Boolean.parseBoolean(p2pString);
     }
 
-    var locationResult = parseLocation(element, mime, sender, messageId);
+    // indexed once, here, and kept by the message
+    var mimeIndex = new MimeHeaderIndex(mime);
+    var locationResult = parseLocation(fieldMap.get("location"), mimeIndex);
     var localDateTime = LocalDateTime.parse(dtString, DT_FORMATTER);
 
-    String[] mimeLines = mime.split("\\n");
-
-    var recipients = getRecipients(mimeLines);
+    var recipients = getRecipients(mimeIndex);
     if (recipients == null) {
       logger.error("null recipients: messageId: " + messageId + ", from " + sender);
     }
@@ -204,24 +501,10 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
     String toList = recipients[1];
     String ccList = recipients[2];
 
-    ExportedMessage message = null;
-    String plainContent = null;
-    Map<String, byte[]> attachments = null;
-
-    var parser = AbstractBaseParser.makeMimeMessageParser(messageId, mime);
-    if (parser == null) {
-      message = new ExportedMessage(messageId, sender, source, recipient, toList, ccList, subject, //
-          localDateTime, locationResult.location, locationResult.source, //
-          mime, plainContent, attachments, isP2p, fileName, lines);
-      return new RejectionMessage(message, RejectType.CANT_PARSE_MIME, message.mime);
-    }
-
-    plainContent = parser.getPlainContent();
-    attachments = AbstractBaseParser.getAttachments(parser);
-
-    message = new ExportedMessage(messageId, sender, source, recipient, toList, ccList, subject, //
+    // mime content is decoded on demand
+    var message = new ExportedMessage(messageId, sender, source, recipient, toList, ccList, subject, //
         localDateTime, locationResult.location, locationResult.source, //
-        mime, plainContent, attachments, isP2p, fileName, lines);
+        mime, mimeIndex, isP2p, fileName, lines);
 
     return message;
   }
@@ -230,90 +513,102 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
    * location may be missing, present as "40.187500N, 92.541667W", or even
    * "40.187500N, 92.541667W (GRID SQUARE)"
    *
-   * @param element
+   * @param locationString
+   * @param mimeIndex
    * @return
    */
-  private LocationResult parseLocation(Element element, String mime, String sender, String messageId) {
+  private LocationResult parseLocation(String locationString, MimeHeaderIndex mimeIndex) {
     LatLongPair location = null;
     String source = null;
 
+    if (locationString == null) {
+      return new LocationResult(location, source);
+    }
+
+    var fields = locationString.split(",");
+    if (fields.length < 2) {
+      return parseXLocation(mimeIndex.getLocationLine());
+    }
+
     try {
-      var locationString = element.getElementsByTagName("location").item(0).getTextContent();
-      if (locationString != null) {
-        var fields = locationString.split(",");
-        if (fields.length >= 2) {
-          var latString = fields[0].substring(0, fields[0].length() - 1);
-          if (fields[0].endsWith("S")) {
-            latString = "-" + latString.trim();
-          }
+      var latString = fields[0].substring(0, fields[0].length() - 1);
+      if (fields[0].endsWith("S")) {
+        latString = "-" + latString.trim();
+      }
 
-          var subfields = fields[1].trim().split(" ");
-          var lonString = subfields[0].substring(0, subfields[0].length() - 1);
-          if (subfields[0].endsWith("W")) {
-            lonString = "-" + lonString.trim();
-          }
+      var subfields = fields[1].trim().split(" ");
+      var lonString = subfields[0].substring(0, subfields[0].length() - 1);
+      if (subfields[0].endsWith("W")) {
+        lonString = "-" + lonString.trim();
+      }
 
-          location = new LatLongPair(latString, lonString);
+      location = new LatLongPair(latString, lonString);
 
-          var leftParenIndex = fields[1].indexOf("(");
-          var rightParenIndex = fields[1].indexOf(")");
-          if (leftParenIndex >= 0 && rightParenIndex >= 0 && leftParenIndex < rightParenIndex) {
-            source = fields[1].substring(leftParenIndex + 1, rightParenIndex);
-          }
+      var leftParenIndex = fields[1].indexOf("(");
+      var rightParenIndex = fields[1].indexOf(")");
+      if (leftParenIndex >= 0 && rightParenIndex >= 0 && leftParenIndex < rightParenIndex) {
+        source = fields[1].substring(leftParenIndex + 1, rightParenIndex);
+      }
+    } catch (Exception e) {
+      ;
+    }
+
+    return new LocationResult(location, source);
+  }
+
+  /**
+   * looking for something like: X-Location: 38.660000N, 122.870667W (SPECIFIED)
+   *
+   * @param line
+   * @return
+   */
+  private LocationResult parseXLocation(String line) {
+    LatLongPair location = null;
+    String source = null;
+
+    if (line == null) {
+      return new LocationResult(location, source);
+    }
+
+    try {
+      line = line.toUpperCase();
+      var fields = line.split(" ");
+      if (fields.length >= 4) {
+        var latString = fields[1].substring(0, fields[0].length() - 2);
+        if (fields[0].endsWith("S")) {
+          latString = "-" + latString.trim();
+        }
+
+        var lonString = fields[2].substring(0, fields[2].length() - 1);
+        if (fields[2].endsWith("W")) {
+          lonString = "-" + lonString.trim();
+        }
+
+        location = new LatLongPair(latString, lonString);
+
+        source = "OTHER";
+        if (line.contains("GRID SQUARE")) {
+          source = "GRID SQUARE";
+        } else if (line.contains("SPECIFIED")) {
+          source = "SPECIFIED";
+        } else if (line.contains("GPS")) {
+          source = "GPS";
         } else {
-          if (mime != null) {
-            // looking for something like: X-Location: 38.660000N, 122.870667W (SPECIFIED)
-            var mimeLines = mime.split("\n");
-            for (var line : mimeLines) {
-              line = line.toUpperCase();
-              if (line.startsWith("X-LOCATION:")) {
-                fields = line.split(" ");
-                if (fields.length >= 4) {
-                  var latString = fields[1].substring(0, fields[0].length() - 2);
-                  if (fields[0].endsWith("S")) {
-                    latString = "-" + latString.trim();
-                  }
-
-                  var lonString = fields[2].substring(0, fields[2].length() - 1);
-                  if (fields[2].endsWith("W")) {
-                    lonString = "-" + lonString.trim();
-                  }
-
-                  location = new LatLongPair(latString, lonString);
-
-                  source = "OTHER";
-                  if (line.contains("GRID SQUARE")) {
-                    source = "GRID SQUARE";
-                  } else if (line.contains("SPECIFIED")) {
-                    source = "SPECIFIED";
-                  } else if (line.contains("GPS")) {
-                    source = "GPS";
-                  } else {
-                    source = "UNKNOWN";
-                  }
-
-                } else if (fields.length == 2) {// end if 4 fields in X-Location
-                  var gridSquare = fields[1];
-                  gridSquare = (gridSquare.length() > 6) ? gridSquare.substring(0, 6) : gridSquare;
-                  if (LocationUtils.isValidMaidenhead(gridSquare)) {
-                    location = new LatLongPair(gridSquare);
-                    source = "GRID SQUARE";
-                  }
-                } // end if 2 fields in X-Location
-                break;
-              } // end if X-Location line
-            } // end loop over mimeLines
-          } // end if mime != null
-        } // end if <location> tag has 2 fields
-      } // end if location string
-    } catch (
-
-    Exception e) {
+          source = "UNKNOWN";
+        }
+      } else if (fields.length == 2) { // end if 4 fields in X-Location
+        var gridSquare = fields[1];
+        gridSquare = (gridSquare.length() > 6) ? gridSquare.substring(0, 6) : gridSquare;
+        if (LocationUtils.isValidMaidenhead(gridSquare)) {
+          location = new LatLongPair(gridSquare);
+          source = "GRID SQUARE";
+        }
+      } // end if 2 fields in X-Location
+    } catch (Exception e) {
       ;
     }
 
-    var locationResult = new LocationResult(location, source);
-    return locationResult;
+    return new LocationResult(location, source);
   }
 
   // Subject: DYFI Automatic Entry - Winlink EXERCISE
@@ -327,7 +622,7 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
 
   /**
    *
-   * @param mimeLines
+   * @param mimeIndex
    * @return array of Strings
    *
    *         0 -- the "recipient"
@@ -336,36 +631,9 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
    *
    *         2 -- the ccList
    */
-  public String[] getRecipients(String[] mimeLines) {
-    List<String> toList = new ArrayList<String>();
-    List<String> ccList = new ArrayList<String>();
-    List<String> theList = null;
-
-    boolean isFound = false;
-    for (String line : mimeLines) {
-      if (line.startsWith("Message-ID: ")) {
-        break;
-      }
-
-      if (line.startsWith("To: ")) {
-        isFound = true;
-        theList = toList;
-      }
-
-      if (line.startsWith("Cc: ")) {
-        isFound = true;
-        theList = ccList;
-      }
-
-      if (isFound) {
-        line = pre_fixAddress(line);
-        if (line != null && !line.isBlank()) {
-          theList.add(line);
-        }
-      } else {
-        continue;
-      }
-    } // end for over lines
+  public String[] getRecipients(MimeHeaderIndex mimeIndex) {
+    var toList = mimeIndex.getToList();
+    var ccList = mimeIndex.getCcList();
 
     List<String> addresses = new ArrayList<>();
     addresses.addAll(toList);
@@ -384,28 +652,6 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
     return strings;
   } // end getRecipients
 
-  /**
-   * clean up line, strip leading To: Cc: and space, strip trailing ,
-   *
-   * @param line
-   * @return
-   */
-  public String pre_fixAddress(String line) {
-    if (line == null) {
-      return null;
-    }
-
-    if (line.startsWith("To: ") || line.startsWith("Cc: ")) {
-      String[] fields = line.split(" ");
-      line = fields[1];
-    }
-
-    if (line.endsWith(",")) {
-      line = line.substring(0, line.length() - 1);
-    }
-    return line.trim();
-  }
-
   /**
    * remove leading "SMTP:", trailing "@..."
    *
@@ -459,11 +705,11 @@ public abstract class BaseReadProcessor extends AbstractBaseProcessor {
 
   @Override
   public void postProcess() {
-    if (isReadFilteringEnabled && readFilterIncludeCount > 0) {
-      logger.warn("### Read Filter: " + readFilterIncludeCount + " messages included");
+    if (isReadFilteringEnabled && readFilterIncludeCount.get() > 0) {
+      logger.warn("### Read Filter: " + readFilterIncludeCount.get() + " messages included");
     }
-    if (isReadFilteringEnabled && readFilterExcludeCount > 0) {
-      logger.warn("### Read Filter: " + readFilterExcludeCount + " messages excluded");
+    if (isReadFilteringEnabled && readFilterExcludeCount.get() > 0) {
+      logger.warn("### Read Filter: " + readFilterExcludeCount.get() + " messages excluded");
     }
   }
 }
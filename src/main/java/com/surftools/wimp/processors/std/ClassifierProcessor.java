@@ -28,18 +28,25 @@ SOFTWARE.
 package com.surftools.wimp.processors.std;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.core.ColumnarMessageManager;
 import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.core.IParser;
 import com.surftools.wimp.core.MessageType;
 import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.parser.FormBinder;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
 /**
@@ -55,6 +62,10 @@ public class ClassifierProcessor extends AbstractBaseProcessor {
   private static final Logger logger = LoggerFactory.getLogger(ClassifierProcessor.class);
 
   private Map<MessageType, IParser> parserMap = new HashMap<>();
+  private int parallelism = 1;
+  private RmsViewerNameTrie rmsViewerNameTrie;
+  private ParsedFormCache parsedFormCache;
+  private boolean isKeepingBindings; // so that form messages can be stored in columns
 
   private final List<MessageType> SUPPORTED_TYPES = new ArrayList<>();
 
@@ -67,21 +78,51 @@ public class ClassifierProcessor extends AbstractBaseProcessor {
         continue;
       }
       SUPPORTED_TYPES.add(type);
+    }
+    parserMap = makeParserMap();
+
+    // because I chose to support MacWinlink, which was/is buggy, //
+    // ICS_213_RR sorts after ICS_213, reverse it
+    Collections.sort(SUPPORTED_TYPES);
+    Collections.reverse(SUPPORTED_TYPES);
+    rmsViewerNameTrie = new RmsViewerNameTrie(SUPPORTED_TYPES);
+
+    parallelism = Math.max(1, cm.getAsInt(Key.CLASSIFIER_PARALLELISM, 1));
+    if (parallelism > 1) {
+      logger.info("classifying on " + parallelism + " threads");
+    }
+
+    isKeepingBindings = mm instanceof ColumnarMessageManager;
+
+    if (cm.getAsBoolean(Key.CLASSIFIER_CACHE_ENABLED, false)) {
+      var parserVersionMap = new HashMap<MessageType, Integer>();
+      for (var entry : parserMap.entrySet()) {
+        parserVersionMap.put(entry.getKey(), entry.getValue().getVersion());
+      }
+      parsedFormCache = new ParsedFormCache(exercisePath, parserVersionMap);
+    }
+  }
+
+  /**
+   * parsers keep per-message state (the current document), so every thread
+   * needs its own set
+   *
+   * @return
+   */
+  private Map<MessageType, IParser> makeParserMap() {
+    var map = new HashMap<MessageType, IParser>();
+    for (var type : SUPPORTED_TYPES) {
       var parserName = "com.surftools.wimp.parser." + type.makeParserName() + "Parser";
       try {
         var parserClass = Class.forName(parserName);
         var parser = (IParser) parserClass.getDeclaredConstructor().newInstance();
         parser.initialize(cm, mm);
-        parserMap.put(type, parser);
+        map.put(type, parser);
       } catch (Exception e) {
         logger.error("Couldn't create parser for: " + type.toString() + ", " + e.getLocalizedMessage());
       }
     }
-
-    // because I chose to support MacWinlink, which was/is buggy, //
-    // ICS_213_RR sorts after ICS_213, reverse it
-    Collections.sort(SUPPORTED_TYPES);
-    Collections.reverse(SUPPORTED_TYPES);
+    return map;
   }
 
   @Override
@@ -89,25 +130,134 @@ public class ClassifierProcessor extends AbstractBaseProcessor {
     var messages = mm.getOriginalMessages();
 
     if (messages != null) {
-      var tmpMessageMap = new HashMap<MessageType, List<ExportedMessage>>();
-
-      for (var message : messages) {
-        var messageType = findMessageType(message);
-        var parser = parserMap.get(messageType);
-        ExportedMessage parsedMessage = message;
-        if (parser != null) {
-          parsedMessage = parser.parse(message);
-        }
+      var parsedMessages = (parallelism > 1 && messages.size() > 1) ? classifyConcurrently(messages)
+          : classifyAll(messages, parserMap);
 
+      var tmpMessageMap = new HashMap<MessageType, List<ExportedMessage>>();
+      for (var parsedMessage : parsedMessages) {
         var parsedMessageType = parsedMessage.getMessageType();
         var list = tmpMessageMap.getOrDefault(parsedMessageType, new ArrayList<ExportedMessage>());
         list.add(parsedMessage);
         tmpMessageMap.put(parsedMessageType, list);
-
       } // end loop over messages
 
       mm.load(tmpMessageMap);
+
+      if (parsedFormCache != null) {
+        parsedFormCache.save();
+        logger.info(parsedFormCache.getReport());
+      }
+    }
+  }
+
+  private List<ExportedMessage> classifyAll(List<ExportedMessage> messages, Map<MessageType, IParser> parsers) {
+    var parsedMessages = new ArrayList<ExportedMessage>(messages.size());
+    for (var message : messages) {
+      parsedMessages.add(classify(message, parsers));
     }
+    return parsedMessages;
+  }
+
+  private ExportedMessage classify(ExportedMessage message, Map<MessageType, IParser> parsers) {
+    String cacheKey = null;
+    if (parsedFormCache != null) {
+      cacheKey = parsedFormCache.makeKey(message);
+      var entry = (cacheKey == null) ? null : parsedFormCache.get(cacheKey);
+      if (entry != null) {
+        if (entry.isRenamed()) {
+          findRmsViewerMatch(message);
+        }
+        FormBinder.beginCapture();
+        ExportedMessage cachedMessage = null;
+        try {
+          cachedMessage = parsedFormCache.rebuild(cacheKey, entry, message);
+        } finally {
+          var bound = FormBinder.endCapture();
+          keepBinding(cachedMessage, bound);
+        }
+        if (cachedMessage != null) {
+          return cachedMessage;
+        }
+      }
+    }
+
+    var match = findRmsViewerMatch(message);
+    var messageType = (match == null) ? MessageType.PLAIN : match.messageType();
+    var parser = parsers.get(messageType);
+    ExportedMessage parsedMessage = message;
+    if (parser != null) {
+      if (cacheKey == null && !isKeepingBindings) {
+        parsedMessage = parser.parse(message);
+      } else {
+        FormBinder.beginCapture();
+        try {
+          parsedMessage = parser.parse(message);
+        } finally {
+          var bound = FormBinder.endCapture();
+          keepBinding(parsedMessage, bound);
+          if (cacheKey != null) {
+            var isRenamed = match != null && match.isUnderscored();
+            parsedFormCache.put(cacheKey, messageType, isRenamed, message, parsedMessage, bound);
+          }
+        }
+      }
+    }
+    return parsedMessage;
+  }
+
+  /**
+   * keep the arguments a form message was constructed from, if the manager can
+   * store the message by them
+   *
+   * @param message
+   * @param bound
+   */
+  private void keepBinding(ExportedMessage message, FormBinder.Bound bound) {
+    if (isKeepingBindings && message != null && bound != null && bound.type() == message.getClass()) {
+      message.setBound(bound);
+    }
+  }
+
+  /**
+   * classify and parse in chunks on parallelism threads, each thread with its own
+   * parsers, but return the results in the original order, so that the output is
+   * identical to classifying sequentially
+   *
+   * @param messages
+   * @return
+   */
+  private List<ExportedMessage> classifyConcurrently(List<ExportedMessage> messages) {
+    var parsedMessages = new ExportedMessage[messages.size()];
+    var threadParserMap = ThreadLocal.withInitial(this::makeParserMap);
+
+    // a few chunks per thread, so one slow chunk doesn't leave the others idle
+    var nChunks = Math.min(messages.size(), parallelism * 4);
+    var chunkSize = (messages.size() + nChunks - 1) / nChunks;
+    try (var executor = Executors.newFixedThreadPool(parallelism)) {
+      var futures = new ArrayList<Future<?>>();
+      for (var start = 0; start < messages.size(); start += chunkSize) {
+        var chunkStart = start;
+        var chunkEnd = Math.min(messages.size(), start + chunkSize);
+        futures.add(executor.submit(() -> {
+          var parsers = threadParserMap.get();
+          for (var i = chunkStart; i < chunkEnd; ++i) {
+            parsedMessages[i] = classify(messages.get(i), parsers);
+          }
+        }));
+      }
+
+      for (var future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Exception classifying messages: " + e.getCause().getLocalizedMessage(),
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while classifying messages");
+    }
+
+    return Arrays.asList(parsedMessages);
   }
 
   /**
@@ -120,17 +270,17 @@ public class ClassifierProcessor extends AbstractBaseProcessor {
    */
   public MessageType findMessageType(ExportedMessage message) {
     // First choice: for source-of-truth is the RMS viewer (aka XML blob) attachment
-    var messageType = getMessageTypeFromRmsViewerData(message);
-    if (messageType != null) {
-      return messageType;
+    var match = findRmsViewerMatch(message);
+    if (match != null) {
+      return match.messageType();
     }
 
     // default
     return MessageType.PLAIN;
   }
 
-  private MessageType getMessageTypeFromRmsViewerData(ExportedMessage message) {
-    var attachments = message.attachments;
+  private RmsViewerMatch findRmsViewerMatch(ExportedMessage message) {
+    var attachments = message.getAttachments();
     if (attachments == null || attachments.size() == 0) {
       return null;
     }
@@ -140,28 +290,78 @@ public class ClassifierProcessor extends AbstractBaseProcessor {
         continue;
       }
 
-      for (var messageType : SUPPORTED_TYPES) {
-        if (messageType.rmsViewerName() == null) {
-          continue;
-        }
+      var match = rmsViewerNameTrie.find(attachmentName);
+      if (match == null) {
+        continue;
+      }
 
-        if (attachmentName.startsWith(messageType.rmsViewerName())) {
-          return messageType;
-        }
+      // I don't know how, but somehow attachment name is not as expected ...
+      if (match.isUnderscored()) {
+        // oh what a tangled web we weave ...
+        message.renameAttachment(attachmentName, match.messageType().rmsViewerName());
+      }
+      return match;
+    } // end loop over attachment names
+
+    return null;
+  }
+
+  record RmsViewerMatch(MessageType messageType, int priority, boolean isUnderscored) {
+  };
+
+  /**
+   * every rmsViewerName prefix (as is, and with spaces as underscores) of the
+   * supported types, so that an attachment name resolves in one walk over its
+   * leading characters, instead of startsWith() against every type
+   *
+   * when more than one prefix matches, the earliest in SUPPORTED_TYPES wins, and
+   * for the same type the name as is beats the underscored name, just as the
+   * nested loops did
+   */
+  static class RmsViewerNameTrie {
+    private static class Node {
+      private final Map<Character, Node> children = new HashMap<>();
+      private RmsViewerMatch match;
+    }
+
+    private final Node root = new Node();
 
-        // I don't know how, but somehow attachment name is not as expected ...
-        if (attachmentName.startsWith(messageType.rmsViewerName().replaceAll(" ", "_"))) {
-          // oh what a tangled web we weave ...
-          var bytes = message.attachments.get(attachmentName);
-          message.attachments.remove(attachmentName);
-          message.attachments.put(messageType.rmsViewerName(), bytes);
-          return messageType;
+    RmsViewerNameTrie(List<MessageType> types) {
+      for (var priority = 0; priority < types.size(); ++priority) {
+        var messageType = types.get(priority);
+        var rmsViewerName = messageType.rmsViewerName();
+        if (rmsViewerName == null) {
+          continue;
         }
+        add(rmsViewerName, new RmsViewerMatch(messageType, priority, false));
+        add(rmsViewerName.replaceAll(" ", "_"), new RmsViewerMatch(messageType, priority, true));
+      }
+    }
 
-      } // end loop over messageTypes
-    } // end loop over attachment names
+    private void add(String prefix, RmsViewerMatch match) {
+      var node = root;
+      for (var i = 0; i < prefix.length(); ++i) {
+        node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+      }
+      if (node.match == null || match.priority() < node.match.priority()) {
+        node.match = match;
+      }
+    }
 
-    return null;
+    RmsViewerMatch find(String name) {
+      RmsViewerMatch best = root.match;
+      var node = root;
+      for (var i = 0; i < name.length(); ++i) {
+        node = node.children.get(name.charAt(i));
+        if (node == null) {
+          break;
+        }
+        if (node.match != null && (best == null || node.match.priority() < best.priority())) {
+          best = node.match;
+        }
+      }
+      return best;
+    }
   }
 
 }
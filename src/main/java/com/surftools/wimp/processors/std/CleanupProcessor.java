@@ -98,7 +98,7 @@ public class CleanupProcessor extends AbstractBaseProcessor {
     }
 
     // copy configurationFile to input
-    var configurationFileSource = Path.of((String) mm.getContextObject(PracticeProcessorTool.CONFIGURATION_FILE_KEY));
+    var configurationFileSource = Path.of(mm.getContext(PracticeProcessorTool.CONFIGURATION_FILE_KEY));
     var configurationFileDestination = Path.of(inputPathName, "configuration.txt");
     try {
       Files.copy(configurationFileSource, configurationFileDestination, StandardCopyOption.REPLACE_EXISTING);
@@ -43,6 +43,7 @@ import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.core.IWritableTable;
 import com.surftools.wimp.core.MessageType;
 import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.ExportedMessage.ExportedKey;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
 /**
@@ -127,11 +128,13 @@ public class DeduplicationProcessor extends AbstractBaseProcessor {
 
   private List<DupEntry> dupEntries = new ArrayList<>(); // for generating CSV file
   private List<SupEntry> supEntries = new ArrayList<>(); // for generating CSV file
+  private boolean isReadDeduplicationEnabled = false;
 
   @Override
   public void initialize(IConfigurationManager cm, IMessageManager mm) {
     super.initialize(cm, mm);
 
+    isReadDeduplicationEnabled = cm.getAsBoolean(Key.READ_DEDUPLICATION_ENABLED, false);
     typeRuleMap = new HashMap<>();
 
     // override default rule of only last
@@ -179,6 +182,10 @@ public class DeduplicationProcessor extends AbstractBaseProcessor {
     var uniqueMap = new HashMap<DupKey, ExportedMessage>(); // first message for DupKey; keep this
     var dupListMap = new HashMap<DupKey, List<ExportedMessage>>(); // subsequent messages for DupKey; don't keep
 
+    // byte-identical duplicates already dropped by the read processor, still to be reported
+    var readDupMap = mm.getContext(IMessageManager.READ_DUPLICATES);
+    var readDupCount = 0;
+
     var it = mm.getSenderIterator();
     var dedupeCount = 0;
     while (it.hasNext()) {
@@ -205,13 +212,30 @@ public class DeduplicationProcessor extends AbstractBaseProcessor {
           }
           uniqueMap.put(dupKey, m);
           tmpList.add(m);
+
+          var readDups = (readDupMap == null) ? null : readDupMap.get(new ExportedKey(m.from, m.messageId));
+          if (readDups != null) {
+            dupListMap.computeIfAbsent(dupKey, k -> new ArrayList<>()).addAll(readDups);
+            readDupCount += readDups.size();
+          }
         } // end loop over inputList
 
         // for aggregate reporting
-        var dupList = dupListMap.get(dupKey);
-        if (dupList != null) {
-          var dupEntry = new DupEntry(uniqueMap.get(dupKey), dupList);
-          dupEntries.add(dupEntry);
+        if (!isReadDeduplicationEnabled) {
+          var dupList = dupListMap.get(dupKey);
+          if (dupList != null) {
+            var dupEntry = new DupEntry(uniqueMap.get(dupKey), dupList);
+            dupEntries.add(dupEntry);
+          }
+        } else {
+          // duplicates dropped when read never show up in inputList, so report every message that had any
+          for (var m : tmpList) {
+            var dupList = dupListMap.get(new DupKey(m.from, m.messageId));
+            if (dupList != null) {
+              var dupEntry = new DupEntry(m, dupList);
+              dupEntries.add(dupEntry);
+            }
+          }
         }
 
         Collections.sort(tmpList); // ascending order based on sortDateTime
@@ -265,6 +289,10 @@ public class DeduplicationProcessor extends AbstractBaseProcessor {
       } // end loop over type for sender
       mm.putMessagesForSender(sender, map);
     } // end loop over sender
+    if (readDupCount > 0) {
+      logger.info("reporting: " + readDupCount + " duplicate messages already removed when read");
+      dedupeCount += readDupCount;
+    }
     logger.info("removed: " + dedupeCount + " duplicate or superceded messages");
     mm.putContextObject("dedupeCount", dedupeCount); // for SummaryProcessor
   } // end process()
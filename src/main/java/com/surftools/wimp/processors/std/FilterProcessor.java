@@ -50,6 +50,15 @@ public class FilterProcessor extends AbstractBaseProcessor {
   public static Set<String> includeSenderSet = new HashSet<>();
   public static Set<String> excludeSenderSet = new HashSet<>();
 
+  /**
+   * empty the sender sets, in place, so that a re-run in the same JVM doesn't
+   * inherit the previous run's senders
+   */
+  public static void resetSenderSets() {
+    includeSenderSet.clear();
+    excludeSenderSet.clear();
+  }
+
   @Override
   public void initialize(IConfigurationManager cm, IMessageManager mm) {
     super.initialize(cm, mm);
@@ -398,21 +398,17 @@ public class FinalizeProcessor extends AbstractBaseProcessor {
       var now = LocalDateTime.now();
       var body = winlinkContext.body();
 
-      var lastWord = (String) mm.getContextObject(IMessageManager.LAST_WORD);
+      var lastWord = mm.getContext(IMessageManager.LAST_WORD);
       if (lastWord != null && !lastWord.strip().isEmpty()) {
         body += "\n\n" + lastWord;
 
-        @SuppressWarnings("unchecked")
-        var firstTimeCalls = (List<String>) mm.getContextObject(IMessageManager.FIRST_TIME_CALLS);
+        var firstTimeCalls = mm.getContext(IMessageManager.FIRST_TIME_CALLS);
         if (firstTimeCalls != null) {
           body += "\n" + "First Time Participants: " + firstTimeCalls.size() + "\n";
         }
       }
 
-      body = body.replaceAll("<", "&lt;");
-      body = body.replaceAll("<=", "&lt;=3D");
-      body = body.replaceAll(">", "&gt;");
-      body = body.replaceAll(">=", "&gt;=3D");
+      body = AbstractBaseOutboundMessageEngine.XML_BODY_ASSASSINATOR.assassinate(body);
 
       var toArray = winlinkContext.to.split(",");
       var toList = Arrays.asList(toArray);
@@ -139,7 +139,7 @@ public class HistoryMapProcessor extends AbstractBaseProcessor {
     mapService.makeMap(context);
 
     var firstTimeCalls = mapEntries.stream().map(e -> e.label()).sorted().toList();
-    mm.putContextObject(IMessageManager.FIRST_TIME_CALLS, firstTimeCalls);
+    mm.putContext(IMessageManager.FIRST_TIME_CALLS, firstTimeCalls);
     WriteProcessor.writeString(String.join("\n", firstTimeCalls),
         Path.of(outputPathName, exerciseDate + "-firstTimeCalls.txt"));
   }
@@ -0,0 +1,355 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+package com.surftools.wimp.processors.std;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.surftools.utils.FileUtils;
+import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.message.ExportedMessage;
+
+/**
+ * persistent cache of the ExportedMessages read from each input file, so that
+ * re-running an exercise only has to parse new or changed input files
+ *
+ * one cache file per input file, with a header of the input file's size,
+ * modification time and content hash, followed by the messages
+ *
+ * the header also holds a hash of the read-relevant configuration, so that
+ * changing, say, the kept lines or the destinations invalidates the cache
+ *
+ * NOTE WELL: bump FORMAT_VERSION whenever ExportedMessage or the reading of
+ * ExportedMessages changes, to invalidate all existing cache files
+ *
+ * only plain ExportedMessages, as read, can be cached; the reader produces no
+ * other kind
+ *
+ * @author bobt
+ *
+ */
+public class IngestCache {
+  private static final Logger logger = LoggerFactory.getLogger(IngestCache.class);
+
+  public static final String CACHE_DIR_NAME = "ingest-cache";
+  private static final String CACHE_SUFFIX = ".cache";
+  private static final int FORMAT_VERSION = 6;
+
+  private final Path cachePath;
+  private final byte[] configHash;
+
+  private final AtomicInteger hitCount = new AtomicInteger();
+  private final AtomicInteger missCount = new AtomicInteger();
+
+  record Header(int formatVersion, byte[] configHash, long size, long lastModified, byte[] hash) {
+  };
+
+  /**
+   *
+   * @param exercisePath
+   * @param readConfiguration
+   *          -- description of everything besides the input file that affects
+   *          what is read
+   */
+  public IngestCache(Path exercisePath, String readConfiguration) {
+    cachePath = FileUtils.createDirectory(Path.of(exercisePath.toString(), CACHE_DIR_NAME));
+    try {
+      configHash = MessageDigest.getInstance("SHA-256").digest(readConfiguration.getBytes(StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      throw new RuntimeException("could not hash read configuration: " + e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * return the cached messages for the input file, or null if not cached or the
+   * input file has changed
+   *
+   * @param filePath
+   * @return
+   */
+  public List<ExportedMessage> get(Path filePath) {
+    var cacheFilePath = getCacheFilePath(filePath);
+    if (!Files.exists(cacheFilePath)) {
+      missCount.incrementAndGet();
+      return null;
+    }
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFilePath)))) {
+      var header = readHeader(in);
+      var size = Files.size(filePath);
+      var lastModified = Files.getLastModifiedTime(filePath).toMillis();
+      if (header.formatVersion != FORMAT_VERSION || !Arrays.equals(header.configHash, configHash)
+          || header.size != size) {
+        missCount.incrementAndGet();
+        return null;
+      }
+
+      // touched, but maybe not changed
+      var isTouched = header.lastModified != lastModified;
+      if (isTouched && !Arrays.equals(header.hash, hash(filePath))) {
+        missCount.incrementAndGet();
+        return null;
+      }
+
+      var messages = readMessages(in);
+      hitCount.incrementAndGet();
+      logger.debug("ingest cache hit for file: " + filePath.getFileName() + ", " + messages.size() + " messages");
+
+      if (isTouched) {
+        put(filePath, messages);
+      }
+      return messages;
+    } catch (Exception e) {
+      logger.warn("Exception reading ingest cache for file: " + filePath.getFileName() + ", "
+          + e.getLocalizedMessage());
+      missCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * store the messages read from the input file
+   *
+   * @param filePath
+   * @param messages
+   */
+  public void put(Path filePath, List<ExportedMessage> messages) {
+    var cacheFilePath = getCacheFilePath(filePath);
+    Path tmpPath = null;
+    try {
+      tmpPath = Files.createTempFile(cachePath, filePath.getFileName().toString(), ".tmp");
+      try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+        out.writeInt(FORMAT_VERSION);
+        writeBytes(out, configHash);
+        out.writeLong(Files.size(filePath));
+        out.writeLong(Files.getLastModifiedTime(filePath).toMillis());
+        var hash = hash(filePath);
+        out.writeInt(hash.length);
+        out.write(hash);
+        writeMessages(out, messages);
+      }
+      Files.move(tmpPath, cacheFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      logger.warn("Exception writing ingest cache for file: " + filePath.getFileName() + ", "
+          + e.getLocalizedMessage());
+      try {
+        if (tmpPath != null) {
+          Files.deleteIfExists(tmpPath);
+        }
+      } catch (IOException e2) {
+        ;
+      }
+    }
+  }
+
+  /**
+   * remove cache files for input files that no longer exist
+   *
+   * @param fileNames
+   */
+  public void retainOnly(Set<String> fileNames) {
+    try (var stream = Files.list(cachePath)) {
+      for (var cacheFilePath : stream.toList()) {
+        var cacheFileName = cacheFilePath.getFileName().toString();
+        if (!cacheFileName.endsWith(CACHE_SUFFIX)) {
+          continue;
+        }
+        var fileName = cacheFileName.substring(0, cacheFileName.length() - CACHE_SUFFIX.length());
+        if (!fileNames.contains(fileName)) {
+          Files.delete(cacheFilePath);
+          logger.debug("removed stale ingest cache file: " + cacheFileName);
+        }
+      }
+    } catch (Exception e) {
+      logger.warn("Exception cleaning ingest cache: " + e.getLocalizedMessage());
+    }
+  }
+
+  public int getHitCount() {
+    return hitCount.get();
+  }
+
+  public int getMissCount() {
+    return missCount.get();
+  }
+
+  private Path getCacheFilePath(Path filePath) {
+    return Path.of(cachePath.toString(), filePath.getFileName().toString() + CACHE_SUFFIX);
+  }
+
+  private byte[] hash(Path filePath) throws Exception {
+    var md = MessageDigest.getInstance("SHA-256");
+    var buffer = new byte[64 * 1024];
+    try (var in = Files.newInputStream(filePath)) {
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        md.update(buffer, 0, n);
+      }
+    }
+    return md.digest();
+  }
+
+  private Header readHeader(DataInputStream in) throws IOException {
+    var formatVersion = in.readInt();
+    if (formatVersion != FORMAT_VERSION) {
+      return new Header(formatVersion, null, -1, -1, null);
+    }
+    var configHash = readBytes(in);
+    var size = in.readLong();
+    var lastModified = in.readLong();
+    var hash = new byte[in.readInt()];
+    in.readFully(hash);
+    return new Header(formatVersion, configHash, size, lastModified, hash);
+  }
+
+  private void writeMessages(DataOutputStream out, List<ExportedMessage> messages) throws IOException {
+    out.writeInt(messages.size());
+    for (var m : messages) {
+      if (m.getClass() != ExportedMessage.class) {
+        throw new RuntimeException("can't cache " + m.getClass().getSimpleName() + ", messageId: " + m.messageId);
+      }
+
+      writeString(out, m.messageId);
+      writeString(out, m.from);
+      writeString(out, m.source);
+      writeString(out, m.to);
+      writeString(out, m.toList);
+      writeString(out, m.ccList);
+      writeString(out, m.subject);
+      writeString(out, m.msgDateTime == null ? null : m.msgDateTime.toString());
+
+      out.writeBoolean(m.msgLocation != null);
+      if (m.msgLocation != null) {
+        writeString(out, m.msgLocation.getLatitude());
+        writeString(out, m.msgLocation.getLongitude());
+      }
+      writeString(out, m.msgLocationSource);
+
+      // plainContent and attachments are decoded from mime on demand
+      writeString(out, m.getMime());
+
+      out.writeBoolean(m.isP2p);
+      writeString(out, m.fileName);
+
+      var lines = m.getLines();
+      if (lines == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(lines.size());
+        for (var line : lines) {
+          writeString(out, line);
+        }
+      }
+    }
+  }
+
+  private List<ExportedMessage> readMessages(DataInputStream in) throws IOException {
+    var nMessages = in.readInt();
+    var messages = new ArrayList<ExportedMessage>(nMessages);
+    for (var i = 0; i < nMessages; ++i) {
+      var messageId = readString(in);
+      var from = readString(in);
+      var source = readString(in);
+      var to = readString(in);
+      var toList = readString(in);
+      var ccList = readString(in);
+      var subject = readString(in);
+      var dateTimeString = readString(in);
+      var dateTime = dateTimeString == null ? null : LocalDateTime.parse(dateTimeString);
+
+      LatLongPair location = null;
+      if (in.readBoolean()) {
+        location = new LatLongPair(readString(in), readString(in));
+      }
+      var locationSource = readString(in);
+
+      var mime = readString(in);
+
+      var isP2p = in.readBoolean();
+      var fileName = readString(in);
+
+      List<String> lines = null;
+      var nLines = in.readInt();
+      if (nLines >= 0) {
+        lines = new ArrayList<>(nLines);
+        for (var j = 0; j < nLines; ++j) {
+          lines.add(readString(in));
+        }
+      }
+
+      messages.add(new ExportedMessage(messageId, from, source, to, toList, ccList, subject, //
+          dateTime, location, locationSource, //
+          mime, isP2p, fileName, lines));
+    }
+    return messages;
+  }
+
+  private void writeString(DataOutputStream out, String s) throws IOException {
+    writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String readString(DataInputStream in) throws IOException {
+    var bytes = readBytes(in);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private byte[] readBytes(DataInputStream in) throws IOException {
+    var length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    var bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+}
@@ -106,7 +106,7 @@ public class MissedExerciseProcessor extends AbstractBaseProcessor {
     var outboundMessages = new ArrayList<OutboundMessage>();
     var from = cm.getAsString(Key.OUTBOUND_MESSAGE_SENDER);
     var subject = cm.getAsString(Key.PERSISTENCE_MISS_SUBJECT, "We missed you!");
-    var instructions = (String) mm.getContextObject(PracticeProcessorTool.INSTRUCTIONS_KEY);
+    var instructions = mm.getContext(PracticeProcessorTool.INSTRUCTIONS_KEY);
     for (var joinedUser : joinedUsers) {
       var to = joinedUser.user.call();
       // inside loop, because we might want to show name, count of missed exercises,
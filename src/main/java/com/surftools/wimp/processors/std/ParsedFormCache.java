@@ -0,0 +1,497 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.surftools.wimp.processors.std;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.surftools.utils.FileUtils;
+import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.core.MessageType;
+import com.surftools.wimp.core.RejectType;
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.PlainMessage;
+import com.surftools.wimp.message.RejectionMessage;
+import com.surftools.wimp.parser.FormBinder;
+
+/**
+ * persistent cache of what the ClassifierProcessor made of each message, so
+ * that re-running an exercise only has to classify and parse new or changed
+ * messages
+ *
+ * keyed by message id plus a hash of the raw MIME, which holds the (encoded)
+ * form attachment along with the headers that parsers read, so a hit needs
+ * neither the attachments decoded nor the form XML parsed. Typed messages are
+ * stored as the constructor arguments captured by their FormBinder, and rebuilt
+ * from them, around the message being classified
+ *
+ * entries are invalidated when the parser for their type reports a different
+ * getVersion(); bump FORMAT_VERSION whenever the encoding here changes. Entries
+ * not used by a run are dropped when the cache is saved
+ *
+ * @author bobt
+ *
+ */
+public class ParsedFormCache {
+  private static final Logger logger = LoggerFactory.getLogger(ParsedFormCache.class);
+
+  public static final String CACHE_DIR_NAME = "parse-cache";
+  private static final String CACHE_FILE_NAME = "parsed-forms.cache";
+  private static final int FORMAT_VERSION = 1;
+
+  // what the classifier produced
+  private static final byte KIND_UNPARSED = 0; // no parser for the type, message as is
+  private static final byte KIND_PLAIN = 1;
+  private static final byte KIND_REJECTION = 2;
+  private static final byte KIND_BOUND = 3;
+
+  // constructor argument values
+  private static final byte VALUE_NULL = 0;
+  private static final byte VALUE_SOURCE = 1; // the message being classified
+  private static final byte VALUE_STRING = 2;
+  private static final byte VALUE_BOOLEAN = 3;
+  private static final byte VALUE_INT = 4;
+  private static final byte VALUE_LOCATION = 5;
+  private static final byte VALUE_LIST = 6;
+  private static final byte VALUE_MAP = 7;
+  private static final byte VALUE_RECORD = 8;
+
+  private final Path cacheFilePath;
+  private final Map<MessageType, Integer> parserVersionMap;
+
+  // loaded entries, and entries used or stored by this run
+  private final Map<String, Entry> loadedMap = new HashMap<>();
+  private final Map<String, Entry> usedMap = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, Constructor<?>> recordConstructorMap = new ConcurrentHashMap<>();
+  private final ThreadLocal<MessageDigest> digestHolder = ThreadLocal.withInitial(ParsedFormCache::makeDigest);
+
+  private final AtomicInteger hitCount = new AtomicInteger();
+  private final AtomicInteger missCount = new AtomicInteger();
+  private final AtomicInteger uncacheableCount = new AtomicInteger();
+  private int invalidatedCount;
+
+  /**
+   * @param messageType
+   * @param parserVersion
+   * @param isRenamed
+   *          the form attachment was renamed during classification
+   * @param body
+   *          the encoded result
+   */
+  record Entry(MessageType messageType, int parserVersion, boolean isRenamed, byte[] body) {
+  };
+
+  public ParsedFormCache(Path exercisePath, Map<MessageType, Integer> parserVersionMap) {
+    var cachePath = FileUtils.createDirectory(Path.of(exercisePath.toString(), CACHE_DIR_NAME));
+    this.cacheFilePath = Path.of(cachePath.toString(), CACHE_FILE_NAME);
+    this.parserVersionMap = parserVersionMap;
+    load();
+  }
+
+  /**
+   * @param message
+   * @return the cache key for the message, or null if it can't be cached
+   */
+  public String makeKey(ExportedMessage message) {
+    var mime = message.getMime();
+    if (message.messageId == null || mime == null) {
+      return null;
+    }
+
+    var digest = digestHolder.get();
+    var hash = digest.digest(mime.getBytes(StandardCharsets.UTF_8));
+    return message.messageId + ":" + Base64.getEncoder().encodeToString(hash);
+  }
+
+  /**
+   * @param key
+   * @return the cached entry, or null if not cached
+   */
+  public Entry get(String key) {
+    var entry = loadedMap.get(key);
+    if (entry == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * rebuild the classified message from a cached entry
+   *
+   * @param key
+   * @param entry
+   * @param message
+   *          the message being classified
+   * @return the classified message, or null if the entry can't be used
+   */
+  public ExportedMessage rebuild(String key, Entry entry, ExportedMessage message) {
+    try (var in = new DataInputStream(new ByteArrayInputStream(entry.body))) {
+      ExportedMessage result = null;
+      var kind = in.readByte();
+      switch (kind) {
+      case KIND_UNPARSED:
+        result = message;
+        break;
+
+      case KIND_PLAIN:
+        result = new PlainMessage(message);
+        break;
+
+      case KIND_REJECTION:
+        result = new RejectionMessage(message, RejectType.valueOf(readString(in)), readString(in));
+        break;
+
+      case KIND_BOUND:
+        var type = Class.forName(readString(in));
+        var args = new Object[in.readInt()];
+        for (var i = 0; i < args.length; ++i) {
+          args[i] = readValue(in, message);
+        }
+        result = (ExportedMessage) FormBinder.construct(new FormBinder.Bound(type, args));
+        break;
+
+      default:
+        throw new IOException("unknown kind: " + kind);
+      }
+
+      usedMap.put(key, entry);
+      hitCount.incrementAndGet();
+      return result;
+    } catch (Exception e) {
+      logger.warn("Exception reading parse cache for messageId: " + message.messageId + ", " + e.getLocalizedMessage());
+      missCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * store what the classifier made of the message
+   *
+   * @param key
+   * @param messageType
+   * @param isRenamed
+   * @param message
+   *          the message that was classified
+   * @param result
+   *          what the classifier returned
+   * @param bound
+   *          the captured FormBinder arguments, if any
+   */
+  public void put(String key, MessageType messageType, boolean isRenamed, ExportedMessage message,
+      ExportedMessage result, FormBinder.Bound bound) {
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(bytes)) {
+      if (result == message) {
+        out.writeByte(KIND_UNPARSED);
+      } else if (result instanceof RejectionMessage rejection) {
+        out.writeByte(KIND_REJECTION);
+        writeString(out, rejection.reason.name());
+        writeString(out, rejection.context);
+      } else if (result.getClass() == PlainMessage.class) {
+        out.writeByte(KIND_PLAIN);
+      } else if (bound != null && bound.type() == result.getClass()) {
+        out.writeByte(KIND_BOUND);
+        writeString(out, bound.type().getName());
+        out.writeInt(bound.args().length);
+        for (var arg : bound.args()) {
+          writeValue(out, arg, message);
+        }
+      } else {
+        uncacheableCount.incrementAndGet();
+        return;
+      }
+    } catch (Exception e) {
+      logger.debug("can't cache messageId: " + message.messageId + ", " + e.getLocalizedMessage());
+      uncacheableCount.incrementAndGet();
+      return;
+    }
+
+    var parserVersion = parserVersionMap.getOrDefault(messageType, 0);
+    usedMap.put(key, new Entry(messageType, parserVersion, isRenamed, bytes.toByteArray()));
+  }
+
+  /**
+   * write the entries used or stored by this run, dropping the rest
+   */
+  public void save() {
+    Path tmpPath = null;
+    try {
+      tmpPath = Files.createTempFile(cacheFilePath.getParent(), CACHE_FILE_NAME, ".tmp");
+      try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(usedMap.size());
+        for (var mapEntry : usedMap.entrySet()) {
+          var entry = mapEntry.getValue();
+          writeString(out, mapEntry.getKey());
+          writeString(out, entry.messageType.name());
+          out.writeInt(entry.parserVersion);
+          out.writeBoolean(entry.isRenamed);
+          out.writeInt(entry.body.length);
+          out.write(entry.body);
+        }
+      }
+      Files.move(tmpPath, cacheFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      logger.warn("Exception writing parse cache: " + e.getLocalizedMessage());
+      try {
+        if (tmpPath != null) {
+          Files.deleteIfExists(tmpPath);
+        }
+      } catch (IOException e2) {
+        ;
+      }
+    }
+  }
+
+  public int getHitCount() {
+    return hitCount.get();
+  }
+
+  public int getMissCount() {
+    return missCount.get();
+  }
+
+  public int getUncacheableCount() {
+    return uncacheableCount.get();
+  }
+
+  public int getInvalidatedCount() {
+    return invalidatedCount;
+  }
+
+  public String getReport() {
+    var total = hitCount.get() + missCount.get();
+    var hitPercent = total == 0 ? 0d : (100d * hitCount.get()) / total;
+    return String.format("parse cache: %d messages reused, %d parsed (%.1f%% hit rate), %d not cacheable, "
+        + "%d invalidated by parser version", hitCount.get(), missCount.get(), hitPercent, uncacheableCount.get(),
+        invalidatedCount);
+  }
+
+  private void load() {
+    if (!Files.exists(cacheFilePath)) {
+      return;
+    }
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFilePath)))) {
+      var formatVersion = in.readInt();
+      if (formatVersion != FORMAT_VERSION) {
+        logger.info("discarding parse cache with format version: " + formatVersion);
+        return;
+      }
+
+      var nEntries = in.readInt();
+      for (var i = 0; i < nEntries; ++i) {
+        var key = readString(in);
+        var messageType = MessageType.valueOf(readString(in));
+        var parserVersion = in.readInt();
+        var isRenamed = in.readBoolean();
+        var body = new byte[in.readInt()];
+        in.readFully(body);
+
+        if (parserVersion != parserVersionMap.getOrDefault(messageType, 0)) {
+          ++invalidatedCount;
+          continue;
+        }
+        loadedMap.put(key, new Entry(messageType, parserVersion, isRenamed, body));
+      }
+      logger.debug("loaded " + loadedMap.size() + " parse cache entries");
+    } catch (Exception e) {
+      logger.warn("Exception reading parse cache: " + e.getLocalizedMessage());
+      loadedMap.clear();
+    }
+  }
+
+  private void writeValue(DataOutputStream out, Object value, ExportedMessage source) throws IOException {
+    if (value == null) {
+      out.writeByte(VALUE_NULL);
+    } else if (value == source) {
+      out.writeByte(VALUE_SOURCE);
+    } else if (value instanceof String s) {
+      out.writeByte(VALUE_STRING);
+      writeString(out, s);
+    } else if (value instanceof Boolean b) {
+      out.writeByte(VALUE_BOOLEAN);
+      out.writeBoolean(b);
+    } else if (value instanceof Integer n) {
+      out.writeByte(VALUE_INT);
+      out.writeInt(n);
+    } else if (value instanceof LatLongPair pair) {
+      out.writeByte(VALUE_LOCATION);
+      writeString(out, pair.getLatitude());
+      writeString(out, pair.getLongitude());
+    } else if (value instanceof List<?> list) {
+      out.writeByte(VALUE_LIST);
+      out.writeInt(list.size());
+      for (var element : list) {
+        writeValue(out, element, source);
+      }
+    } else if (value instanceof Map<?, ?> map) {
+      out.writeByte(VALUE_MAP);
+      out.writeInt(map.size());
+      for (var mapEntry : map.entrySet()) {
+        writeValue(out, mapEntry.getKey(), source);
+        writeValue(out, mapEntry.getValue(), source);
+      }
+    } else if (value instanceof Record record) {
+      out.writeByte(VALUE_RECORD);
+      writeString(out, record.getClass().getName());
+      var components = record.getClass().getRecordComponents();
+      out.writeInt(components.length);
+      for (var component : components) {
+        try {
+          writeValue(out, component.getAccessor().invoke(record), source);
+        } catch (ReflectiveOperationException e) {
+          throw new IOException("can't read " + component.getName() + ": " + e.getLocalizedMessage());
+        }
+      }
+    } else {
+      throw new IOException("can't cache value of type: " + value.getClass().getName());
+    }
+  }
+
+  private Object readValue(DataInputStream in, ExportedMessage source) throws IOException {
+    var kind = in.readByte();
+    switch (kind) {
+    case VALUE_NULL:
+      return null;
+
+    case VALUE_SOURCE:
+      return source;
+
+    case VALUE_STRING:
+      return readString(in);
+
+    case VALUE_BOOLEAN:
+      return in.readBoolean();
+
+    case VALUE_INT:
+      return in.readInt();
+
+    case VALUE_LOCATION:
+      return new LatLongPair(readString(in), readString(in));
+
+    case VALUE_LIST:
+      var nElements = in.readInt();
+      var list = new ArrayList<Object>(nElements);
+      for (var i = 0; i < nElements; ++i) {
+        list.add(readValue(in, source));
+      }
+      return list;
+
+    case VALUE_MAP:
+      var nEntries = in.readInt();
+      var map = new HashMap<Object, Object>();
+      for (var i = 0; i < nEntries; ++i) {
+        map.put(readValue(in, source), readValue(in, source));
+      }
+      return map;
+
+    case VALUE_RECORD:
+      var className = readString(in);
+      var args = new Object[in.readInt()];
+      for (var i = 0; i < args.length; ++i) {
+        args[i] = readValue(in, source);
+      }
+      try {
+        var constructor = recordConstructorMap.computeIfAbsent(Class.forName(className), this::makeRecordConstructor);
+        return constructor.newInstance(args);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        throw new IOException("can't construct " + className + ": " + e.getLocalizedMessage());
+      }
+
+    default:
+      throw new IOException("unknown value kind: " + kind);
+    }
+  }
+
+  private Constructor<?> makeRecordConstructor(Class<?> recordClass) {
+    var components = recordClass.getRecordComponents();
+    var types = new Class<?>[components.length];
+    for (var i = 0; i < components.length; ++i) {
+      types[i] = components[i].getType();
+    }
+    try {
+      return recordClass.getDeclaredConstructor(types);
+    } catch (NoSuchMethodException e) {
+      throw new RuntimeException("no canonical constructor for " + recordClass.getName());
+    }
+  }
+
+  private static MessageDigest makeDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("no SHA-256: " + e.getLocalizedMessage());
+    }
+  }
+
+  private void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      var bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private String readString(DataInputStream in) throws IOException {
+    var length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    var bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
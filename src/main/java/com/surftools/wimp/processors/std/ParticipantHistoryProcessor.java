@@ -40,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.core.CallSignPool;
 import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.core.IWritableTable;
 import com.surftools.wimp.persistence.IPersistenceManager;
@@ -285,7 +286,7 @@ public class ParticipantHistoryProcessor extends AbstractBaseProcessor {
 
     public static DogfoodEntry fromFields(String[] fields) {
       var email = fields[0];
-      var call = fields[1].toUpperCase();
+      var call = CallSignPool.intern(fields[1].toUpperCase());
       var firstName = fields[2];
       var lastName = fields[3];
       var state = fields[4];
@@ -27,6 +27,7 @@ SOFTWARE.
 
 package com.surftools.wimp.processors.std;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,9 +35,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.core.ColumnarMessageManager;
+import com.surftools.wimp.core.ConcurrentMessageManager;
 import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.core.IProcessor;
 import com.surftools.wimp.core.MessageManager;
+import com.surftools.wimp.message.PayloadSpillStore;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 import com.surftools.wimp.utils.config.impl.PropertyFileConfigurationManager;
 
@@ -46,6 +50,9 @@ public class PipelineProcessor extends AbstractBaseProcessor {
   // the processors that make up the pipeline
   private List<IProcessor> processors;
 
+  // optional, to bound the heap used by message payloads
+  private PayloadSpillStore spillStore;
+
   // default no-args constructor
   public PipelineProcessor() {
   }
@@ -60,10 +67,21 @@ public class PipelineProcessor extends AbstractBaseProcessor {
   @Override
   public void initialize(IConfigurationManager cm, IMessageManager _mm) {
     if (_mm == null) {
-      _mm = new MessageManager();
+      _mm = makeMessageManager(cm);
     }
     super.initialize(cm, _mm);
 
+    var spillBudgetMB = cm.getAsInt(Key.SPILL_MEMORY_BUDGET_MB, 0);
+    if (spillBudgetMB > 0) {
+      try {
+        spillStore = new PayloadSpillStore(Path.of(exercisePathName, "spill"), spillBudgetMB * 1024L * 1024L);
+        mm.setPayloadSpillStore(spillStore);
+      } catch (Exception e) {
+        logger.error("Exception creating payload spill store, keeping all payloads in memory: "
+            + e.getLocalizedMessage());
+      }
+    }
+
     var stdin = cm.getAsString(Key.PIPELINE_STDIN, "Read,Classifier,Acknowledgement,Deduplication,Filter");
     var main = cm.getAsString(Key.PIPELINE_MAIN, ""); // exercise-specific processors go here!
     var stdout = cm.getAsString(Key.PIPELINE_STDOUT, "Write,MissingDestination,Summary");
@@ -83,6 +101,32 @@ public class PipelineProcessor extends AbstractBaseProcessor {
   @Override
   public void postProcess() {
     processors.stream().forEach(p -> p.postProcess());
+
+    if (spillStore != null) {
+      logger.info(spillStore.getReport());
+      spillStore.close();
+    }
+  }
+
+  /**
+   * the configured IMessageManager: thread-safe ConcurrentMessageManager, compact
+   * ColumnarMessageManager, or else MessageManager
+   *
+   * @param cm
+   * @return
+   */
+  public static IMessageManager makeMessageManager(IConfigurationManager cm) {
+    var name = cm.getAsString(Key.PIPELINE_MESSAGE_MANAGER, "default");
+    switch (name) {
+    case "concurrent":
+      return new ConcurrentMessageManager();
+    case "columnar":
+      return new ColumnarMessageManager();
+    case "default":
+      return new MessageManager();
+    default:
+      throw new RuntimeException("unknown " + Key.PIPELINE_MESSAGE_MANAGER.toString() + ": " + name);
+    }
   }
 
   private boolean isValidProcessorName(String s) {
@@ -27,15 +27,29 @@ SOFTWARE.
 
 package com.surftools.wimp.processors.std;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,8 +58,11 @@ import com.opencsv.CSVParser;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
+import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.core.CallSignPool;
 import com.surftools.wimp.core.IMessageManager;
 import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.parser.MessageBoundaryScanner;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
 /**
@@ -58,30 +75,138 @@ import com.surftools.wimp.utils.config.IConfigurationManager;
 public class ReadProcessor extends BaseReadProcessor {
   private static final Logger logger = LoggerFactory.getLogger(ReadProcessor.class);
 
+  // besides plain .xml exports, read these without extracting them
+  private static final String GZIP_SUFFIX = ".xml.gz";
+  private static final String ZIP_SUFFIX = ".zip";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private String readMethod = "stream"; // or "dom" or "mapped"
+  private int parallelism = 1;
+  private IngestCache ingestCache = null;
+
   @Override
   public void initialize(IConfigurationManager cm, IMessageManager mm) {
     super.initialize(cm, mm);
+
+    readMethod = cm.getAsString(Key.READ_METHOD, "stream").toLowerCase();
+    if (!List.of("stream", "dom", "mapped").contains(readMethod)) {
+      logger.warn("unsupported read method: " + readMethod + ", using stream");
+      readMethod = "stream";
+    }
+    if (isKeepLinesEnabled && !readMethod.equals("dom")) {
+      logger.info("message lines requested, only available via dom read method");
+      readMethod = "dom";
+    }
+    logger.info("Using " + readMethod + " read method");
+
+    parallelism = Math.max(1, cm.getAsInt(Key.READ_PARALLELISM, 1));
+    if (parallelism > 1) {
+      logger.info("reading up to " + parallelism + " files concurrently");
+    }
+
+    if (cm.getAsBoolean(Key.READ_CACHE_ENABLED, false)) {
+      // cached messages have already been through the read filter
+      if (cm.getAsBoolean(Key.READ_FILTER_ENABLED, false)) {
+        logger.warn("ingest cache disabled because read filter is enabled");
+      } else {
+        ingestCache = new IngestCache(exercisePath, getReadConfiguration());
+      }
+    }
   }
 
   @Override
   public void process() {
     super.process();
     // read all Exported Messages from files
-    List<ExportedMessage> exportedMessages = new ArrayList<>();
+    var files = new ArrayList<File>();
     for (File file : Arrays.asList(inputPath.toFile().listFiles()).stream().sorted().toList()) {
       if (file.isFile()) {
-        if (!file.getName().toLowerCase().endsWith(".xml")) {
+        if (!isExportFileName(file.getName())) {
           continue;
         }
-        var fileExportedMessages = readAll(file.toPath());
-        exportedMessages.addAll(fileExportedMessages);
+        files.add(file);
       }
     }
+
+    if (ingestCache != null) {
+      ingestCache.retainOnly(files.stream().map(f -> f.getName()).collect(Collectors.toSet()));
+    }
+
+    var exportedMessages = (parallelism > 1 && files.size() > 1) ? readAllConcurrently(files) : readAll(files);
+    if (files.stream().anyMatch(f -> !f.getName().toLowerCase().endsWith(".xml"))) {
+      exportedMessages = orderByExportName(exportedMessages);
+    }
     logger.info("read " + exportedMessages.size() + " exported messages from all files");
+    exportedMessages = removeReadDuplicates(exportedMessages);
+
+    if (ingestCache != null) {
+      logger.info("ingest cache: " + ingestCache.getHitCount() + " files reused, " + ingestCache.getMissCount()
+          + " files parsed");
+    }
+    logger.info(CallSignPool.getReport());
 
     mm.load(exportedMessages);
   }
 
+  private List<ExportedMessage> readAll(List<File> files) {
+    List<ExportedMessage> exportedMessages = new ArrayList<>();
+    for (var file : files) {
+      var fileExportedMessages = readAll(file.toPath());
+      exportedMessages.addAll(fileExportedMessages);
+    }
+    return exportedMessages;
+  }
+
+  /**
+   * read files on virtual threads, at most parallelism at a time, but merge the
+   * results in (sorted) file order, so that the output is identical to reading
+   * sequentially
+   *
+   * @param files
+   * @return
+   */
+  private List<ExportedMessage> readAllConcurrently(List<File> files) {
+    List<ExportedMessage> exportedMessages = new ArrayList<>();
+    var semaphore = new Semaphore(parallelism);
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var futures = new ArrayList<Future<List<ExportedMessage>>>(files.size());
+      for (var file : files) {
+        futures.add(executor.submit(() -> {
+          semaphore.acquire();
+          try {
+            return readAll(file.toPath());
+          } finally {
+            semaphore.release();
+          }
+        }));
+      }
+
+      for (var i = 0; i < files.size(); ++i) {
+        try {
+          exportedMessages.addAll(futures.get(i).get());
+        } catch (Exception e) {
+          logger.error("Exception reading file: " + files.get(i) + ", " + e.getLocalizedMessage());
+        }
+      }
+    }
+    return exportedMessages;
+  }
+
+  /**
+   * compressed exports are read at the position of the .gz or .zip file, but
+   * should be merged as if they had been extracted into input: by the name of
+   * each export. The sort is stable, so messages keep their order within an
+   * export
+   *
+   * @param messages
+   * @return
+   */
+  private List<ExportedMessage> orderByExportName(List<ExportedMessage> messages) {
+    var ordered = new ArrayList<>(messages);
+    ordered.sort(Comparator.comparing(m -> m.fileName, Comparator.nullsFirst(Comparator.naturalOrder())));
+    return ordered;
+  }
+
   /**
    * reads a single file (from a clearinghouse), returns a list of ExportedMessage
    * records
@@ -90,17 +215,166 @@ public class ReadProcessor extends BaseReadProcessor {
    * @return
    */
   public List<ExportedMessage> readAll(Path filePath) {
+    if (ingestCache == null) {
+      var messages = readFile(filePath);
+      return (messages == null) ? new ArrayList<ExportedMessage>() : messages;
+    }
+
+    var messages = ingestCache.get(filePath);
+    if (messages != null) {
+      logger.info("reused " + messages.size() + " cached exported messages for file: " + filePath.getFileName());
+      return messages;
+    }
+
+    messages = readFile(filePath);
+    if (messages == null) {
+      return new ArrayList<ExportedMessage>();
+    }
+    ingestCache.put(filePath, messages);
+    return messages;
+  }
+
+  /**
+   * parse a single file by the configured read method
+   *
+   * @param filePath
+   * @return list of ExportedMessages, or null if the file can't be read at all
+   */
+  private List<ExportedMessage> readFile(Path filePath) {
     logger.debug("Processing file: " + filePath.getFileName());
 
+    var lowerName = filePath.getFileName().toString().toLowerCase();
+    if (lowerName.endsWith(ZIP_SUFFIX)) {
+      return readZipFile(filePath);
+    }
+
+    if (lowerName.endsWith(GZIP_SUFFIX)) {
+      var fileName = filePath.getFileName().toString();
+      var entryName = fileName.substring(0, fileName.length() - ".gz".length());
+      return readCompressed(filePath.toString(), entryName,
+          () -> new GZIPInputStream(Files.newInputStream(filePath), BUFFER_SIZE));
+    }
+
+    if (readMethod.equals("mapped")) {
+      try (var channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+        if (channel.size() <= Integer.MAX_VALUE) {
+          var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          var slices = MessageBoundaryScanner.scan(buffer);
+          var messages = parseMessageSlices(slices, filePath.getFileName().toString());
+          logger.info("extracted " + messages.size() + " exported messages from file: " + filePath.getFileName());
+          return messages;
+        }
+        logger.warn("file: " + filePath + " too large to map, falling back to stream read method");
+      } catch (Exception e) {
+        logger.warn("Exception mapping file: " + filePath + ", " + e.getLocalizedMessage()
+            + ", falling back to stream read method");
+      }
+    }
+
+    if (!readMethod.equals("dom")) {
+      try (var reader = Files.newBufferedReader(filePath)) {
+        var messages = parseExportedMessages(reader, filePath.getFileName().toString());
+        logger.info("extracted " + messages.size() + " exported messages from file: " + filePath.getFileName());
+        return messages;
+      } catch (Exception e) {
+        logger.warn("Exception streaming file: " + filePath + ", " + e.getLocalizedMessage()
+            + ", falling back to dom read method");
+      }
+    }
+
     try {
       var messages = parseExportedMessages(Files.readAllLines(filePath), filePath.getFileName().toString());
       logger.info("extracted " + messages.size() + " exported messages from file: " + filePath.getFileName());
       return messages;
     } catch (Exception e) {
       logger.error("Exception processing file: " + filePath + ", " + e.getLocalizedMessage());
-      return new ArrayList<ExportedMessage>();
+      return null;
+    }
+
+  }
+
+  public static boolean isExportFileName(String fileName) {
+    var lowerName = fileName.toLowerCase();
+    return lowerName.endsWith(".xml") || lowerName.endsWith(GZIP_SUFFIX) || lowerName.endsWith(ZIP_SUFFIX);
+  }
+
+  /**
+   * read every .xml entry of a zip archive, in entry name order, as if the
+   * archive had been extracted into input
+   *
+   * @param filePath
+   * @return list of ExportedMessages, or null if the archive can't be read at all
+   */
+  private List<ExportedMessage> readZipFile(Path filePath) {
+    try (var zipFile = new ZipFile(filePath.toFile())) {
+      var entries = zipFile.stream() //
+          .filter(e -> !e.isDirectory() && e.getName().toLowerCase().endsWith(".xml")) //
+          .sorted(Comparator.comparing(e -> baseName(e.getName()))) //
+          .toList();
+
+      var messages = new ArrayList<ExportedMessage>();
+      for (var entry : entries) {
+        var entryMessages = readCompressed(filePath + "!" + entry.getName(), baseName(entry.getName()),
+            () -> zipFile.getInputStream(entry));
+        if (entryMessages != null) {
+          messages.addAll(entryMessages);
+        }
+      }
+      logger.info("extracted " + messages.size() + " exported messages from " + entries.size() + " entries in file: "
+          + filePath.getFileName());
+      return messages;
+    } catch (Exception e) {
+      logger.error("Exception processing file: " + filePath + ", " + e.getLocalizedMessage());
+      return null;
+    }
+  }
+
+  /**
+   * parse one export straight from its decompressing stream, with no temporary
+   * files and without holding the decompressed content. There's nothing to map,
+   * so the mapped read method streams; the dom fallback re-opens the content
+   *
+   * @param source
+   *          -- for logging
+   * @param fileName
+   *          -- the name the export would have had, if extracted
+   * @param opener
+   *          -- to open the decompressed content, possibly more than once
+   * @return list of ExportedMessages, or null if the content can't be read at all
+   */
+  private List<ExportedMessage> readCompressed(String source, String fileName, StreamOpener opener) {
+    if (!readMethod.equals("dom")) {
+      try (var reader = newReader(opener)) {
+        var messages = parseExportedMessages(reader, fileName);
+        logger.info("extracted " + messages.size() + " exported messages from: " + source);
+        return messages;
+      } catch (Exception e) {
+        logger.warn("Exception streaming: " + source + ", " + e.getLocalizedMessage()
+            + ", falling back to dom read method");
+      }
+    }
+
+    try (var reader = newReader(opener)) {
+      var messages = parseExportedMessages(reader.lines().toList(), fileName);
+      logger.info("extracted " + messages.size() + " exported messages from: " + source);
+      return messages;
+    } catch (Exception e) {
+      logger.error("Exception processing: " + source + ", " + e.getLocalizedMessage());
+      return null;
     }
+  }
+
+  private static BufferedReader newReader(StreamOpener opener) throws IOException {
+    return new BufferedReader(new InputStreamReader(opener.open(), StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  private static String baseName(String entryName) {
+    return entryName.substring(entryName.lastIndexOf('/') + 1);
+  }
 
+  @FunctionalInterface
+  private interface StreamOpener {
+    InputStream open() throws IOException;
   }
 
   /**
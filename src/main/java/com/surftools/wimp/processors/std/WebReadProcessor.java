@@ -60,6 +60,7 @@ public class WebReadProcessor extends BaseReadProcessor {
     var exportedMessages = readAll();
 
     logger.info("read " + exportedMessages.size() + " exported messages from all files");
+    exportedMessages = removeReadDuplicates(exportedMessages);
 
     mm.load(exportedMessages);
   }
@@ -99,7 +99,7 @@ public class WriteProcessor extends AbstractBaseProcessor {
       addressesList.addAll(Arrays.asList(m.ccList.split(",")));
       addressesList.remove(m.to);
       var addresses = String.join(",", addressesList);
-      var nAttachments = m.attachments == null ? "" : String.valueOf(m.attachments.size());
+      var nAttachments = m.getAttachments() == null ? "" : String.valueOf(m.getAttachments().size());
       return new String[] { m.messageId, m.getMessageType().toString(), m.from, m.to, addresses, m.subject, //
           date, time, lat, lon, m.msgLocationSource, //
           nAttachments };
@@ -116,10 +116,9 @@ public class WriteProcessor extends AbstractBaseProcessor {
   public void postProcess() {
     var typedMessages = new ArrayList<IWritableTable>();
     int relocationIndex = 0;
-    var it = mm.getMessageTypeIteror();
-    while (it.hasNext()) {
-      var messageType = it.next();
-      var messages = mm.getMessagesForType(messageType);
+    var snapshot = mm.snapshot();
+    for (var messageType : snapshot.getMessageTypes()) {
+      var messages = snapshot.getMessagesForType(messageType);
       writeOutput(messages, messageType);
       if (messageType != MessageType.EXPORTED) {
         for (var message : messages) {
@@ -159,8 +158,9 @@ public class WriteProcessor extends AbstractBaseProcessor {
    */
   public void writeOutput(List<ExportedMessage> messages, MessageType messageType) {
     Path outputPath = Path.of(outputPathName, messageType.toString() + ".csv");
-    Collections.sort(messages);
-    writeTable(new ArrayList<IWritableTable>(messages), outputPath);
+    var sortedMessages = new ArrayList<ExportedMessage>(messages); // may be immutable
+    Collections.sort(sortedMessages);
+    writeTable(new ArrayList<IWritableTable>(sortedMessages), outputPath);
   }
 
   public static void writeTable(List<IWritableTable> records, String fileName) {
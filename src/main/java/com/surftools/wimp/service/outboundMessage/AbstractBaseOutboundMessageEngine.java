@@ -34,6 +34,8 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.codec.binary.Base32;
 import org.slf4j.Logger;
@@ -42,12 +44,23 @@ import org.slf4j.LoggerFactory;
 import com.surftools.utils.textEditor.ITextEditor;
 import com.surftools.utils.textEditor.TextEditorManager;
 import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.parser.CharacterAssassinator;
 import com.surftools.wimp.processors.std.AbstractBaseProcessor;
 import com.surftools.wimp.utils.config.IConfigurationManager;
 
 public abstract class AbstractBaseOutboundMessageEngine implements IOutboundMessageEngine {
   private static final Logger logger = LoggerFactory.getLogger(AbstractBaseOutboundMessageEngine.class);
 
+  // escape user-generated body text before it is wrapped in XML
+  public static final CharacterAssassinator XML_BODY_ASSASSINATOR = new CharacterAssassinator(null,
+      Map.of("<", "&lt;", ">", "&gt;"));
+
+  // B2F bodies are ASCII with CRLF line endings, extraContent isn't translated
+  private static final CharacterAssassinator NON_ASCII_ASSASSINATOR = new CharacterAssassinator(null,
+      Map.of("\n", "\r\n"), ".");
+  private static final CharacterAssassinator EXTRA_CONTENT_ASSASSINATOR = new CharacterAssassinator(List.of("\u009d"),
+      Map.of("\n", "\r\n"));
+
   protected IConfigurationManager cm;
   protected final String extraContent;
 
@@ -114,13 +127,11 @@ public abstract class AbstractBaseOutboundMessageEngine implements IOutboundMess
     var body = m.body();
 
     // translate non-ascii characters
-    body = body.replaceAll("[^\\x00-\\x7F]", ".");
+    body = NON_ASCII_ASSASSINATOR.assassinate(body);
 
     if (extraContent != null) {
-      body = body + "\n" + extraContent;
+      body = body + EXTRA_CONTENT_ASSASSINATOR.assassinate("\n" + extraContent);
     }
-    body = body.replaceAll("\n", SEP);
-    body = body.replaceAll("\\u009d", "");
 
     if (bodyTextEditor != null) {
       body = bodyTextEditor.edit(body);
@@ -110,10 +110,7 @@ public class WinlinkExpressOutboundMessageEngine extends AbstractBaseOutboundMes
       body = body + "\n" + extraContent;
     }
 
-    body = body.replaceAll("<", "&lt;");
-    body = body.replaceAll("<=", "&lt;=3D");
-    body = body.replaceAll(">", "&gt;");
-    body = body.replaceAll(">=", "&gt;=3D");
+    body = XML_BODY_ASSASSINATOR.assassinate(body);
 
     if (bodyTextEditor != null) {
       body = bodyTextEditor.edit(body);
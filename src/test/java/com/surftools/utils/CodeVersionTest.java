@@ -0,0 +1,86 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * the version must follow the content of the code a class was loaded from, not
+ * where it is
+ *
+ * @author bobt
+ *
+ */
+public class CodeVersionTest {
+  private static final String CLASS_FILE = "com/surftools/utils/FileUtils.class";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path makeClassDir(String name, boolean isExtraClass) throws Exception {
+    var dir = folder.newFolder(name).toPath();
+    var target = dir.resolve(CLASS_FILE);
+    Files.createDirectories(target.getParent());
+    try (var in = FileUtils.class.getClassLoader().getResourceAsStream(CLASS_FILE)) {
+      Files.write(target, in.readAllBytes());
+    }
+    if (isExtraClass) {
+      Files.write(target.resolveSibling("Extra.class"), new byte[] { 1, 2, 3 });
+    }
+    return dir;
+  }
+
+  private int versionOf(Path dir) throws Exception {
+    try (var loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, ClassLoader.getPlatformClassLoader())) {
+      var type = loader.loadClass("com.surftools.utils.FileUtils");
+      assertNotEquals(FileUtils.class, type);
+      return CodeVersion.of(type);
+    }
+  }
+
+  @Test
+  public void testSameCodeSameVersion() throws Exception {
+    assertEquals(versionOf(makeClassDir("a", false)), versionOf(makeClassDir("b", false)));
+    assertEquals(CodeVersion.of(FileUtils.class), CodeVersion.of(CodeVersion.class));
+  }
+
+  @Test
+  public void testChangedCodeNewVersion() throws Exception {
+    assertNotEquals(versionOf(makeClassDir("a", false)), versionOf(makeClassDir("b", true)));
+  }
+}
@@ -0,0 +1,123 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.utils.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * parseDecimal must agree bit-for-bit with Double.parseDouble, and the
+ * Maidenhead helpers with LocationUtils' grid square conversion
+ *
+ * @author bobt
+ *
+ */
+public class CoordinateCodecTest {
+
+  private static double parse(String s) {
+    return CoordinateCodec.parseDecimal(s, 0, s.length());
+  }
+
+  private static void assertSameAsParseDouble(String s) {
+    var expected = Double.parseDouble(s);
+    var actual = parse(s);
+    assertEquals(s, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+  }
+
+  @Test
+  public void testTypicalCoordinates() {
+    for (var s : new String[] { "0", "-0", "+1", "40.1875", "-92.541667", "  37.7749 ", "1.", ".5", "-.5", "180",
+        "-179.999999", "0.000001", "90.0000000000" }) {
+      assertSameAsParseDouble(s);
+    }
+  }
+
+  @Test
+  public void testRandomCoordinates() {
+    var random = new Random(42);
+    for (var i = 0; i < 100_000; ++i) {
+      var value = (random.nextDouble() - 0.5) * 360;
+      assertSameAsParseDouble(String.format(Locale.ROOT, "%." + random.nextInt(13) + "f", value));
+    }
+  }
+
+  @Test
+  public void testLongDigitStrings() {
+    assertSameAsParseDouble("123456789012345678901234567890");
+    assertSameAsParseDouble("0.12345678901234567890123456789");
+    assertSameAsParseDouble("9007199254740993");
+  }
+
+  @Test
+  public void testSubrange() {
+    var s = "lat:40.187500, lon: -92.541667";
+    assertEquals(40.1875, CoordinateCodec.parseDecimal(s, 4, 13), 0);
+    assertEquals(-92.541667, CoordinateCodec.parseDecimal(s, 19, s.length()), 0);
+  }
+
+  @Test
+  public void testNotPlainDecimals() {
+    for (var s : new String[] { "", "   ", "-", ".", "1.2.3", "1e5", "40N", "0x10", "NaN", "Infinity", "1,5" }) {
+      assertTrue(s, Double.isNaN(parse(s)));
+    }
+    assertTrue(Double.isNaN(CoordinateCodec.parseDecimal(null, 0, 0)));
+  }
+
+  @Test
+  public void testMaidenheadValidity() {
+    assertTrue(CoordinateCodec.isValidMaidenhead("CM87wj", 0, 6));
+    assertTrue(CoordinateCodec.isValidMaidenhead("rr99xx", 0, 6));
+    assertTrue(CoordinateCodec.isValidMaidenhead("X-Location: EN40om", 12, 18));
+
+    assertFalse(CoordinateCodec.isValidMaidenhead("CM87w", 0, 5));
+    assertFalse(CoordinateCodec.isValidMaidenhead("CM87wjxx", 0, 8));
+    assertFalse(CoordinateCodec.isValidMaidenhead("SM87wj", 0, 6));
+    assertFalse(CoordinateCodec.isValidMaidenhead("CMA7wj", 0, 6));
+    assertFalse(CoordinateCodec.isValidMaidenhead("CM87yj", 0, 6));
+    assertFalse(CoordinateCodec.isValidMaidenhead(null, 0, 6));
+  }
+
+  @Test
+  public void testMaidenheadCenter() {
+    var random = new Random(7);
+    for (var i = 0; i < 10_000; ++i) {
+      var grid = "" + (char) ('A' + random.nextInt(18)) + (char) ('a' + random.nextInt(18)) + random.nextInt(10)
+          + random.nextInt(10) + (char) ('a' + random.nextInt(24)) + (char) ('A' + random.nextInt(24));
+      assertEquals(grid, LocationUtils.getLatitudeFromMaidenhead(grid), CoordinateCodec.maidenheadLatitude(grid, 0),
+          1e-9);
+      assertEquals(grid, LocationUtils.getLongitudeFromMaidenhead(grid), CoordinateCodec.maidenheadLongitude(grid, 0),
+          1e-9);
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.PlainMessage;
+import com.surftools.wimp.message.RejectionMessage;
+
+/**
+ * every IMessageManager must hold the same messages, by sender and by type,
+ * with each type sorted, through loads, puts and removes. Messages are compared
+ * by id, since the columnar manager rebuilds them on every read
+ *
+ * @author bobt
+ *
+ */
+@RunWith(Parameterized.class)
+public class MessageManagerTest {
+  private final Supplier<IMessageManager> factory;
+
+  private int nextId;
+
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> managers() {
+    return Arrays.asList(new Object[][] { //
+        { "MessageManager", (Supplier<IMessageManager>) MessageManager::new }, //
+        { "ConcurrentMessageManager", (Supplier<IMessageManager>) ConcurrentMessageManager::new }, //
+        { "ColumnarMessageManager", (Supplier<IMessageManager>) ColumnarMessageManager::new } });
+  }
+
+  public MessageManagerTest(String name, Supplier<IMessageManager> factory) {
+    this.factory = factory;
+  }
+
+  private ExportedMessage makeMessage(Random random, String from) {
+    var messageId = "MSG" + (nextId++);
+    var dateTime = LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(random.nextInt(30));
+    var message = new ExportedMessage(messageId, from, from, "ETO-01", "ETO-01@winlink.org", "", "subject", dateTime,
+        null, null, "Subject: subject\r\n\r\nbody\r\n", false, "export.xml", null);
+    switch (random.nextInt(3)) {
+    case 0:
+      return message;
+    case 1:
+      return new PlainMessage(message);
+    default:
+      return new RejectionMessage(message, RejectType.PROCESSING_ERROR, "context");
+    }
+  }
+
+  private List<ExportedMessage> makeMessages(Random random, int count, int senderCount) {
+    var messages = new ArrayList<ExportedMessage>();
+    for (var i = 0; i < count; ++i) {
+      messages.add(makeMessage(random, "K" + random.nextInt(senderCount)));
+    }
+    return messages;
+  }
+
+  private static List<String> ids(List<ExportedMessage> messages) {
+    var ids = new ArrayList<String>();
+    for (var message : messages) {
+      ids.add(message.messageId);
+    }
+    return ids;
+  }
+
+  private static <T> List<T> toList(Iterator<T> iterator) {
+    var list = new ArrayList<T>();
+    iterator.forEachRemaining(list::add);
+    return list;
+  }
+
+  /**
+   * what getMessagesForType() must return: every sender's messages of the type,
+   * sorted
+   */
+  private static Map<MessageType, List<String>> expectedTypeMap(IMessageManager mm) {
+    var map = new TreeMap<MessageType, List<ExportedMessage>>();
+    for (var sender : toList(mm.getSenderIterator())) {
+      var senderMap = mm.getMessagesForSender(sender);
+      for (var entry : senderMap.entrySet()) {
+        map.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+      }
+    }
+
+    var idMap = new TreeMap<MessageType, List<String>>();
+    for (var entry : map.entrySet()) {
+      var list = entry.getValue();
+      list.sort(null);
+      idMap.put(entry.getKey(), ids(list));
+    }
+    return idMap;
+  }
+
+  private static Map<MessageType, List<String>> actualTypeMap(IMessageManager mm) {
+    var idMap = new TreeMap<MessageType, List<String>>();
+    for (var type : toList(mm.getMessageTypeIteror())) {
+      idMap.put(type, ids(mm.getMessagesForType(type)));
+    }
+    return idMap;
+  }
+
+  private static void assertConsistent(IMessageManager mm) {
+    assertEquals(expectedTypeMap(mm), actualTypeMap(mm));
+
+    var snapshot = mm.snapshot();
+    var snapshotMap = new TreeMap<MessageType, List<String>>();
+    for (var type : snapshot.getMessageTypes()) {
+      snapshotMap.put(type, ids(snapshot.getMessagesForType(type)));
+    }
+    assertEquals(actualTypeMap(mm), snapshotMap);
+    assertEquals(new TreeSet<>(toList(mm.getSenderIterator())), new TreeSet<>(snapshot.getSenders()));
+  }
+
+  @Test
+  public void testLoad() {
+    var random = new Random(1);
+    var messages = makeMessages(random, 200, 20);
+    var mm = factory.get();
+    mm.load(messages);
+
+    assertEquals(ids(messages), ids(mm.getOriginalMessages()));
+    assertConsistent(mm);
+
+    var total = 0;
+    for (var type : toList(mm.getMessageTypeIteror())) {
+      var list = mm.getMessagesForType(type);
+      for (var i = 1; i < list.size(); ++i) {
+        assertTrue(list.get(i - 1).compareTo(list.get(i)) <= 0);
+      }
+      total += list.size();
+    }
+    assertEquals(messages.size(), total);
+  }
+
+  @Test
+  public void testLoadByType() {
+    var random = new Random(2);
+    var messages = makeMessages(random, 100, 10);
+    var byType = new HashMap<MessageType, List<ExportedMessage>>();
+    for (var message : messages) {
+      byType.computeIfAbsent(message.getMessageType(), k -> new ArrayList<>()).add(message);
+    }
+
+    var mm = factory.get();
+    mm.load(messages);
+    mm.load(byType);
+
+    assertEquals(ids(messages), ids(mm.getOriginalMessages()));
+    assertConsistent(mm);
+  }
+
+  @Test
+  public void testPutAndRemove() {
+    var random = new Random(3);
+    var mm = factory.get();
+    mm.load(makeMessages(random, 50, 5));
+
+    // replace one sender's messages with a single new one
+    var newMessage = makeMessage(random, "K1");
+    mm.putMessagesForSender("K1", new HashMap<>(Map.of(newMessage.getMessageType(), List.of(newMessage))));
+    assertEquals(List.of("MSG50"), ids(mm.getAllMessagesForSender("K1")));
+    assertConsistent(mm);
+
+    // a type held by no sender is gone
+    for (var sender : toList(mm.getSenderIterator())) {
+      mm.removeMessagesForSender(sender);
+    }
+    assertFalse(mm.getMessageTypeIteror().hasNext());
+    assertNull(mm.getMessagesForSender("K1"));
+    assertConsistent(mm);
+  }
+
+  @Test
+  public void testSnapshotIsUnchangedByLaterPuts() {
+    var random = new Random(4);
+    var mm = factory.get();
+    mm.load(makeMessages(random, 50, 5));
+
+    var snapshot = mm.snapshot();
+    var before = new TreeMap<MessageType, List<String>>();
+    for (var type : snapshot.getMessageTypes()) {
+      before.put(type, ids(snapshot.getMessagesForType(type)));
+    }
+
+    mm.removeMessagesForSender("K0");
+    mm.putMessagesForSender("N1", new HashMap<>(Map.of(MessageType.EXPORTED, List.of(makeMessage(random, "N1")))));
+    mm.getMessagesForType(MessageType.EXPORTED);
+
+    var after = new TreeMap<MessageType, List<String>>();
+    for (var type : snapshot.getMessageTypes()) {
+      after.put(type, ids(snapshot.getMessagesForType(type)));
+    }
+    assertEquals(before, after);
+  }
+
+  @Test
+  public void testRandomOperations() {
+    var random = new Random(5);
+    for (var trial = 0; trial < 50; ++trial) {
+      var mm = factory.get();
+      mm.load(makeMessages(random, random.nextInt(200), 1 + random.nextInt(20)));
+
+      for (var op = 0; op < 30; ++op) {
+        var senders = toList(mm.getSenderIterator());
+        senders.sort(null);
+        switch (random.nextInt(4)) {
+        case 0:
+          if (!senders.isEmpty()) {
+            // change in place, then put back, as the processors do
+            var sender = senders.get(random.nextInt(senders.size()));
+            var senderMap = mm.getMessagesForSender(sender);
+            for (var type : new ArrayList<>(senderMap.keySet())) {
+              var kept = new ArrayList<ExportedMessage>();
+              for (var message : senderMap.get(type)) {
+                if (random.nextBoolean()) {
+                  kept.add(message);
+                }
+              }
+              if (random.nextInt(4) == 0) {
+                kept.add(makeMessage(random, sender));
+              }
+              senderMap.put(type, kept);
+            }
+            mm.putMessagesForSender(sender, senderMap);
+          }
+          break;
+
+        case 1:
+          var removeList = new ArrayList<String>();
+          for (var sender : senders) {
+            if (random.nextInt(5) == 0) {
+              removeList.add(sender);
+            }
+          }
+          mm.removeMesseagesForSenders(removeList);
+          break;
+
+        case 2:
+          var sender = "N" + op;
+          var message = makeMessage(random, sender);
+          mm.putMessagesForSender(sender, new HashMap<>(Map.of(message.getMessageType(), List.of(message))));
+          break;
+
+        default:
+          assertConsistent(mm);
+          break;
+        }
+      }
+      assertConsistent(mm);
+    }
+  }
+
+  @Test
+  public void testContextAndClear() {
+    var mm = factory.get();
+    mm.putContext(IMessageManager.LAST_WORD, "done");
+    assertEquals("done", mm.getContext(IMessageManager.LAST_WORD));
+
+    mm.load(makeMessages(new Random(6), 10, 3));
+    mm.clear();
+    assertNull(mm.getContext(IMessageManager.LAST_WORD));
+    assertFalse(mm.getSenderIterator().hasNext());
+    assertFalse(mm.getMessageTypeIteror().hasNext());
+  }
+}
@@ -0,0 +1,128 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.surftools.wimp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.parser.FormBinder;
+import com.surftools.wimp.parser.Ics213Parser;
+
+/**
+ * form messages that kept their FormBinder arguments are stored as a header row
+ * plus those arguments, and must come back equal in every field
+ *
+ * @author bobt
+ *
+ */
+public class MessageColumnsTest {
+  private static final String ICS_213_XML = "<?xml version=\"1.0\"?>\n<RMS_Express_Form>\n<variables>\n" //
+      + "<templateversion>GENERAL MESSAGE (ICS 213) 2.1</templateversion>\n" //
+      + "<formtitle>ETO</formtitle>\n<inc_name>Test</inc_name>\n<fm_name>KM6SO</fm_name>\n" //
+      + "<to_name>ETO</to_name>\n<subjectline>Test</subjectline>\n<mdate>2024-05-01</mdate>\n" //
+      + "<mtime>12:00</mtime>\n<message>Hello world</message>\n<approved_name>Me</approved_name>\n" //
+      + "<approved_postitle>Boss</approved_postitle>\n<isexercise>** THIS IS AN EXERCISE **</isexercise>\n" //
+      + "<maplat>40.1234</maplat>\n<maplon>-92.5</maplon>\n</variables>\n</RMS_Express_Form>\n";
+
+  private static ExportedMessage parse(boolean isKeepingBinding) {
+    var attachments = Map.of("RMS_Express_Form_ICS213_Initial_Viewer.xml",
+        ICS_213_XML.getBytes(StandardCharsets.UTF_8));
+    var message = new ExportedMessage("MSG1", "KM6SO", "KM6SO", "ETO-01", "ETO-01@winlink.org", "", "ETO Exercise",
+        LocalDateTime.of(2024, 5, 1, 12, 0), null, null, "Senders Express Version: 1.7.17.0\r\n", "", attachments,
+        false, "export.xml", null);
+
+    FormBinder.beginCapture();
+    var parsed = new Ics213Parser().parse(message);
+    var bound = FormBinder.endCapture();
+    assertTrue(parsed instanceof Ics213Message);
+    if (isKeepingBinding) {
+      parsed.setBound(bound);
+    }
+    return parsed;
+  }
+
+  private static void assertSameMessage(ExportedMessage expected, ExportedMessage actual) {
+    assertEquals(expected.getClass(), actual.getClass());
+    assertArrayEquals(expected.getValues(), actual.getValues());
+    assertEquals(expected.messageId, actual.messageId);
+    assertEquals(expected.from, actual.from);
+    assertEquals(expected.toList, actual.toList);
+    assertEquals(expected.msgDateTime, actual.msgDateTime);
+    assertEquals(expected.sortDateTime, actual.sortDateTime);
+    assertEquals(expected.mapLocation, actual.mapLocation);
+    assertEquals(expected.msgLocation, actual.msgLocation);
+    assertEquals(expected.formVersion, actual.formVersion);
+    assertEquals(expected.expressVersion, actual.expressVersion);
+    assertSame(expected.getMime(), actual.getMime());
+  }
+
+  @Test
+  public void testBoundFormRoundTrip() {
+    var form = parse(true);
+    // as the processors do, after parsing
+    form.setSortDateTime(LocalDateTime.of(2024, 5, 2, 8, 30));
+    form.setMapLocation(new LatLongPair(41.0, -93.0));
+    form.formVersion = "2.2";
+
+    var columns = new MessageColumns();
+    var row = columns.add(form);
+    var rebuilt = columns.get(row);
+    assertNotSame(form, rebuilt);
+    assertSameMessage(form, rebuilt);
+
+    var expected = (Ics213Message) form;
+    var actual = (Ics213Message) rebuilt;
+    assertEquals(expected.organization, actual.organization);
+    assertEquals(expected.formMessage, actual.formMessage);
+    assertEquals(expected.isExercise, actual.isExercise);
+    assertEquals(expected.formLocation, actual.formLocation);
+
+    // re-adding what get() built shares the stored arguments
+    var otherRow = columns.add(rebuilt);
+    assertSameMessage(form, columns.get(otherRow));
+    assertSame(columns.get(row).getBound().args(), columns.get(otherRow).getBound().args());
+  }
+
+  @Test
+  public void testUnboundFormIsKept() {
+    var form = parse(false);
+    var columns = new MessageColumns();
+    assertSame(form, columns.get(columns.add(form)));
+  }
+}
@@ -0,0 +1,100 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * one pass over the MIME text must give the same answers as the line splitting
+ * and searching it replaces
+ *
+ * @author bobt
+ *
+ */
+public class MimeHeaderIndexTest {
+  private static final String MIME = "From: K1AA@winlink.org\n" //
+      + "Subject: test\n" //
+      + "To: ETO-01@winlink.org,\n" //
+      + " SMTP:foo@bar.com\n" //
+      + "Cc: K1AA@winlink.org\n" //
+      + "Message-ID: ABC\n" //
+      + "X-Location: 38.660000N, 122.870667W (SPECIFIED)\n" //
+      + "\n" //
+      + "body\n" //
+      + "Senders Express Version: 1.7.17.0\n" //
+      + "\n";
+
+  @Test
+  public void testHeaders() {
+    var index = new MimeHeaderIndex(MIME);
+    assertEquals("test", index.getHeader("subject"));
+    assertEquals("Message-ID: ABC", index.getHeaderLine("Message-Id"));
+    assertEquals(List.of("ETO-01@winlink.org", "SMTP:foo@bar.com"), index.getToList());
+    assertEquals(List.of("K1AA@winlink.org"), index.getCcList());
+    assertEquals("X-Location: 38.660000N, 122.870667W (SPECIFIED)", index.getLocationLine());
+  }
+
+  @Test
+  public void testLocationLineAnywhere() {
+    var index = new MimeHeaderIndex("Subject: x\n\nbody\nx-location: 1N, 2W\n");
+    assertEquals("x-location: 1N, 2W", index.getLocationLine());
+    assertNull(new MimeHeaderIndex("Subject: x\n\nbody\n").getLocationLine());
+  }
+
+  @Test
+  public void testExpressVersion() {
+    var index = new MimeHeaderIndex(MIME);
+    assertEquals("1.7.17.0", index.getExpressVersion("Senders Express Version:"));
+    // no line starts with the key, so the last field of the (single) segment
+    assertEquals("1.7.17.0", index.getExpressVersion("Express Version:"));
+  }
+
+  @Test
+  public void testQuotedPrintableExpressVersion() {
+    // the key split by soft line breaks, the value before the next "=0A"
+    var mime = "Subject: x\n\nbody=0ASen=\nders Express Ver=\nsion: 1.7.18.0=0Amore=0A\n";
+    assertEquals("1.7.18.0", new MimeHeaderIndex(mime).getExpressVersion("Senders Express Version:"));
+
+    // an empty value on its own line falls back to the quoted-printable body
+    mime = "Subject: x\n\nSenders Express Version:\n1.2.3=0Amore\n";
+    assertEquals("1.2.3", new MimeHeaderIndex(mime).getExpressVersion("Senders Express Version:"));
+  }
+
+  @Test
+  public void testLines() {
+    for (var mime : new String[] { "", "\n", "\n\n", "a", "a\n", "a\n\nb\n\n", "\na\r\nb", MIME }) {
+      assertArrayEquals(mime, mime.split("\n"), new MimeHeaderIndex(mime).getLines(mime));
+    }
+  }
+}
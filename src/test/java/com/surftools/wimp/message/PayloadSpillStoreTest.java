@@ -0,0 +1,154 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * payloads must read back the same after being spilled, under a budget small
+ * enough that every add spills the others
+ *
+ * @author bobt
+ *
+ */
+public class PayloadSpillStoreTest {
+  private static final int MESSAGE_COUNT = 20;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static String mime(int i) {
+    return "Subject: message " + i + "\r\n\r\n" + "body of message " + i + "\r\n".repeat(10);
+  }
+
+  private static String plain(int i) {
+    return "plain content of message " + i;
+  }
+
+  private static byte[] attachment(int i) {
+    var bytes = new byte[100 + i];
+    for (var j = 0; j < bytes.length; ++j) {
+      bytes[j] = (byte) (i * 31 + j);
+    }
+    return bytes;
+  }
+
+  private static ExportedMessage makeMessage(int i) {
+    var attachments = new LinkedHashMap<String, byte[]>();
+    attachments.put("form" + i + ".xml", attachment(i));
+    return new ExportedMessage("MSG" + i, "K" + i, "K" + i, "ETO-01", "ETO-01@winlink.org", "", "message " + i,
+        LocalDateTime.of(2024, 1, 1, 0, i), null, null, mime(i), plain(i), attachments, false, "export.xml", null);
+  }
+
+  private static void assertPayload(ExportedMessage message, int i, String attachmentName) {
+    assertEquals(mime(i), message.getMime());
+    assertEquals(plain(i), message.getPlainContent());
+    var attachments = message.getAttachments();
+    assertEquals(List.of(attachmentName), new ArrayList<>(attachments.keySet()));
+    assertArrayEquals(attachment(i), attachments.get(attachmentName));
+  }
+
+  @Test
+  public void testSpillAndReload() throws Exception {
+    try (var store = new PayloadSpillStore(folder.getRoot().toPath(), 64)) {
+      var messages = new ArrayList<ExportedMessage>();
+      for (var i = 0; i < MESSAGE_COUNT; ++i) {
+        var message = makeMessage(i);
+        store.add(message);
+        messages.add(message);
+      }
+      assertTrue(store.getSpillCount() > 0);
+
+      for (var pass = 0; pass < 2; ++pass) {
+        for (var i = 0; i < MESSAGE_COUNT; ++i) {
+          assertPayload(messages.get(i), i, "form" + i + ".xml");
+        }
+      }
+      assertTrue(store.getReloadCount() > 0);
+    }
+  }
+
+  @Test
+  public void testRenameSurvivesSpill() throws Exception {
+    try (var store = new PayloadSpillStore(folder.getRoot().toPath(), 64)) {
+      var messages = new ArrayList<ExportedMessage>();
+      for (var i = 0; i < MESSAGE_COUNT; ++i) {
+        var message = makeMessage(i);
+        store.add(message);
+        messages.add(message);
+      }
+
+      // renamed payloads must be written again, not reloaded from their old copy
+      for (var i = 0; i < MESSAGE_COUNT; i += 2) {
+        messages.get(i).renameAttachment("form" + i + ".xml", "renamed" + i + ".xml");
+      }
+
+      for (var pass = 0; pass < 2; ++pass) {
+        for (var i = 0; i < MESSAGE_COUNT; ++i) {
+          assertPayload(messages.get(i), i, (i % 2 == 0 ? "renamed" : "form") + i + ".xml");
+        }
+      }
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAttachmentsAreReadOnly() {
+    makeMessage(1).getAttachments().put("other.xml", new byte[0]);
+  }
+
+  @Test
+  public void testCloseDeletesOnlySegment() throws Exception {
+    var directory = folder.getRoot().toPath();
+    var other = Files.writeString(directory.resolve("other.txt"), "keep me");
+
+    var store = new PayloadSpillStore(directory, 64);
+    for (var i = 0; i < MESSAGE_COUNT; ++i) {
+      store.add(makeMessage(i));
+    }
+    store.close();
+
+    assertTrue(Files.isDirectory(directory));
+    assertTrue(Files.exists(other));
+    try (var stream = Files.list(directory)) {
+      assertFalse(stream.anyMatch(p -> p.getFileName().toString().endsWith(".segment")));
+    }
+  }
+}
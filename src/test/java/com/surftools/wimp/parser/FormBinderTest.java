@@ -0,0 +1,121 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.surftools.wimp.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.surftools.utils.XmlFactories;
+
+/**
+ * per-version tag declarations, and one binding per type
+ *
+ * @author bobt
+ *
+ */
+public class FormBinderTest {
+
+  public static class Pair {
+    public final String name;
+    public final String value;
+
+    public Pair(String name, String value) {
+      this.name = name;
+      this.value = value;
+    }
+  }
+
+  public static class Other {
+    public final String value;
+
+    public Other(String value) {
+      this.value = value;
+    }
+  }
+
+  private static final FormBinder<Pair> BINDER = new FormBinder<>(Pair.class, FormBinder.SUPPLIED, "value") //
+      .withVersion("1.0") //
+      .withVersion("2.0", "value", "newvalue");
+
+  private static XmlTagIndex index(String variables) throws Exception {
+    var xml = "<RMS_Express_Form><variables>" + variables + "</variables></RMS_Express_Form>";
+    var inputStream = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    return new XmlTagIndex(XmlFactories.getDocumentBuilder().parse(inputStream));
+  }
+
+  @Test
+  public void testVersions() throws Exception {
+    var index = index("<value>old</value><newvalue>new</newvalue>");
+
+    assertEquals("old", BINDER.bind(index, "base").value);
+    assertEquals("old", BINDER.forVersion("1.0").bind(index, "1.0").value);
+    assertEquals("new", BINDER.forVersion("2.0").bind(index, "2.0").value);
+    assertEquals("old", BINDER.forVersion("3.0").bind(index, "3.0").value);
+
+    assertTrue(BINDER.hasVersion("1.0"));
+    assertTrue(BINDER.hasVersion("2.0"));
+    assertFalse(BINDER.hasVersion("3.0"));
+    assertFalse(BINDER.hasVersion(null));
+    assertSame(BINDER, BINDER.forVersion(null));
+  }
+
+  @Test
+  public void testVersionRebuilds() throws Exception {
+    FormBinder.beginCapture();
+    BINDER.forVersion("2.0").bind(index("<newvalue>new</newvalue>"), "2.0");
+    var bound = FormBinder.endCapture();
+
+    var pair = (Pair) FormBinder.construct(bound);
+    assertEquals("2.0", pair.name);
+    assertEquals("new", pair.value);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOddRenames() {
+    new FormBinder<>(Other.class, "value").withVersion("2.0", "value");
+  }
+
+  @Test
+  public void testDuplicateBinding() {
+    try {
+      new FormBinder<>(Pair.class, "name", "value");
+      fail("second binding for the same type");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("duplicate binding"));
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.surftools.wimp.parser.WinlinkMimeDecoder.DecodedMime;
+
+/**
+ * every recognized shape is checked against the MimeMessageParser path, which
+ * the decoder must match exactly; every unrecognized shape must return null
+ *
+ * @author bobt
+ *
+ */
+public class WinlinkMimeDecoderTest {
+  private static final String BOUNDARY = "boundaryZtR7dO7W";
+
+  private static final String XML = "<?xml version=\"1.0\"?>\r\n<RMS_Express_Form>\r\n"
+      + "  <form_parameters><xml_file_version>1.0</xml_file_version></form_parameters>\r\n"
+      + "</RMS_Express_Form>\r\n";
+
+  private static String headers(String contentType) {
+    return "Date: Sat, 21 Sep 2024 14:02:00 +0000\r\n" //
+        + "From: KM6SO@winlink.org\r\n" //
+        + "Subject: ETO Exercise\r\n" //
+        + "To: ETO-01@winlink.org\r\n" //
+        + "Message-ID: 8Y0NZVNRLFSK\r\n" //
+        + "X-Source: KM6SO\r\n" //
+        + "MIME-Version: 1.0\r\n" //
+        + contentType;
+  }
+
+  private static String multipart(String... parts) {
+    var sb = new StringBuilder(headers("Content-Type: multipart/mixed; boundary=\"" + BOUNDARY + "\"\r\n\r\n"));
+    for (var part : parts) {
+      sb.append("--" + BOUNDARY + "\r\n").append(part).append("\r\n");
+    }
+    sb.append("--" + BOUNDARY + "--\r\n");
+    return sb.toString();
+  }
+
+  private static String textPart(String encoding, String text) {
+    return "Content-Type: text/plain; charset=\"iso-8859-1\"\r\n" //
+        + "Content-Transfer-Encoding: " + encoding + "\r\n\r\n" + text;
+  }
+
+  private static String base64Part(String name, String content) {
+    var encoded = Base64.getMimeEncoder(76, "\r\n".getBytes())
+        .encodeToString(content.getBytes(StandardCharsets.UTF_8));
+    return "Content-Type: application/octet-stream; name=\"" + name + "\"\r\n" //
+        + "Content-Transfer-Encoding: base64\r\n" //
+        + "Content-Disposition: attachment; filename=\"" + name + "\"\r\n\r\n" + encoded;
+  }
+
+  /**
+   * decode with the WinlinkMimeDecoder, and check against MimeMessageParser
+   */
+  private static DecodedMime decodeAndCompare(String mime) {
+    var decoded = WinlinkMimeDecoder.decode(mime.getBytes(StandardCharsets.ISO_8859_1));
+    assertNotNull("not recognized", decoded);
+
+    var parser = AbstractBaseParser.makeMimeMessageParser("test", mime);
+    assertNotNull(parser);
+    assertEquals(parser.getPlainContent(), decoded.plainContent());
+
+    var expected = AbstractBaseParser.getAttachments(parser);
+    assertEquals(List.copyOf(expected.keySet()), List.copyOf(decoded.attachments().keySet()));
+    for (var entry : expected.entrySet()) {
+      assertArrayEquals(entry.getKey(), entry.getValue(), decoded.attachments().get(entry.getKey()));
+    }
+    return decoded;
+  }
+
+  private static void assertNotRecognized(String mime) {
+    assertNull(WinlinkMimeDecoder.decode(mime.getBytes(StandardCharsets.ISO_8859_1)));
+  }
+
+  @Test
+  public void test_singlePart_plainText() {
+    var decoded = decodeAndCompare(headers("Content-Type: text/plain; charset=\"iso-8859-1\"\r\n"
+        + "Content-Transfer-Encoding: 7bit\r\n\r\n") + "Hello from the exercise\r\nline two\r\n");
+    assertEquals("Hello from the exercise\r\nline two\r\n", decoded.plainContent());
+    assertEquals(0, decoded.attachments().size());
+  }
+
+  @Test
+  public void test_singlePart_noContentType() {
+    var decoded = decodeAndCompare(headers("") + "\r\nno content type at all\r\n");
+    assertEquals("no content type at all\r\n", decoded.plainContent());
+  }
+
+  @Test
+  public void test_multipart_textAndBase64Attachments() {
+    var mime = multipart(textPart("quoted-printable", "Plain body\r\n"), //
+        base64Part("RMS_Express_Form_ICS213_Initial_Viewer.xml", XML), //
+        base64Part("FormData.txt", "Msg=Exercise\r\nRequest=none\r\n"));
+    var decoded = decodeAndCompare(mime);
+    assertEquals("Plain body\r\n", decoded.plainContent());
+    assertEquals(List.of("RMS_Express_Form_ICS213_Initial_Viewer.xml", "FormData.txt"),
+        List.copyOf(decoded.attachments().keySet()));
+    assertEquals(XML, new String(decoded.attachments().get("RMS_Express_Form_ICS213_Initial_Viewer.xml"),
+        StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void test_base64_padding() {
+    for (var content : List.of("", "a", "ab", "abc", "abcd", "abcde")) {
+      var decoded = decodeAndCompare(multipart(textPart("7bit", "body"), base64Part("a.txt", content)));
+      assertEquals(content, new String(decoded.attachments().get("a.txt"), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void test_quotedPrintable_softBreaksAndEscapes() {
+    var text = "2 + 2 =3D 4, =\r\nsoft break   \r\ntrailing space=20\r\nlatin =E9t=E9\r\n";
+    var decoded = decodeAndCompare(multipart(textPart("quoted-printable", text)));
+    assertEquals("2 + 2 = 4, soft break\r\ntrailing space \r\nlatin \u00e9t\u00e9\r\n", decoded.plainContent());
+  }
+
+  @Test
+  public void test_foldedHeaders() {
+    var mime = headers("Content-Type: multipart/mixed;\r\n\tboundary=\"" + BOUNDARY + "\"\r\n\r\n") //
+        + "--" + BOUNDARY + "\r\n" //
+        + "Content-Type: text/plain;\r\n charset=\"utf-8\"\r\n" //
+        + "Content-Transfer-Encoding:\r\n 8bit\r\n\r\n" //
+        + "folded\r\n" //
+        + "--" + BOUNDARY + "\r\n" //
+        + "Content-Type: application/octet-stream;\r\n name=\"folded.txt\"\r\n" //
+        + "Content-Transfer-Encoding: base64\r\n\r\n" //
+        + Base64.getEncoder().encodeToString("folded attachment".getBytes()) + "\r\n" //
+        + "--" + BOUNDARY + "--\r\n";
+    var decoded = decodeAndCompare(mime);
+    assertEquals("folded", decoded.plainContent());
+    assertEquals("folded attachment", new String(decoded.attachments().get("folded.txt")));
+  }
+
+  @Test
+  public void test_bareLineFeeds() {
+    var mime = multipart(textPart("7bit", "body"), base64Part("a.xml", XML)).replace("\r\n", "\n");
+    decodeAndCompare(mime);
+  }
+
+  @Test
+  public void test_htmlDroppedAndUnnamedAttachment() {
+    var mime = multipart(textPart("7bit", "plain"), //
+        "Content-Type: text/html; charset=\"us-ascii\"\r\n\r\n<p>html</p>", //
+        "Content-Type: application/octet-stream\r\nContent-Transfer-Encoding: 7bit\r\n\r\nraw");
+    var decoded = decodeAndCompare(mime);
+    assertEquals("plain", decoded.plainContent());
+    assertEquals(List.of("attachment-0"), List.copyOf(decoded.attachments().keySet()));
+  }
+
+  @Test
+  public void test_fallback_nestedMultipart() {
+    var inner = "Content-Type: multipart/alternative; boundary=\"inner\"\r\n\r\n" //
+        + "--inner\r\n" + textPart("7bit", "nested") + "\r\n--inner--";
+    var mime = multipart(inner);
+    assertNotRecognized(mime);
+    assertNotNull(AbstractBaseParser.decodeMime("test", mime));
+  }
+
+  @Test
+  public void test_fallback_encodedWordName() {
+    assertNotRecognized(multipart(textPart("7bit", "body"), base64Part("=?utf-8?Q?caf=C3=A9?=.txt", "x")));
+  }
+
+  @Test
+  public void test_fallback_rfc2231Parameter() {
+    assertNotRecognized(multipart(textPart("7bit", "body"), //
+        "Content-Type: application/octet-stream; name*=utf-8''a.txt\r\n\r\nx"));
+  }
+
+  @Test
+  public void test_fallback_unknownEncodingAndCharset() {
+    assertNotRecognized(multipart(textPart("x-uuencode", "body")));
+    assertNotRecognized(multipart("Content-Type: text/plain; charset=\"windows-1252\"\r\n\r\nbody"));
+  }
+
+  @Test
+  public void test_fallback_malformedContent() {
+    // bad base64 symbol
+    assertNotRecognized(multipart(textPart("7bit", "body"), //
+        "Content-Type: application/octet-stream; name=\"a\"\r\nContent-Transfer-Encoding: base64\r\n\r\nYW*j"));
+    // bad quoted-printable escape
+    assertNotRecognized(multipart(textPart("quoted-printable", "=ZZ")));
+    // missing close delimiter
+    var mime = multipart(textPart("7bit", "body"));
+    assertNotRecognized(mime.substring(0, mime.lastIndexOf("--" + BOUNDARY + "--")));
+  }
+
+  @Test
+  public void test_fallback_repairRule() {
+    // ETO_2024_09_19 doubled quotes, which the MimeRepairInputStream rewrites
+    var mime = multipart(textPart("7bit", "body"), //
+        "Content-Disposition: attachment; filename=\"\"ETO Welfare Message Exercise\".pdf\"\r\n"
+            + "Content-Type: text/plain; name=\"\"ETO Welfare Message Exercise\".pdf\"\r\n"
+            + "Content-Transfer-Encoding: base64\r\n\r\n" + Base64.getEncoder().encodeToString("pdf".getBytes()));
+    assertNotRecognized(mime);
+    var decoded = AbstractBaseParser.decodeMime("test", mime);
+    assertNotNull(decoded);
+    assertEquals(List.of("ETO Welfare Message Exercise.pdf"), List.copyOf(decoded.attachments().keySet()));
+  }
+}
@@ -0,0 +1,189 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.processors.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.surftools.utils.location.LatLongPair;
+import com.surftools.wimp.core.RejectType;
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.RejectionMessage;
+
+/**
+ * a cached file must give back exactly the messages stored for it, and only
+ * while the file and the read configuration are unchanged
+ *
+ * @author bobt
+ *
+ */
+public class IngestCacheTest {
+  private static final String CONFIGURATION = "keepLines=false;expected=null;secondary=null";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path exercisePath;
+  private Path inputFilePath;
+
+  @Before
+  public void setUp() throws Exception {
+    exercisePath = folder.getRoot().toPath();
+    inputFilePath = exercisePath.resolve("export.xml");
+    Files.writeString(inputFilePath, "<Winlink_Express_message_export/>\n");
+  }
+
+  private static ExportedMessage makeMessage(String messageId, List<String> lines) {
+    return new ExportedMessage(messageId, "KM6SO", "KM6SO", "ETO-01", "ETO-01@winlink.org,SMTP:foo@bar.com", "", //
+        "ETO Exercise", LocalDateTime.of(2024, 9, 21, 14, 2), new LatLongPair("37.7749", "-122.4194"), "GPS", //
+        "Subject: ETO Exercise\r\n\r\nbody " + messageId + "\r\n", true, "export.xml", lines);
+  }
+
+  private static void assertSameMessage(ExportedMessage expected, ExportedMessage actual) {
+    assertEquals(expected.getClass(), actual.getClass());
+    assertEquals(expected.messageId, actual.messageId);
+    assertEquals(expected.from, actual.from);
+    assertEquals(expected.source, actual.source);
+    assertEquals(expected.to, actual.to);
+    assertEquals(expected.toList, actual.toList);
+    assertEquals(expected.ccList, actual.ccList);
+    assertEquals(expected.subject, actual.subject);
+    assertEquals(expected.msgDateTime, actual.msgDateTime);
+    assertEquals(expected.msgLocation.getLatitude(), actual.msgLocation.getLatitude());
+    assertEquals(expected.msgLocation.getLongitude(), actual.msgLocation.getLongitude());
+    assertEquals(expected.msgLocationSource, actual.msgLocationSource);
+    assertEquals(expected.getMime(), actual.getMime());
+    assertEquals(expected.isP2p, actual.isP2p);
+    assertEquals(expected.fileName, actual.fileName);
+    assertEquals(expected.getLines(), actual.getLines());
+  }
+
+  @Test
+  public void testMissWhenEmpty() {
+    var cache = new IngestCache(exercisePath, CONFIGURATION);
+    assertNull(cache.get(inputFilePath));
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0, cache.getHitCount());
+  }
+
+  @Test
+  public void testRoundTrip() {
+    var plain = makeMessage("MSG1", null);
+    var withLines = makeMessage("MSG2", List.of("<message>", "</message>"));
+
+    var cache = new IngestCache(exercisePath, CONFIGURATION);
+    cache.put(inputFilePath, List.of(plain, withLines));
+
+    var messages = new IngestCache(exercisePath, CONFIGURATION).get(inputFilePath);
+    assertNotNull(messages);
+    assertEquals(2, messages.size());
+    assertSameMessage(plain, messages.get(0));
+    assertSameMessage(withLines, messages.get(1));
+  }
+
+  @Test
+  public void testOnlyPlainMessagesAreCached() {
+    var rejection = new RejectionMessage(makeMessage("MSG3", null), RejectType.PROCESSING_ERROR, "context");
+
+    var cache = new IngestCache(exercisePath, CONFIGURATION);
+    cache.put(inputFilePath, List.of(makeMessage("MSG1", null), rejection));
+    assertNull(new IngestCache(exercisePath, CONFIGURATION).get(inputFilePath));
+  }
+
+  @Test
+  public void testMissWhenFileChanged() throws Exception {
+    var cache = new IngestCache(exercisePath, CONFIGURATION);
+    cache.put(inputFilePath, List.of(makeMessage("MSG1", null)));
+
+    // same size, different content and time
+    Files.writeString(inputFilePath, "<Winlink_Express_message_export/>\r");
+    Files.setLastModifiedTime(inputFilePath, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+    assertNull(cache.get(inputFilePath));
+
+    cache.put(inputFilePath, List.of(makeMessage("MSG1", null)));
+    Files.writeString(inputFilePath, "<Winlink_Express_message_export></Winlink_Express_message_export>\n");
+    assertNull(cache.get(inputFilePath));
+  }
+
+  @Test
+  public void testHitWhenOnlyTouched() throws Exception {
+    var cache = new IngestCache(exercisePath, CONFIGURATION);
+    cache.put(inputFilePath, List.of(makeMessage("MSG1", null)));
+
+    Files.setLastModifiedTime(inputFilePath, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+    var messages = cache.get(inputFilePath);
+    assertNotNull(messages);
+    assertEquals("MSG1", messages.get(0).messageId);
+
+    // re-written with the new time, so still a hit
+    assertNotNull(cache.get(inputFilePath));
+    assertEquals(2, cache.getHitCount());
+  }
+
+  @Test
+  public void testMissWhenConfigurationChanged() {
+    new IngestCache(exercisePath, CONFIGURATION).put(inputFilePath, List.of(makeMessage("MSG1", null)));
+
+    var cache = new IngestCache(exercisePath, "keepLines=true;expected=null;secondary=null");
+    assertNull(cache.get(inputFilePath));
+    assertNotNull(new IngestCache(exercisePath, CONFIGURATION).get(inputFilePath));
+  }
+
+  @Test
+  public void testRetainOnly() throws Exception {
+    var otherFilePath = exercisePath.resolve("other.xml");
+    Files.writeString(otherFilePath, "<other/>\n");
+
+    var cache = new IngestCache(exercisePath, CONFIGURATION);
+    cache.put(inputFilePath, List.of(makeMessage("MSG1", null)));
+    cache.put(otherFilePath, List.of(makeMessage("MSG2", null)));
+
+    cache.retainOnly(Set.of("export.xml"));
+
+    var cachePath = exercisePath.resolve(IngestCache.CACHE_DIR_NAME);
+    assertTrue(Files.exists(cachePath.resolve("export.xml.cache")));
+    assertFalse(Files.exists(cachePath.resolve("other.xml.cache")));
+    assertNotNull(cache.get(inputFilePath));
+    assertNull(cache.get(otherFilePath));
+  }
+}
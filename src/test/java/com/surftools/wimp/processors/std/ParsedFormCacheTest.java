@@ -0,0 +1,232 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.processors.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.surftools.wimp.core.MessageType;
+import com.surftools.wimp.core.RejectType;
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.message.Ics213Message;
+import com.surftools.wimp.message.PlainMessage;
+import com.surftools.wimp.message.RejectionMessage;
+import com.surftools.wimp.parser.FormBinder;
+import com.surftools.wimp.parser.Ics213Parser;
+
+/**
+ * what the classifier made of a message must come back, rebuilt around the
+ * message, from a saved and re-loaded cache, unless its parser has changed
+ *
+ * @author bobt
+ *
+ */
+public class ParsedFormCacheTest {
+  private static final String ICS_213_ATTACHMENT_NAME = "RMS_Express_Form_ICS213_Initial_Viewer.xml";
+
+  private static final String ICS_213_XML = "<?xml version=\"1.0\"?>\n<RMS_Express_Form>\n" //
+      + "  <form_parameters>\n    <xml_file_version>1.0</xml_file_version>\n" //
+      + "    <display_form>ICS213_Initial_Viewer.html</display_form>\n  </form_parameters>\n" //
+      + "  <variables>\n    <templateversion>GENERAL MESSAGE (ICS 213) 2.1</templateversion>\n" //
+      + "    <formtitle>ETO</formtitle>\n    <inc_name>Test &amp; more</inc_name>\n" //
+      + "    <fm_name>KM6SO</fm_name>\n    <to_name>ETO</to_name>\n    <subjectline>Test</subjectline>\n" //
+      + "    <mdate>2024-05-01</mdate>\n    <mtime>12:00</mtime>\n    <message>Hello world</message>\n" //
+      + "    <approved_name>Me</approved_name>\n    <approved_postitle>Boss</approved_postitle>\n" //
+      + "    <isexercise>** THIS IS AN EXERCISE **</isexercise>\n" //
+      + "    <maplat>40.1234</maplat>\n    <maplon>-92.5</maplon>\n  </variables>\n</RMS_Express_Form>\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path exercisePath;
+
+  @Before
+  public void setUp() {
+    exercisePath = folder.getRoot().toPath();
+  }
+
+  private static ExportedMessage makeMessage(String messageId, String body) {
+    var mime = "Subject: ETO Exercise\r\nX-Source: KM6SO\r\n\r\n" + body + "\r\n"
+        + "Senders Express Version: 1.7.17.0\r\n";
+    var attachments = new HashMap<String, byte[]>();
+    attachments.put(ICS_213_ATTACHMENT_NAME, ICS_213_XML.getBytes(StandardCharsets.UTF_8));
+    return new ExportedMessage(messageId, "KM6SO", "KM6SO", "ETO-01", "ETO-01@winlink.org", "", "ETO Exercise",
+        LocalDateTime.of(2024, 5, 1, 12, 0), null, null, mime, body, attachments, false, "export.xml", null);
+  }
+
+  private static Map<MessageType, Integer> versions(int ics213Version) {
+    return Map.of(MessageType.ICS_213, ics213Version, MessageType.PLAIN, 0);
+  }
+
+  private ParsedFormCache reload(Map<MessageType, Integer> parserVersionMap) {
+    return new ParsedFormCache(exercisePath, parserVersionMap);
+  }
+
+  @Test
+  public void testKeyFollowsMime() {
+    var cache = reload(versions(0));
+    var key = cache.makeKey(makeMessage("MSG1", "body"));
+    assertNotNull(key);
+    assertEquals(key, cache.makeKey(makeMessage("MSG1", "body")));
+    assertNotEquals(key, cache.makeKey(makeMessage("MSG1", "changed body")));
+    assertNotEquals(key, cache.makeKey(makeMessage("MSG2", "body")));
+  }
+
+  @Test
+  public void testBoundRoundTrip() {
+    var message = makeMessage("MSG1", "body");
+    FormBinder.beginCapture();
+    var parsed = new Ics213Parser().parse(message);
+    var bound = FormBinder.endCapture();
+    assertTrue(parsed instanceof Ics213Message);
+
+    var cache = reload(versions(0));
+    var key = cache.makeKey(message);
+    cache.put(key, MessageType.ICS_213, false, message, parsed, bound);
+    cache.save();
+
+    cache = reload(versions(0));
+    var other = makeMessage("MSG1", "body");
+    var entry = cache.get(key);
+    assertNotNull(entry);
+    var rebuilt = cache.rebuild(key, entry, other);
+    assertTrue(rebuilt instanceof Ics213Message);
+    assertEquals(1, cache.getHitCount());
+
+    var expected = (Ics213Message) parsed;
+    var actual = (Ics213Message) rebuilt;
+    assertEquals(expected.organization, actual.organization);
+    assertEquals(expected.incidentName, actual.incidentName);
+    assertEquals(expected.formFrom, actual.formFrom);
+    assertEquals(expected.formTo, actual.formTo);
+    assertEquals(expected.formSubject, actual.formSubject);
+    assertEquals(expected.formDate, actual.formDate);
+    assertEquals(expected.formTime, actual.formTime);
+    assertEquals(expected.formMessage, actual.formMessage);
+    assertEquals(expected.approvedBy, actual.approvedBy);
+    assertEquals(expected.position, actual.position);
+    assertEquals(expected.isExercise, actual.isExercise);
+    assertEquals(expected.formLocation.getLatitude(), actual.formLocation.getLatitude());
+    assertEquals(expected.formLocation.getLongitude(), actual.formLocation.getLongitude());
+    assertEquals(expected.dataSource, actual.dataSource);
+    assertSame(other.getMime(), actual.getMime());
+  }
+
+  @Test
+  public void testPlainAndRejectionRoundTrip() {
+    var plainMessage = makeMessage("MSG1", "plain");
+    var rejectedMessage = makeMessage("MSG2", "rejected");
+    var unparsedMessage = makeMessage("MSG3", "unparsed");
+
+    var cache = reload(versions(0));
+    var plainKey = cache.makeKey(plainMessage);
+    var rejectedKey = cache.makeKey(rejectedMessage);
+    var unparsedKey = cache.makeKey(unparsedMessage);
+    cache.put(plainKey, MessageType.PLAIN, false, plainMessage, new PlainMessage(plainMessage), null);
+    cache.put(rejectedKey, MessageType.ICS_213, false, rejectedMessage,
+        new RejectionMessage(rejectedMessage, RejectType.PROCESSING_ERROR, "context"), null);
+    cache.put(unparsedKey, MessageType.ICS_213, false, unparsedMessage, unparsedMessage, null);
+    cache.save();
+
+    cache = reload(versions(0));
+    assertEquals(PlainMessage.class, cache.rebuild(plainKey, cache.get(plainKey), plainMessage).getClass());
+
+    var rejection = (RejectionMessage) cache.rebuild(rejectedKey, cache.get(rejectedKey), rejectedMessage);
+    assertEquals(RejectType.PROCESSING_ERROR, rejection.reason);
+    assertEquals("context", rejection.context);
+
+    assertSame(unparsedMessage, cache.rebuild(unparsedKey, cache.get(unparsedKey), unparsedMessage));
+  }
+
+  @Test
+  public void testUncacheable() {
+    var message = makeMessage("MSG1", "body");
+    var parsed = new Ics213Parser().parse(message);
+
+    var cache = reload(versions(0));
+    var key = cache.makeKey(message);
+    cache.put(key, MessageType.ICS_213, false, message, parsed, null); // nothing captured
+    assertEquals(1, cache.getUncacheableCount());
+    cache.save();
+
+    assertNull(reload(versions(0)).get(key));
+  }
+
+  @Test
+  public void testParserVersionInvalidates() {
+    var message = makeMessage("MSG1", "body");
+    var cache = reload(versions(0));
+    var key = cache.makeKey(message);
+    cache.put(key, MessageType.ICS_213, true, message, new PlainMessage(message), null);
+    cache.save();
+
+    var entry = reload(versions(0)).get(key);
+    assertNotNull(entry);
+    assertTrue(entry.isRenamed());
+
+    cache = reload(versions(1));
+    assertNull(cache.get(key));
+    assertEquals(1, cache.getInvalidatedCount());
+  }
+
+  @Test
+  public void testSaveDropsUnusedEntries() {
+    var used = makeMessage("MSG1", "used");
+    var unused = makeMessage("MSG2", "unused");
+
+    var cache = reload(versions(0));
+    var usedKey = cache.makeKey(used);
+    var unusedKey = cache.makeKey(unused);
+    cache.put(usedKey, MessageType.PLAIN, false, used, new PlainMessage(used), null);
+    cache.put(unusedKey, MessageType.PLAIN, false, unused, new PlainMessage(unused), null);
+    cache.save();
+
+    cache = reload(versions(0));
+    assertNotNull(cache.rebuild(usedKey, cache.get(usedKey), used));
+    cache.save();
+
+    cache = reload(versions(0));
+    assertNotNull(cache.get(usedKey));
+    assertNull(cache.get(unusedKey));
+  }
+}
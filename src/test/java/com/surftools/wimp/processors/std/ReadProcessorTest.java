@@ -0,0 +1,241 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.processors.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.surftools.wimp.configuration.Key;
+import com.surftools.wimp.core.IMessageManager;
+import com.surftools.wimp.core.MessageManager;
+import com.surftools.wimp.message.ExportedMessage;
+import com.surftools.wimp.utils.config.impl.MemoryConfigurationManager;
+
+/**
+ * the streaming reader must give the same messages as the DOM reader, fall back
+ * to the DOM reader for a file it can't stream, and apply the read filter
+ *
+ * @author bobt
+ *
+ */
+public class ReadProcessorTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Path savedInputPath = AbstractBaseProcessor.inputPath;
+  private final IMessageManager savedMessageManager = AbstractBaseProcessor.mm;
+
+  @After
+  public void tearDown() {
+    AbstractBaseProcessor.inputPath = savedInputPath;
+    AbstractBaseProcessor.mm = savedMessageManager;
+    FilterProcessor.resetSenderSets();
+  }
+
+  private static String message(int i, String sender, String location) {
+    return "    <message>\n" //
+        + "      <id>MSG" + i + "</id>\n" //
+        + "      <subject>test &amp; subject " + i + "</subject>\n" //
+        + "      <time>2024/05/01 12:0" + i + "</time>\n" //
+        + "      <sender>" + sender + "</sender>\n" //
+        + "      <location>" + location + "</location>\n" //
+        + "      <peertopeer>" + (i % 2 == 0) + "</peertopeer>\n" //
+        + "      <source>" + sender + "</source>\n" //
+        + "      <mime>From: " + sender + "@winlink.org\n" //
+        + "Subject: test subject " + i + "\n" //
+        + "To: ETO-01@winlink.org,\n SMTP:foo@bar.com\n" //
+        + "Cc: " + sender + "@winlink.org\n" //
+        + "X-Location: 38.660000N, 122.870667W (SPECIFIED)\n" //
+        + "\n" //
+        + "body " + i + "\n" //
+        + "</mime>\n" //
+        + "    </message>\n";
+  }
+
+  private static String export(String... messages) {
+    return "<?xml version=\"1.0\"?>\n" //
+        + "<Winlink_Express_message_export>\n" //
+        + "  <message_list>\n" //
+        + String.join("", messages) //
+        + "  </message_list>\n" //
+        + "</Winlink_Express_message_export>\n";
+  }
+
+  private static String summarize(ExportedMessage m) {
+    return String.join("|", m.messageId, m.from, m.source, m.to, m.toList, m.ccList, m.subject,
+        String.valueOf(m.msgDateTime), String.valueOf(m.msgLocation), String.valueOf(m.msgLocationSource),
+        String.valueOf(m.isP2p), m.fileName, m.getMime());
+  }
+
+  private static List<String> summarize(List<ExportedMessage> messages) {
+    var list = new ArrayList<String>();
+    for (var m : messages) {
+      list.add(summarize(m));
+    }
+    return list;
+  }
+
+  private static List<String> ids(List<ExportedMessage> messages) {
+    return messages.stream().map(m -> m.messageId).toList();
+  }
+
+  @Test
+  public void testStreamMatchesDom() throws Exception {
+    var content = export(message(1, "K1AA", "40.187500N, 92.541667W (GPS)"), message(2, "K2BB", ""),
+        message(3, "K3CC", "40.187500S, 92.541667E"));
+    var rp = new ReadProcessor();
+
+    var streamed = rp.parseExportedMessages(new StringReader(content), "export.xml");
+    var dom = rp.parseExportedMessages(content.lines().toList(), "export.xml");
+    assertEquals(List.of("MSG1", "MSG2", "MSG3"), ids(streamed));
+    assertEquals(summarize(dom), summarize(streamed));
+
+    var m = streamed.get(0);
+    assertEquals("K1AA", m.from);
+    assertEquals("ETO-01", m.to);
+    assertEquals("test & subject 1", m.subject);
+    assertEquals(LocalDateTime.of(2024, 5, 1, 12, 1), m.msgDateTime);
+    assertEquals("GPS", m.msgLocationSource);
+    assertEquals(40.1875, m.msgLocation.getLatitudeAsDouble(), 1e-9);
+    assertEquals(-92.541667, m.msgLocation.getLongitudeAsDouble(), 1e-9);
+    assertEquals(false, m.isP2p);
+    assertTrue(m.getMime().contains("body 1"));
+
+    // no <location> value: from the X-Location header
+    assertEquals("SPECIFIED", streamed.get(1).msgLocationSource);
+    assertEquals(-122.870667, streamed.get(1).msgLocation.getLongitudeAsDouble(), 1e-9);
+  }
+
+  private static ExportedMessage readLocation(String location) throws Exception {
+    var content = export(message(1, "K1AA", location));
+    return new ReadProcessor().parseExportedMessages(new StringReader(content), "export.xml").get(0);
+  }
+
+  private static void assertLocation(String location, double latitude, double longitude, String source)
+      throws Exception {
+    var m = readLocation(location);
+    assertTrue(location, m.msgLocation.isValid());
+    assertEquals(location, latitude, m.msgLocation.getLatitudeAsDouble(), 1e-9);
+    assertEquals(location, longitude, m.msgLocation.getLongitudeAsDouble(), 1e-9);
+    assertEquals(location, source, m.msgLocationSource);
+  }
+
+  @Test
+  public void testLocationQuirks() throws Exception {
+    assertLocation("40.187500N, 92.541667W (GPS)", 40.1875, -92.541667, "GPS");
+    assertLocation("40.187500S, 92.541667E", -40.1875, 92.541667, null);
+    assertLocation("40.1875N,92.5W", 40.1875, -92.5, null);
+
+    // the source must be in the second field
+    assertLocation("1.5N, 2.5W, (GPS)", 1.5, -2.5, null);
+
+    // the last character is taken to be the hemisphere, even if it's a digit
+    assertLocation("40.187500, 92.541667", 40.18750, 92.54166, null);
+
+    // fewer than two fields: from the X-Location header
+    assertLocation("", 38.66, -122.870667, "SPECIFIED");
+    assertLocation("40.1875N", 38.66, -122.870667, "SPECIFIED");
+
+    // two fields that can't be parsed: no location at all, no X-Location
+    var m = readLocation(",92.5W");
+    assertNull(m.msgLocation);
+    assertNull(m.msgLocationSource);
+  }
+
+  @Test
+  public void testReadFile() throws Exception {
+    var path = folder.getRoot().toPath().resolve("export.xml");
+    Files.writeString(path, export(message(1, "K1AA", ""), message(2, "K2BB", "")));
+
+    var messages = new ReadProcessor().readAll(path);
+    assertEquals(List.of("MSG1", "MSG2"), ids(messages));
+    assertEquals("export.xml", messages.get(0).fileName);
+  }
+
+  @Test
+  public void testMalformedFileFallsBackToDom() throws Exception {
+    // streaming gives up on the whole file, the DOM reader only loses the bad message
+    var bad = message(2, "K2BB", "").replace("body 2", "<b>body 2");
+    var path = folder.getRoot().toPath().resolve("export.xml");
+    Files.writeString(path, export(message(1, "K1AA", ""), bad, message(3, "K3CC", "")));
+
+    assertEquals(List.of("MSG1", "MSG3"), ids(new ReadProcessor().readAll(path)));
+  }
+
+  @Test
+  public void testTruncatedFileFallsBackToDom() throws Exception {
+    var content = export(message(1, "K1AA", ""), message(2, "K2BB", ""), message(3, "K3CC", ""));
+    var path = folder.getRoot().toPath().resolve("export.xml");
+    Files.writeString(path, content.substring(0, content.indexOf("body 3")));
+
+    assertEquals(List.of("MSG1", "MSG2"), ids(new ReadProcessor().readAll(path)));
+  }
+
+  private List<String> readFiltered(Set<String> includeSenders, Set<String> excludeSenders) throws Exception {
+    var inputPath = folder.newFolder("input").toPath();
+    Files.writeString(inputPath.resolve("export.xml"),
+        export(message(1, "K1AA", ""), message(2, "K2BB", ""), message(3, "K3CC", ""), message(4, "K1AA", "")));
+
+    var cm = new MemoryConfigurationManager(Key.values());
+    cm.putBoolean(Key.READ_FILTER_ENABLED, true);
+    FilterProcessor.includeSenderSet.addAll(includeSenders);
+    FilterProcessor.excludeSenderSet.addAll(excludeSenders);
+
+    var mm = new MessageManager();
+    AbstractBaseProcessor.inputPath = inputPath;
+    AbstractBaseProcessor.mm = mm;
+    var rp = new ReadProcessor();
+    rp.baseInitialize(cm, mm);
+    rp.process();
+    return ids(mm.getOriginalMessages());
+  }
+
+  @Test
+  public void testReadFilterInclude() throws Exception {
+    assertEquals(List.of("MSG1", "MSG4"), readFiltered(Set.of("K1AA"), Set.of()));
+  }
+
+  @Test
+  public void testReadFilterExclude() throws Exception {
+    assertEquals(List.of("MSG1", "MSG3", "MSG4"), readFiltered(Set.of(), Set.of("K2BB")));
+  }
+}
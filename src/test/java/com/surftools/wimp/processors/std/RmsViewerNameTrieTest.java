@@ -0,0 +1,156 @@
+/**
+
+The MIT License (MIT)
+
+Copyright (c) 2022, Robert Tykulsker
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.surftools.wimp.processors.std;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.surftools.wimp.core.MessageType;
+import com.surftools.wimp.processors.std.ClassifierProcessor.RmsViewerMatch;
+import com.surftools.wimp.processors.std.ClassifierProcessor.RmsViewerNameTrie;
+
+/**
+ * the trie must resolve every attachment name exactly as the nested startsWith()
+ * loops over the supported types did
+ *
+ * @author bobt
+ *
+ */
+public class RmsViewerNameTrieTest {
+  private List<MessageType> types;
+  private RmsViewerNameTrie trie;
+
+  @Before
+  public void setUp() {
+    // as ClassifierProcessor orders them
+    types = new ArrayList<>();
+    for (var type : MessageType.values()) {
+      if (!ClassifierProcessor.IGNORED_TYPES.contains(type)) {
+        types.add(type);
+      }
+    }
+    Collections.sort(types);
+    Collections.reverse(types);
+    trie = new RmsViewerNameTrie(types);
+  }
+
+  // the original classification
+  private RmsViewerMatch findByLoop(String name) {
+    for (var priority = 0; priority < types.size(); ++priority) {
+      var messageType = types.get(priority);
+      if (messageType.rmsViewerName() == null) {
+        continue;
+      }
+      if (name.startsWith(messageType.rmsViewerName())) {
+        return new RmsViewerMatch(messageType, priority, false);
+      }
+      if (name.startsWith(messageType.rmsViewerName().replaceAll(" ", "_"))) {
+        return new RmsViewerMatch(messageType, priority, true);
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testExactNames() {
+    for (var type : types) {
+      var name = type.rmsViewerName();
+      if (name == null) {
+        continue;
+      }
+      var match = trie.find(name);
+      assertEquals(name, findByLoop(name), match);
+      assertFalse(name, match.isUnderscored());
+    }
+  }
+
+  @Test
+  public void testUnderscoredName() {
+    var match = trie.find("RMS_Express_Form_Field_Situation_Report_25_viewer.xml");
+    assertEquals(MessageType.FIELD_SITUATION, match.messageType());
+    assertTrue(match.isUnderscored());
+  }
+
+  @Test
+  public void testLongerPrefixOfLowerPriority() {
+    // ICS_213 is a prefix of ICS_213_RR's name; the type earlier in the list wins
+    var name = MessageType.ICS_213_RR.rmsViewerName();
+    assertEquals(findByLoop(name), trie.find(name));
+  }
+
+  @Test
+  public void testUnknownNames() {
+    assertNull(trie.find(""));
+    assertNull(trie.find("image.jpg"));
+    assertNull(trie.find("RMS_Express_Form_"));
+    assertNull(trie.find("RMS_Express_Form_Unknown_viewer.xml"));
+  }
+
+  @Test
+  public void testAgainstLoop() {
+    var names = new ArrayList<String>();
+    for (var type : types) {
+      if (type.rmsViewerName() != null) {
+        names.add(type.rmsViewerName());
+      }
+    }
+
+    var random = new Random(3);
+    for (var i = 0; i < 20_000; ++i) {
+      var name = names.get(random.nextInt(names.size()));
+      if (random.nextBoolean()) {
+        name = name.replaceAll(" ", "_");
+      }
+      switch (random.nextInt(4)) {
+      case 0:
+        name = name.substring(0, random.nextInt(name.length() + 1));
+        break;
+      case 1:
+        name = name + (random.nextBoolean() ? " 23_viewer.xml" : "_Initial_Viewer.xml");
+        break;
+      case 2:
+        var position = random.nextInt(name.length());
+        name = name.substring(0, position) + (char) ('A' + random.nextInt(26)) + name.substring(position + 1);
+        break;
+      default:
+        break;
+      }
+      assertEquals(name, findByLoop(name), trie.find(name));
+    }
+  }
+}